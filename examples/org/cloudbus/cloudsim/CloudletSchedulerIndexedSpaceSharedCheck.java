@@ -0,0 +1,139 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs {@link CloudletSchedulerIndexedSpaceShared} and {@link CloudletSchedulerSpaceShared} side
+ * by side on the same random submissions, cancels, pauses, resumes and updates, with many
+ * cloudlets waiting for PEs and many IDs that are unknown or have already left. Every call must
+ * return the same result from both schedulers, and the finished cloudlets must come out in the
+ * same order with the same finish times.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class CloudletSchedulerIndexedSpaceSharedCheck {
+
+	/** The number of random VMs. */
+	private static final int RUNS = 300;
+
+	/** The number of calls per VM. */
+	private static final int OPERATIONS = 400;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		Random random = new Random(seed);
+		for (int run = 0; run < RUNS; run++) {
+			check(random.nextLong());
+		}
+		Log.printLine("CloudletSchedulerIndexedSpaceSharedCheck: ok, " + RUNS + " VMs of " + OPERATIONS
+				+ " calls");
+	}
+
+	/**
+	 * Makes the same random calls to both schedulers of a VM.
+	 *
+	 * @param seed the seed of the VM and of the calls
+	 */
+	private static void check(long seed) {
+		Random random = new Random(seed);
+		CloudletScheduler indexed = new CloudletSchedulerIndexedSpaceShared();
+		CloudletScheduler scanned = new CloudletSchedulerSpaceShared();
+		int pes = 1 + random.nextInt(8);
+		List<Double> mipsShare = new ArrayList<Double>();
+		for (int i = 0; i < pes; i++) {
+			mipsShare.add(1000.0);
+		}
+		indexed.updateVmProcessing(0, mipsShare);
+		scanned.updateVmProcessing(0, mipsShare);
+
+		double time = 0;
+		int cloudletNum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			int id = random.nextInt(cloudletNum + 1);
+			String expected;
+			String actual;
+			switch (random.nextInt(10)) {
+				case 0:
+				case 1:
+				case 2:
+				case 3:
+					int cloudletPes = 1 + random.nextInt(pes);
+					long length = 1000 + random.nextInt(100000);
+					double fileTransferTime = random.nextInt(3);
+					expected = "" + scanned.cloudletSubmit(createCloudlet(cloudletNum, length, cloudletPes),
+							fileTransferTime);
+					actual = "" + indexed.cloudletSubmit(createCloudlet(cloudletNum, length, cloudletPes),
+							fileTransferTime);
+					cloudletNum++;
+					break;
+				case 4:
+					expected = describe(scanned.cloudletCancel(id));
+					actual = describe(indexed.cloudletCancel(id));
+					break;
+				case 5:
+					expected = "" + scanned.cloudletPause(id);
+					actual = "" + indexed.cloudletPause(id);
+					break;
+				case 6:
+					expected = "" + scanned.cloudletResume(id);
+					actual = "" + indexed.cloudletResume(id);
+					break;
+				case 7:
+					time += random.nextInt(50);
+					expected = "" + scanned.updateVmProcessing(time, mipsShare);
+					actual = "" + indexed.updateVmProcessing(time, mipsShare);
+					break;
+				case 8:
+					expected = drainFinished(scanned);
+					actual = drainFinished(indexed);
+					break;
+				default:
+					expected = scanned.getCloudletStatus(id) + " " + scanned.runningCloudlets() + " "
+							+ scanned.getTotalUtilizationOfCpu(time);
+					actual = indexed.getCloudletStatus(id) + " " + indexed.runningCloudlets() + " "
+							+ indexed.getTotalUtilizationOfCpu(time);
+					break;
+			}
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException("Call " + i + " returned " + actual + " instead of " + expected);
+			}
+		}
+	}
+
+	private static Cloudlet createCloudlet(int id, long length, int pes) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(id, length, pes, 0, 0, full, full, full);
+		cloudlet.setResourceParameter(0, 1, 1);
+		return cloudlet;
+	}
+
+	private static String describe(Cloudlet cloudlet) {
+		return cloudlet == null ? "null" : cloudlet.getCloudletId() + "/" + cloudlet.getCloudletStatus();
+	}
+
+	/**
+	 * Takes the finished cloudlets out of a scheduler.
+	 *
+	 * @param scheduler the scheduler
+	 * @return the IDs and finish times of the cloudlets, in the order they came out
+	 */
+	private static String drainFinished(CloudletScheduler scheduler) {
+		StringBuilder finished = new StringBuilder();
+		while (scheduler.isFinishedCloudlets()) {
+			Cloudlet cloudlet = scheduler.getNextFinishedCloudlet();
+			finished.append(cloudlet.getCloudletId()).append('@').append(cloudlet.getFinishTime()).append(',');
+		}
+		return finished.toString();
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Compares the finish times of {@link CloudletSchedulerVirtualTimeShared} with those of
+ * {@link CloudletSchedulerTimeShared} on random workloads. Cloudlets of random lengths and numbers
+ * of PEs arrive at random times while the MIPS of the VM change, and each scheduler is updated, as
+ * a datacenter would update it, at every arrival, every change and every next event it announces.
+ * The time-shared policy counts the remaining length of a cloudlet in whole MI, rounded down, so
+ * it finishes each cloudlet up to one MI early, and the cloudlets that share the VM with it run
+ * faster from then on. As every cloudlet is at least {@link #MIN_LENGTH} MI long, these early
+ * finishes shift the finish time of a cloudlet by at most {@link #TOLERANCE} of its response time,
+ * from its arrival to its finish. The finish time of each cloudlet may differ by that, plus two
+ * events: the longer of the minimum time between events and the time the cloudlet takes to
+ * process one MI at the capacity of its last update.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class CloudletSchedulerVirtualTimeSharedCheck {
+
+	/** The number of random workloads. */
+	private static final int RUNS = 300;
+
+	/** The largest number of cloudlets per workload. */
+	private static final int CLOUDLETS = 300;
+
+	/** The shortest length of a cloudlet, in MI. */
+	private static final int MIN_LENGTH = 1000;
+
+	/** The relative difference allowed between the response times, on top of two events. */
+	private static final double TOLERANCE = 1.0 / MIN_LENGTH;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		Random random = new Random(seed);
+		double largest = 0;
+		for (int run = 0; run < RUNS; run++) {
+			largest = Math.max(largest, check(random.nextLong()));
+		}
+		Log.printLine("CloudletSchedulerVirtualTimeSharedCheck: ok, " + RUNS
+				+ " workloads, the largest difference is " + largest + " of the allowed one");
+	}
+
+	/**
+	 * Runs a random workload on both schedulers.
+	 *
+	 * @param seed the seed of the workload
+	 * @return the largest difference between the finish times, as a fraction of the allowed one
+	 */
+	private static double check(long seed) {
+		Random random = new Random(seed);
+		int pes = 1 + random.nextInt(8);
+		Workload workload = new Workload(1 + random.nextInt(CLOUDLETS), pes);
+		double time = 0;
+		for (int i = 0; i < workload.arrivals.length; i++) {
+			time += random.nextInt(4) == 0 ? 0 : random.nextDouble() * 20;
+			workload.arrivals[i] = time;
+			workload.lengths[i] = MIN_LENGTH + random.nextInt(100000);
+			workload.pes[i] = 1 + random.nextInt(pes);
+		}
+		time = 0;
+		workload.addMipsShare(0, random.nextInt(1000) + 1);
+		for (int i = random.nextInt(5); i > 0; i--) {
+			time += random.nextDouble() * 500;
+			workload.addMipsShare(time, random.nextInt(1000) + 1);
+		}
+
+		double[] expected = workload.run(new CloudletSchedulerTimeShared());
+		double[] actual = workload.run(new CloudletSchedulerVirtualTimeShared());
+		double largest = 0;
+		for (int i = 0; i < expected.length; i++) {
+			double responseTime = expected[i] - workload.arrivals[i];
+			double event = Math.max(CloudSim.getMinTimeBetweenEvents(),
+					1.0 / (workload.capacities[i] * workload.pes[i]));
+			double allowed = TOLERANCE * responseTime + 2 * event;
+			double difference = Math.abs(actual[i] - expected[i]);
+			if (!(difference <= allowed)) {
+				throw new IllegalStateException("Cloudlet #" + i + " finished at " + actual[i] + " instead of "
+						+ expected[i] + ", having arrived at " + workload.arrivals[i]);
+			}
+			largest = Math.max(largest, difference / allowed);
+		}
+		return largest;
+	}
+
+	/**
+	 * The arrivals of the cloudlets and the changes of MIPS of a VM.
+	 */
+	private static final class Workload {
+
+		private final double[] arrivals;
+
+		private final long[] lengths;
+
+		private final int[] pes;
+
+		private final int vmPes;
+
+		/** The capacity of the time-shared policy at the last update of each cloudlet. */
+		private final double[] capacities;
+
+		private final List<Double> changes = new ArrayList<Double>();
+
+		private final List<List<Double>> mipsShares = new ArrayList<List<Double>>();
+
+		private Workload(int cloudletNum, int vmPes) {
+			arrivals = new double[cloudletNum];
+			lengths = new long[cloudletNum];
+			pes = new int[cloudletNum];
+			capacities = new double[cloudletNum];
+			this.vmPes = vmPes;
+		}
+
+		private void addMipsShare(double time, double mips) {
+			changes.add(time);
+			mipsShares.add(new ArrayList<Double>(Collections.nCopies(vmPes, mips)));
+		}
+
+		/**
+		 * Runs the workload on a scheduler.
+		 *
+		 * @param scheduler the scheduler
+		 * @return the finish time of each cloudlet
+		 */
+		private double[] run(CloudletScheduler scheduler) {
+			double[] finishTimes = new double[arrivals.length];
+			Arrays.fill(finishTimes, Double.NaN);
+			List<Double> mipsShare = mipsShares.get(0);
+			double nextEvent = scheduler.updateVmProcessing(0, mipsShare);
+			int arrival = 0;
+			int change = 1;
+			while (true) {
+				boolean pending = nextEvent > 0 && nextEvent < Double.MAX_VALUE;
+				if (arrival == arrivals.length && !pending) {
+					break;
+				}
+				double time = pending ? nextEvent : Double.MAX_VALUE;
+				if (arrival < arrivals.length) {
+					time = Math.min(time, arrivals[arrival]);
+				}
+				if (change < changes.size()) {
+					time = Math.min(time, changes.get(change));
+				}
+				nextEvent = update(scheduler, time, mipsShare, finishTimes);
+				boolean changed = false;
+				while (change < changes.size() && changes.get(change) <= time) {
+					mipsShare = mipsShares.get(change++);
+					changed = true;
+				}
+				while (arrival < arrivals.length && arrivals[arrival] <= time) {
+					UtilizationModel full = new UtilizationModelFull();
+					Cloudlet cloudlet = new Cloudlet(arrival, lengths[arrival], pes[arrival], 0, 0, full, full, full);
+					cloudlet.setResourceParameter(0, 1, 1);
+					scheduler.cloudletSubmit(cloudlet, 0);
+					arrival++;
+					changed = true;
+				}
+				if (changed) {
+					nextEvent = update(scheduler, time, mipsShare, finishTimes);
+				}
+			}
+			return finishTimes;
+		}
+
+		/**
+		 * Updates a scheduler and takes its finished cloudlets out.
+		 *
+		 * @param scheduler the scheduler
+		 * @param time the time of the update
+		 * @param mipsShare the MIPS share since the last update
+		 * @param finishTimes the finish time of each cloudlet
+		 * @return the time of the next event
+		 */
+		private double update(CloudletScheduler scheduler, double time, List<Double> mipsShare,
+				double[] finishTimes) {
+			double capacity = 0;
+			if (scheduler instanceof CloudletSchedulerTimeShared) {
+				capacity = ((CloudletSchedulerTimeShared) scheduler).getCapacity(mipsShare);
+			}
+			double nextEvent = scheduler.updateVmProcessing(time, mipsShare);
+			while (scheduler.isFinishedCloudlets()) {
+				int id = scheduler.getNextFinishedCloudlet().getCloudletId();
+				finishTimes[id] = time;
+				if (capacity > 0) {
+					capacities[id] = capacity;
+				}
+			}
+			return nextEvent;
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * Checks the segment tree over the free PEs of {@link VmAllocationPolicySimple} against the scan
+ * of the free PEs list it replaces. Random VMs are allocated to and released from random hosts,
+ * some of which cannot hold them, once with the policy and once with the scan, each on its own
+ * copy of the hosts. The scan takes the first host with the most free PEs, then the next one when
+ * the host cannot create the VM; both must pick the same host every time.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class VmAllocationPolicySimpleCheck {
+
+	/** The number of random datacenters. */
+	private static final int RUNS = 300;
+
+	/** The number of allocations and releases per datacenter. */
+	private static final int OPERATIONS = 2000;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		Random random = new Random(seed);
+		Log.disable();
+		for (int run = 0; run < RUNS; run++) {
+			check(random.nextLong());
+		}
+		Log.enable();
+		Log.printLine("VmAllocationPolicySimpleCheck: ok, " + RUNS + " datacenters of " + OPERATIONS
+				+ " operations");
+	}
+
+	/**
+	 * Runs random allocations and releases with the policy and with the scan.
+	 *
+	 * @param seed the seed of the datacenter and of the operations
+	 */
+	private static void check(long seed) {
+		Random random = new Random(seed);
+		int hostNum = 1 + random.nextInt(random.nextBoolean() ? 8 : 200);
+		List<Host> policyHosts = new ArrayList<Host>();
+		List<Host> scanHosts = new ArrayList<Host>();
+		for (int i = 0; i < hostNum; i++) {
+			int pes = 1 + random.nextInt(8);
+			int ram = 1024 * (1 + random.nextInt(8));
+			long storage = 10000 * (1 + random.nextInt(4));
+			policyHosts.add(createHost(i, pes, ram, storage));
+			scanHosts.add(createHost(i, pes, ram, storage));
+		}
+		VmAllocationPolicySimple policy = new VmAllocationPolicySimple(policyHosts);
+		Scan scan = new Scan(scanHosts);
+
+		List<Vm> policyVms = new ArrayList<Vm>();
+		List<Vm> scanVms = new ArrayList<Vm>();
+		int vmNum = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			if (policyVms.isEmpty() || random.nextInt(3) > 0) {
+				int pes = 1 + random.nextInt(4);
+				int ram = 512 * (1 + random.nextInt(4));
+				long size = 5000 * (1 + random.nextInt(3));
+				Vm policyVm = createVm(vmNum, pes, ram, size);
+				Vm scanVm = createVm(vmNum, pes, ram, size);
+				vmNum++;
+				boolean allocated = policy.allocateHostForVm(policyVm);
+				int expected = scan.allocate(scanVm);
+				int actual = allocated ? policy.getHost(policyVm).getId() : -1;
+				if (actual != expected) {
+					throw new IllegalStateException("VM #" + policyVm.getId() + " went to host #" + actual
+							+ " instead of host #" + expected);
+				}
+				if (allocated) {
+					policyVms.add(policyVm);
+					scanVms.add(scanVm);
+				}
+			} else {
+				int index = random.nextInt(policyVms.size());
+				policy.deallocateHostForVm(policyVms.remove(index));
+				scan.deallocate(scanVms.remove(index));
+			}
+		}
+	}
+
+	private static Host createHost(int id, int pes, int ram, long storage) {
+		List<Pe> peList = new ArrayList<Pe>();
+		for (int i = 0; i < pes; i++) {
+			peList.add(new Pe(i, new PeProvisionerSimple(1000)));
+		}
+		return new Host(id, new RamProvisionerSimple(ram), new BwProvisionerSimple(10000), storage, peList,
+				new VmSchedulerTimeShared(peList));
+	}
+
+	private static Vm createVm(int id, int pes, int ram, long size) {
+		return new Vm(id, 0, 250, pes, ram, 100, size, "Xen", new CloudletSchedulerTimeShared());
+	}
+
+	/**
+	 * The allocation of VmAllocationPolicySimple up to CloudSim Toolkit 3.0, which scans the free
+	 * PEs of all the hosts for each host it tries.
+	 */
+	private static final class Scan {
+
+		private final List<Host> hostList;
+
+		private final int[] freePes;
+
+		private final List<Vm> vmList = new ArrayList<Vm>();
+
+		private final List<Integer> vmHosts = new ArrayList<Integer>();
+
+		private Scan(List<Host> hostList) {
+			this.hostList = hostList;
+			freePes = new int[hostList.size()];
+			for (int i = 0; i < freePes.length; i++) {
+				freePes[i] = hostList.get(i).getNumberOfPes();
+			}
+		}
+
+		/**
+		 * Allocates a host for a VM.
+		 *
+		 * @param vm the vm
+		 * @return the id of the host, -1 if no host could create the vm
+		 */
+		private int allocate(Vm vm) {
+			int[] freePesTmp = freePes.clone();
+			for (int tries = 0; tries < freePes.length; tries++) {
+				int moreFree = Integer.MIN_VALUE;
+				int idx = -1;
+				for (int i = 0; i < freePesTmp.length; i++) {
+					if (freePesTmp[i] > moreFree) {
+						moreFree = freePesTmp[i];
+						idx = i;
+					}
+				}
+				Host host = hostList.get(idx);
+				if (host.vmCreate(vm)) {
+					freePes[idx] -= vm.getNumberOfPes();
+					vmList.add(vm);
+					vmHosts.add(idx);
+					return host.getId();
+				}
+				freePesTmp[idx] = Integer.MIN_VALUE;
+			}
+			return -1;
+		}
+
+		/**
+		 * Releases the host of a VM.
+		 *
+		 * @param vm the vm
+		 */
+		private void deallocate(Vm vm) {
+			int index = vmList.indexOf(vm);
+			int idx = vmHosts.remove(index);
+			vmList.remove(index);
+			hostList.get(idx).vmDestroy(vm);
+			freePes[idx] += vm.getNumberOfPes();
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Checks the heap, calendar and ladder future queues against {@link FutureQueueSimple}, the sorted
+ * set they replace. Each queue receives the same random sequence of additions, additions to the
+ * head, removals and polls, with event times drawn the way a simulation draws them: never before
+ * the time of the last polled event, often tied, sometimes far ahead. Every poll, peek, removal,
+ * size and iteration must give the same events as the simple queue.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class FutureQueueCheck {
+
+	/** The number of random sequences. */
+	private static final int RUNS = 200;
+
+	/** The number of operations per sequence. */
+	private static final int OPERATIONS = 20000;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		Random random = new Random(seed);
+		for (int run = 0; run < RUNS; run++) {
+			FutureQueue[] queues = {new FutureQueueHeap(2), new FutureQueueHeap(4),
+					new FutureQueueCalendar(), new FutureQueueLadder()};
+			for (FutureQueue queue : queues) {
+				check(random.nextLong(), run, queue);
+			}
+		}
+		Log.printLine("FutureQueueCheck: ok, " + RUNS + " sequences of " + OPERATIONS
+				+ " operations per queue");
+	}
+
+	/**
+	 * Runs a random sequence of operations on a queue and on a simple queue.
+	 *
+	 * @param seed the seed of the sequence
+	 * @param run the index of the sequence, which picks how far apart the events are
+	 * @param queue the queue checked
+	 */
+	private static void check(long seed, int run, FutureQueue queue) {
+		Random random = new Random(seed);
+		FutureQueue expected = new FutureQueueSimple();
+		List<SimEvent> added = new ArrayList<SimEvent>();
+		double clock = 0;
+		double scale = Math.pow(10, run % 7 - 3);
+		for (int i = 0; i < OPERATIONS; i++) {
+			int operation = random.nextInt(20);
+			if (operation < 9) {
+				SimEvent event = new SimEvent(SimEvent.SEND, clock + nextDelay(random, scale), random.nextInt(4),
+						random.nextInt(4), random.nextInt(8), null);
+				expected.addEvent(event);
+				queue.addEvent(event);
+				added.add(event);
+			} else if (operation == 9) {
+				SimEvent event = new SimEvent(SimEvent.SEND, clock, random.nextInt(4), random.nextInt(4),
+						random.nextInt(8), null);
+				expected.addEventFirst(event);
+				queue.addEventFirst(event);
+				added.add(event);
+			} else if (operation < 17) {
+				SimEvent event = expected.poll();
+				compare(queue, "poll", event, queue.poll());
+				if (event != null) {
+					clock = event.eventTime();
+				}
+			} else if (operation == 17) {
+				compare(queue, "peek", expected.peek(), queue.peek());
+			} else if (operation == 18 && !added.isEmpty()) {
+				SimEvent event = added.get(random.nextInt(added.size()));
+				compare(queue, "remove", expected.remove(event), queue.remove(event));
+			} else {
+				final int tag = random.nextInt(8);
+				Predicate predicate = new Predicate() {
+
+					@Override
+					public boolean match(SimEvent event) {
+						return event.getTag() == tag;
+					}
+				};
+				int src = random.nextInt(4);
+				compare(queue, "removeAll", expected.removeAll(src, predicate), queue.removeAll(src, predicate));
+			}
+			compare(queue, "size", expected.size(), queue.size());
+			if (i % 1000 == 0) {
+				Iterator<SimEvent> it = queue.iterator();
+				for (SimEvent event : toList(expected)) {
+					compare(queue, "iterator", event, it.next());
+				}
+				compare(queue, "iterator end", false, it.hasNext());
+			}
+		}
+		while (expected.size() > 0) {
+			compare(queue, "poll", expected.poll(), queue.poll());
+		}
+		compare(queue, "poll", null, queue.poll());
+	}
+
+	/**
+	 * Draws the delay of a new event: none, a few ties, small delays or far ones.
+	 *
+	 * @param random the random generator
+	 * @param scale the usual delay
+	 * @return the delay
+	 */
+	private static double nextDelay(Random random, double scale) {
+		switch (random.nextInt(5)) {
+			case 0:
+				return 0;
+			case 1:
+				return scale * random.nextInt(4);
+			case 2:
+				return scale * 1000 * random.nextDouble();
+			default:
+				return -scale * Math.log(1 - random.nextDouble());
+		}
+	}
+
+	/**
+	 * Copies the events of a queue in temporal order.
+	 *
+	 * @param queue the queue
+	 * @return the events
+	 */
+	private static List<SimEvent> toList(FutureQueue queue) {
+		List<SimEvent> list = new ArrayList<SimEvent>();
+		Iterator<SimEvent> it = queue.iterator();
+		while (it.hasNext()) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	/**
+	 * Stops the check if a queue does not give the expected result.
+	 *
+	 * @param queue the queue
+	 * @param operation the operation
+	 * @param expected the result of the simple queue
+	 * @param actual the result of the queue
+	 */
+	private static void compare(FutureQueue queue, String operation, Object expected, Object actual) {
+		boolean same = expected instanceof SimEvent ? expected == actual
+				: expected == null ? actual == null : expected.equals(actual);
+		if (!same) {
+			throw new IllegalStateException(queue.getClass().getSimpleName() + ": " + operation + " returned "
+					+ describe(actual) + " instead of " + describe(expected));
+		}
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof SimEvent) {
+			SimEvent event = (SimEvent) value;
+			return "the event at " + event.eventTime() + " with tag " + event.getTag();
+		}
+		return String.valueOf(value);
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Log;
+
+/**
+ * Checks {@link DoubleRingBuffer} against the list it replaces in the utilization history of
+ * PowerVm, where each value is added at the head and the oldest one is removed once the list is
+ * longer than the history. After random additions and clears, the buffer must hold the same values
+ * in the same order, whether they are read one by one, as a list or as an array.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class DoubleRingBufferCheck {
+
+	/** The number of random buffers. */
+	private static final int RUNS = 1000;
+
+	/** The number of operations per buffer. */
+	private static final int OPERATIONS = 2000;
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		Random random = new Random(seed);
+		for (int run = 0; run < RUNS; run++) {
+			check(random.nextLong());
+		}
+		Log.printLine("DoubleRingBufferCheck: ok, " + RUNS + " buffers of " + OPERATIONS + " operations");
+	}
+
+	/**
+	 * Runs random additions and clears on a buffer and on a list.
+	 *
+	 * @param seed the seed of the capacity and of the operations
+	 */
+	private static void check(long seed) {
+		Random random = new Random(seed);
+		int capacity = 1 + random.nextInt(random.nextBoolean() ? 4 : 100);
+		DoubleRingBuffer buffer = new DoubleRingBuffer(capacity);
+		List<Double> expected = new LinkedList<Double>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			if (random.nextInt(200) == 0) {
+				buffer.clear();
+				expected.clear();
+			} else {
+				double value = random.nextDouble();
+				buffer.addFirst(value);
+				expected.add(0, value);
+				if (expected.size() > capacity) {
+					expected.remove(capacity);
+				}
+			}
+			compare(buffer, expected);
+		}
+	}
+
+	/**
+	 * Stops the check if the buffer does not hold the expected values.
+	 *
+	 * @param buffer the buffer
+	 * @param expected the values, from the newest to the oldest
+	 */
+	private static void compare(DoubleRingBuffer buffer, List<Double> expected) {
+		if (buffer.size() != expected.size() || !buffer.equals(expected) || !expected.equals(buffer)) {
+			throw new IllegalStateException("The buffer holds " + buffer + " instead of " + expected);
+		}
+		double[] array = buffer.toDoubleArray();
+		int i = 0;
+		for (double value : expected) {
+			if (buffer.getDouble(i) != value || array[i] != value) {
+				throw new IllegalStateException("Value " + i + " is " + buffer.getDouble(i) + " and " + array[i]
+						+ " instead of " + value);
+			}
+			i++;
+		}
+		if (array.length != expected.size()) {
+			throw new IllegalStateException("The array holds " + array.length + " values instead of "
+					+ expected.size());
+		}
+	}
+
+}
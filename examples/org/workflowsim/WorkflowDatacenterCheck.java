@@ -0,0 +1,244 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import org.cloudbus.cloudsim.CloudletScheduler;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmScheduler;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.util.RandomStreams;
+import org.workflowsim.failure.FailureGenerator;
+import org.workflowsim.failure.FailureMonitor;
+import org.workflowsim.failure.FailureParameters;
+import org.workflowsim.utils.ClusteringParameters;
+import org.workflowsim.utils.DistributionGenerator;
+import org.workflowsim.utils.OverheadParameters;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.Parameters.SchedulingAlgorithm;
+import org.workflowsim.utils.ReplicaCatalog;
+
+/**
+ * Checks that WorkflowDatacenter gives the same results when it skips the
+ * vms without jobs as when it updates every vm on every pass. A vm whose
+ * class overrides Vm.updateVmProcessing is never skipped, and the vms of a
+ * host whose class overrides Host.updateVmsProcessing are all updated by the
+ * host, so the same workflows are simulated three times: with plain vms and
+ * hosts, with vms that override the update and with hosts that override it.
+ * Far more vms than jobs can run at once, and failures make jobs come back
+ * to idle vms, so that many vms are skipped and brought up to date again.
+ * Every job must run on the same vm, at the same times and with the same
+ * outcome in the three simulations.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class WorkflowDatacenterCheck {
+
+    private static final String[] DAX_PATHS = {"config/dax/Montage_25.xml",
+        "config/dax/CyberShake_30.xml", "config/dax/Sipht_30.xml", "config/dax/Epigenomics_24.xml"};
+
+    private static final int[] VM_NUMS = {3, 20, 60};
+
+    private static final SchedulingAlgorithm[] ALGORITHMS = {SchedulingAlgorithm.MINMIN,
+        SchedulingAlgorithm.MAXMIN, SchedulingAlgorithm.MCT, SchedulingAlgorithm.FCFS};
+
+    private static final double[] FAILURE_RATES = {0.0, 0.002};
+
+    /**
+     * How the vms are updated in a simulation
+     */
+    private enum Update {
+
+        /**
+         * The datacenter skips the vms without jobs
+         */
+        SKIPPED,
+        /**
+         * The vms override their update, so that none is skipped
+         */
+        EVERY_VM,
+        /**
+         * The hosts override the update of their vms
+         */
+        BY_HOST
+    }
+
+    public static void main(String[] args) throws Exception {
+        int simulations = 0;
+        for (String daxPath : DAX_PATHS) {
+            for (int vmNum : VM_NUMS) {
+                for (SchedulingAlgorithm algorithm : ALGORITHMS) {
+                    for (double rate : FAILURE_RATES) {
+                        String name = daxPath + " on " + vmNum + " vms with " + algorithm
+                                + " and failure rate " + rate;
+                        List<String> expected = simulate(daxPath, vmNum, algorithm, rate, Update.EVERY_VM);
+                        for (Update update : new Update[]{Update.SKIPPED, Update.BY_HOST}) {
+                            List<String> actual = simulate(daxPath, vmNum, algorithm, rate, update);
+                            if (!actual.equals(expected)) {
+                                throw new IllegalStateException(name + ": the jobs run as " + actual
+                                        + " when " + update + " instead of " + expected);
+                            }
+                        }
+                        simulations += 3;
+                    }
+                }
+            }
+        }
+        Log.printLine("WorkflowDatacenterCheck: ok, " + simulations + " simulations");
+    }
+
+    /**
+     * Simulates a workflow in a simulation context of its own, with the log
+     * disabled
+     *
+     * @return the id, vm, status, start and finish times of the jobs, in the
+     * order they came back
+     */
+    private static List<String> simulate(String daxPath, int vmNum, SchedulingAlgorithm algorithm,
+            double failureRate, Update update) throws Exception {
+        boolean disabled = Log.isDisabled();
+        Log.disable();
+        CloudSim.setContext(new SimulationContext());
+        try {
+            RandomStreams.setSeed(1);
+            if (failureRate > 0) {
+                DistributionGenerator[][] failureGenerators = new DistributionGenerator[1][1];
+                failureGenerators[0][0] = new DistributionGenerator(DistributionGenerator.DistributionFamily.WEIBULL,
+                        1.0 / failureRate, 1.0);
+                FailureParameters.init(FailureParameters.FTCluteringAlgorithm.FTCLUSTERING_NOOP,
+                        FailureParameters.FTCMonitor.MONITOR_ALL, FailureParameters.FTCFailure.FAILURE_ALL,
+                        failureGenerators);
+            }
+            OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);
+            ClusteringParameters cp = new ClusteringParameters(0, 0, ClusteringParameters.ClusteringMethod.NONE, null);
+            Parameters.init(vmNum, daxPath, null, null, op, cp, algorithm, Parameters.PlanningAlgorithm.INVALID,
+                    null, 0);
+            ReplicaCatalog.init(ReplicaCatalog.FileSystem.SHARED);
+            FailureMonitor.init();
+            FailureGenerator.init();
+            CloudSim.init(1, Calendar.getInstance(), false);
+
+            WorkflowDatacenter datacenter = createDatacenter("Datacenter_0", update == Update.BY_HOST);
+            WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+            WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+            List<CondorVM> vmList = new ArrayList<>();
+            for (int i = 0; i < vmNum; i++) {
+                CloudletScheduler scheduler = new CloudletSchedulerSpaceShared();
+                //vms of different speeds, so that the algorithms choose between them
+                double mips = 1000 * (1 + i % 3);
+                vmList.add(update == Update.EVERY_VM
+                        ? new UpdatedVm(i, wfEngine.getSchedulerId(0), mips, scheduler)
+                        : new CondorVM(i, wfEngine.getSchedulerId(0), mips, 1, 512, 1000, 10000, "Xen", scheduler));
+            }
+            wfEngine.submitVmList(vmList, 0);
+            wfEngine.bindSchedulerDatacenter(datacenter.getId(), 0);
+
+            double makespan = CloudSim.startSimulation();
+            List<Job> jobList = wfEngine.getJobsReceivedList();
+            CloudSim.stopSimulation();
+
+            List<String> jobs = new ArrayList<>();
+            for (Job job : jobList) {
+                jobs.add(job.getCloudletId() + " on vm " + job.getVmId() + ": " + job.getCloudletStatusString()
+                        + " from " + job.getExecStartTime() + " to " + job.getFinishTime());
+            }
+            jobs.add("makespan " + makespan);
+            return jobs;
+        } finally {
+            CloudSim.setContext(null);
+            Log.setDisabled(disabled);
+        }
+    }
+
+    /**
+     * Creates a datacenter of 20 hosts of 4 pes
+     *
+     * @param name the name of the datacenter
+     * @param byHost whether the hosts override the update of their vms
+     * @return the datacenter
+     * @throws Exception
+     */
+    private static WorkflowDatacenter createDatacenter(String name, boolean byHost) throws Exception {
+        List<Host> hostList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<Pe> peList = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                peList.add(new Pe(j, new PeProvisionerSimple(3000)));
+            }
+            RamProvisionerSimple ram = new RamProvisionerSimple(2048);
+            BwProvisionerSimple bw = new BwProvisionerSimple(10000);
+            VmScheduler vmScheduler = new VmSchedulerTimeShared(peList);
+            hostList.add(byHost ? new UpdatingHost(i, ram, bw, peList, vmScheduler)
+                    : new Host(i, ram, bw, 1000000, peList, vmScheduler));
+        }
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
+                "x86", "Linux", "Xen", hostList, 10.0, 3.0, 0.05, 0.1, 0.1);
+        LinkedList<Storage> storageList = new LinkedList<>();
+        HarddriveStorage storage = new HarddriveStorage(name, 1e12);
+        storage.setMaxTransferRate(15);
+        storageList.add(storage);
+        return new WorkflowDatacenter(name, characteristics, new VmAllocationPolicySimple(hostList),
+                storageList, 0);
+    }
+
+    /**
+     * A vm that overrides its update, which WorkflowDatacenter then never
+     * skips
+     */
+    private static final class UpdatedVm extends CondorVM {
+
+        private UpdatedVm(int id, int userId, double mips, CloudletScheduler scheduler) {
+            super(id, userId, mips, 1, 512, 1000, 10000, "Xen", scheduler);
+        }
+
+        @Override
+        public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+            return super.updateVmProcessing(currentTime, mipsShare);
+        }
+    }
+
+    /**
+     * A host that overrides the update of its vms, which WorkflowDatacenter
+     * then leaves to the host
+     */
+    private static final class UpdatingHost extends Host {
+
+        private UpdatingHost(int id, RamProvisionerSimple ram, BwProvisionerSimple bw, List<Pe> peList,
+                VmScheduler vmScheduler) {
+            super(id, ram, bw, 1000000, peList, vmScheduler);
+        }
+
+        @Override
+        public double updateVmsProcessing(double currentTime) {
+            return super.updateVmsProcessing(currentTime);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.workflowsim.utils.ClusteringParameters;
+import org.workflowsim.utils.OverheadParameters;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.Parameters.SchedulingAlgorithm;
+import org.workflowsim.utils.ReplicaCatalog;
+
+/**
+ * Checks the scheduling rounds of WorkflowScheduler. Workflows are simulated
+ * with each built-in scheduling algorithm, with one round per update and
+ * with the updates merged at the same time or within an interval, and each
+ * time once with a new algorithm instance per round and once with the same
+ * instance in every round. Reusing the instance must change no decision:
+ * both simulations must run every job on the same vm at the same times.
+ * Whatever the interval, the same jobs must come back, each one must succeed
+ * once, start after all its parents have finished and have its vm to itself,
+ * and merging must save rounds only when it is enabled.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class WorkflowSchedulerCheck {
+
+    private static final String[] DAX_PATHS = {"config/dax/Montage_50.xml",
+        "config/dax/Inspiral_50.xml", "config/dax/Sipht_60.xml"};
+
+    private static final int[] VM_NUMS = {4, 20};
+
+    private static final SchedulingAlgorithm[] ALGORITHMS = {SchedulingAlgorithm.MINMIN,
+        SchedulingAlgorithm.MAXMIN, SchedulingAlgorithm.MCT, SchedulingAlgorithm.DATA,
+        SchedulingAlgorithm.FCFS, SchedulingAlgorithm.ROUNDROBIN};
+
+    /**
+     * One round per update, merged at the same time, merged within 5 seconds
+     */
+    private static final double[] UPDATE_INTERVALS = {-1, 0, 5};
+
+    public static void main(String[] args) throws Exception {
+        int simulations = 0;
+        int savedRounds = 0;
+        for (String daxPath : DAX_PATHS) {
+            for (int vmNum : VM_NUMS) {
+                for (SchedulingAlgorithm algorithm : ALGORITHMS) {
+                    int jobNum = -1;
+                    for (double interval : UPDATE_INTERVALS) {
+                        String name = daxPath + " on " + vmNum + " vms with " + algorithm
+                                + " and update interval " + interval;
+                        Simulation created = new Simulation(name, daxPath, vmNum, algorithm, interval, false);
+                        Simulation reused = new Simulation(name, daxPath, vmNum, algorithm, interval, true);
+                        if (!reused.jobs.equals(created.jobs)) {
+                            throw new IllegalStateException(name + ": the jobs run as " + reused.jobs
+                                    + " with a reused algorithm instead of " + created.jobs);
+                        }
+                        if (jobNum >= 0 && created.jobs.size() != jobNum) {
+                            throw new IllegalStateException(name + ": " + created.jobs.size() + " jobs came back"
+                                    + " instead of " + jobNum);
+                        }
+                        jobNum = created.jobs.size();
+                        if (interval < 0 ? created.savedRounds != 0 : created.rounds == 0) {
+                            throw new IllegalStateException(name + ": " + created.rounds + " rounds run and "
+                                    + created.savedRounds + " saved");
+                        }
+                        savedRounds += created.savedRounds;
+                        simulations += 2;
+                    }
+                }
+            }
+        }
+        if (savedRounds == 0) {
+            throw new IllegalStateException("No round was saved by merging updates");
+        }
+        Log.printLine("WorkflowSchedulerCheck: ok, " + simulations + " simulations, "
+                + savedRounds + " rounds saved by merging updates");
+    }
+
+    /**
+     * The simulation of a workflow, in a simulation context of its own and
+     * with the log disabled
+     */
+    private static final class Simulation {
+
+        /**
+         * The vm, start and finish times of each job, in the order the jobs
+         * came back
+         */
+        private final List<String> jobs = new ArrayList<>();
+        private final int rounds;
+        private final int savedRounds;
+
+        private Simulation(String name, String daxPath, int vmNum, SchedulingAlgorithm algorithm,
+                double interval, boolean reused) throws Exception {
+            boolean disabled = Log.isDisabled();
+            Log.disable();
+            CloudSim.setContext(new SimulationContext());
+            try {
+                OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);
+                ClusteringParameters cp = new ClusteringParameters(0, 0,
+                        ClusteringParameters.ClusteringMethod.NONE, null);
+                Parameters.init(vmNum, daxPath, null, null, op, cp, algorithm,
+                        Parameters.PlanningAlgorithm.INVALID, null, 0);
+                Parameters.setUpdateInterval(interval);
+                Parameters.setSchedulerReused(reused);
+                ReplicaCatalog.init(ReplicaCatalog.FileSystem.LOCAL);
+                CloudSim.init(1, Calendar.getInstance(), false);
+
+                WorkflowDatacenter datacenter = createDatacenter("Datacenter_0");
+                WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+                WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+                List<CondorVM> vmList = new ArrayList<>();
+                for (int i = 0; i < vmNum; i++) {
+                    //vms of different speeds, so that the algorithms choose between them
+                    vmList.add(new CondorVM(i, wfEngine.getSchedulerId(0), 1000 + 500 * (i % 4), 1, 512, 1000,
+                            10000, "Xen", new CloudletSchedulerSpaceShared()));
+                }
+                wfEngine.submitVmList(vmList, 0);
+                wfEngine.bindSchedulerDatacenter(datacenter.getId(), 0);
+
+                CloudSim.startSimulation();
+                List<Job> jobList = wfEngine.getJobsReceivedList();
+                CloudSim.stopSimulation();
+                WorkflowScheduler scheduler = wfEngine.getSchedulers().get(0);
+                rounds = scheduler.getRounds();
+                savedRounds = scheduler.getSavedRounds();
+
+                check(name, jobList);
+                for (Job job : jobList) {
+                    jobs.add(job.getCloudletId() + " on vm " + job.getVmId() + " from " + job.getExecStartTime()
+                            + " to " + job.getFinishTime());
+                }
+            } finally {
+                CloudSim.setContext(null);
+                Log.setDisabled(disabled);
+            }
+        }
+    }
+
+    /**
+     * Stops the check if a job failed or ran twice, ran before one of its
+     * parents finished or shared its vm
+     *
+     * @param name the name of the simulation
+     * @param jobList the jobs that came back
+     */
+    private static void check(String name, List<Job> jobList) {
+        Map<Integer, Job> mId2Job = new HashMap<>();
+        Map<Integer, Job> mVm2LastJob = new HashMap<>();
+        for (Job job : jobList) {
+            if (job.getCloudletStatus() != Cloudlet.SUCCESS || mId2Job.put(job.getCloudletId(), job) != null) {
+                throw new IllegalStateException(name + ": job " + job.getCloudletId() + " ran twice or "
+                        + job.getCloudletStatusString());
+            }
+            for (Object parent : job.getParentList()) {
+                Job parentJob = (Job) parent;
+                if (job.getExecStartTime() < parentJob.getFinishTime()) {
+                    throw new IllegalStateException(name + ": job " + job.getCloudletId() + " started at "
+                            + job.getExecStartTime() + " before job " + parentJob.getCloudletId()
+                            + " finished at " + parentJob.getFinishTime());
+                }
+            }
+        }
+        //the jobs come back in the order they finish
+        for (Job job : jobList) {
+            Job previous = mVm2LastJob.put(job.getVmId(), job);
+            if (previous != null && job.getExecStartTime() < previous.getFinishTime()) {
+                throw new IllegalStateException(name + ": jobs " + previous.getCloudletId() + " and "
+                        + job.getCloudletId() + " ran at the same time on vm " + job.getVmId());
+            }
+        }
+    }
+
+    /**
+     * Creates a datacenter of 10 hosts of 2 pes
+     *
+     * @param name the name of the datacenter
+     * @return the datacenter
+     * @throws Exception
+     */
+    private static WorkflowDatacenter createDatacenter(String name) throws Exception {
+        List<Host> hostList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<Pe> peList = new ArrayList<>();
+            peList.add(new Pe(0, new PeProvisionerSimple(2500)));
+            peList.add(new Pe(1, new PeProvisionerSimple(2500)));
+            hostList.add(new Host(i, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 1000000,
+                    peList, new VmSchedulerTimeShared(peList)));
+        }
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
+                "x86", "Linux", "Xen", hostList, 10.0, 3.0, 0.05, 0.1, 0.1);
+        LinkedList<Storage> storageList = new LinkedList<>();
+        HarddriveStorage storage = new HarddriveStorage(name, 1e12);
+        storage.setMaxTransferRate(15);
+        storageList.add(storage);
+        return new WorkflowDatacenter(name, characteristics, new VmAllocationPolicySimple(hostList),
+                storageList, 0);
+    }
+}
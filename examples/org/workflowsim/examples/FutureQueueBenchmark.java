@@ -0,0 +1,187 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.examples;
+
+import java.io.File;
+import java.util.Calendar;
+import java.util.List;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.FutureQueueCalendar;
+import org.cloudbus.cloudsim.core.FutureQueueHeap;
+import org.cloudbus.cloudsim.core.FutureQueueLadder;
+import org.cloudbus.cloudsim.core.FutureQueueSimple;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.workflowsim.CondorVM;
+import org.workflowsim.WorkflowDatacenter;
+import org.workflowsim.WorkflowEngine;
+import org.workflowsim.WorkflowPlanner;
+import org.workflowsim.utils.ClusteringParameters;
+import org.workflowsim.utils.OverheadParameters;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.ReplicaCatalog;
+
+/**
+ * This benchmark runs the same workflow with each future event queue of
+ * CloudSim and prints how many events per second each of them processes. The
+ * workflow is CyberShake_1000 by default, use -d to run another DAX and -r to
+ * change the number of runs per queue.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class FutureQueueBenchmark extends WorkflowSimBasicExample1 {
+
+    /**
+     * The names of the queues, in the order of createQueue(int, long[]).
+     */
+    private static final String[] QUEUES = {"TreeSet", "BinaryHeap", "4-aryHeap", "Calendar", "Ladder"};
+
+    /**
+     * Creates a future event queue that counts the events it hands out.
+     *
+     * @param index the index of the queue in QUEUES
+     * @param counter the counter of processed events
+     * @return the queue
+     */
+    private static FutureQueue createQueue(int index, final long[] counter) {
+        switch (index) {
+            case 0:
+                return new FutureQueueSimple() {
+                    @Override
+                    public SimEvent poll() {
+                        counter[0]++;
+                        return super.poll();
+                    }
+                };
+            case 1:
+                return new FutureQueueHeap(2) {
+                    @Override
+                    public SimEvent poll() {
+                        counter[0]++;
+                        return super.poll();
+                    }
+                };
+            case 2:
+                return new FutureQueueHeap(4) {
+                    @Override
+                    public SimEvent poll() {
+                        counter[0]++;
+                        return super.poll();
+                    }
+                };
+            case 3:
+                return new FutureQueueCalendar() {
+                    @Override
+                    public SimEvent poll() {
+                        counter[0]++;
+                        return super.poll();
+                    }
+                };
+            default:
+                return new FutureQueueLadder() {
+                    @Override
+                    public SimEvent poll() {
+                        counter[0]++;
+                        return super.poll();
+                    }
+                };
+        }
+    }
+
+    /**
+     * Runs the workflow once with a future event queue.
+     *
+     * @param daxPath the DAX file
+     * @param queue the future event queue
+     * @return the makespan
+     */
+    private static double runOnce(String daxPath, FutureQueue queue) throws Exception {
+        int vmNum = 20;
+        OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);
+        ClusteringParameters cp = new ClusteringParameters(0, 0, ClusteringParameters.ClusteringMethod.NONE, null);
+        Parameters.init(vmNum, daxPath, null,
+                null, op, cp, Parameters.SchedulingAlgorithm.MINMIN, Parameters.PlanningAlgorithm.INVALID,
+                null, 0);
+        ReplicaCatalog.init(ReplicaCatalog.FileSystem.SHARED);
+
+        CloudSim.init(1, Calendar.getInstance(), false, queue);
+
+        WorkflowDatacenter datacenter0 = createDatacenter("Datacenter_0");
+        WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+        WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+        List<CondorVM> vmlist0 = createVM(wfEngine.getSchedulerId(0), Parameters.getVmNum());
+        wfEngine.submitVmList(vmlist0, 0);
+        wfEngine.bindSchedulerDatacenter(datacenter0.getId(), 0);
+
+        double makespan = CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+        return makespan;
+    }
+
+    public static void main(String[] args) {
+        String daxPath = "/Users/weiweich/NetBeansProjects/WorkflowSim-1.0/config/dax/CyberShake_1000.xml";
+        int runs = 3;
+        for (int i = 0; i < args.length; i++) {
+            char key = args[i].charAt(1);
+            switch (key) {
+                case 'd':
+                    daxPath = args[++i];
+                    break;
+                case 'r':
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+            }
+        }
+        File daxFile = new File(daxPath);
+        if (!daxFile.exists()) {
+            Log.printLine("Warning: Please replace daxPath with the physical path in your working environment!");
+            return;
+        }
+
+        try {
+            // warm up the JIT so that the first queue is not penalized
+            Log.disable();
+            runOnce(daxPath, createQueue(0, new long[1]));
+            Log.enable();
+
+            Log.printLine("Queue" + "\t\t" + "Events" + "\t" + "Seconds" + "\t" + "Events/s" + "\t" + "Makespan");
+            for (int q = 0; q < QUEUES.length; q++) {
+                long events = 0;
+                long nanos = 0;
+                double makespan = 0.0;
+                for (int r = 0; r < runs; r++) {
+                    long[] counter = new long[1];
+                    FutureQueue queue = createQueue(q, counter);
+                    Log.disable();
+                    long start = System.nanoTime();
+                    makespan = runOnce(daxPath, queue);
+                    nanos += System.nanoTime() - start;
+                    Log.enable();
+                    events += counter[0];
+                }
+                double seconds = nanos / 1e9;
+                Log.printLine(QUEUES[q] + "\t" + (QUEUES[q].length() < 8 ? "\t" : "")
+                        + events / runs + "\t" + String.format("%.3f", seconds / runs) + "\t"
+                        + String.format("%.0f", events / seconds) + "\t\t" + makespan);
+            }
+        } catch (Exception e) {
+            Log.enable();
+            Log.printLine("The simulation has been terminated due to an unexpected error");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.examples;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.List;
+import org.cloudbus.cloudsim.Log;
+import org.workflowsim.CondorVM;
+import org.workflowsim.WorkflowDatacenter;
+import org.workflowsim.utils.ClusteringParameters;
+import org.workflowsim.utils.ParameterSweep;
+import org.workflowsim.utils.Parameters;
+
+/**
+ * This WorkflowSimExample simulates Montage_100 and Montage_1000 with several
+ * numbers of vms, scheduling algorithms, clustering parameters and failure
+ * rates. The simulations run in parallel, one per processor by default, and
+ * their results are written to sweep.csv. Use -o to change the CSV file and -p
+ * to change the number of parallel simulations.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class ParameterSweepExample1 extends WorkflowSimBasicExample1 {
+
+    /**
+     * Creates main() to run this example
+     */
+    public static void main(String[] args) {
+        String csvPath = "sweep.csv";
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-o")) {
+                csvPath = args[i + 1];
+            } else if (args[i].equals("-p")) {
+                parallelism = Integer.parseInt(args[i + 1]);
+            }
+        }
+        try {
+            /**
+             * Should change this based on real physical path
+             */
+            String daxDir = "/Users/weiweich/NetBeansProjects/WorkflowSim-1.0/config/dax/";
+            if (!new File(daxDir).exists()) {
+                Log.printLine("Warning: Please replace daxDir with the physical path in your working environment!");
+                return;
+            }
+
+            ParameterSweep sweep = new ParameterSweep() {
+                @Override
+                protected WorkflowDatacenter createDatacenter(String name) {
+                    return WorkflowSimBasicExample1.createDatacenter(name);
+                }
+
+                @Override
+                protected List<CondorVM> createVmList(int userId, int vmNum) {
+                    return createVM(userId, vmNum);
+                }
+            };
+            sweep.setDaxPaths(daxDir + "Montage_100.xml", daxDir + "Montage_1000.xml");
+            sweep.setVmNums(10, 20);
+            sweep.setSchedulingAlgorithms(Parameters.SchedulingAlgorithm.MINMIN,
+                    Parameters.SchedulingAlgorithm.MAXMIN, Parameters.SchedulingAlgorithm.FCFS);
+            /**
+             * No clustering, and horizontal clustering into 20 jobs per level
+             */
+            sweep.setClusteringParameters(
+                    new ClusteringParameters(0, 0, ClusteringParameters.ClusteringMethod.NONE, null),
+                    new ClusteringParameters(20, 0, ClusteringParameters.ClusteringMethod.HORIZONTAL, null));
+            /**
+             * No failure, and one failure every 1000 seconds on average
+             */
+            sweep.setFailureRates(0.0, 0.001);
+            /**
+             * Two replications of each point, with the failures drawn from
+             * different seeds
+             */
+            sweep.setSeeds(1, 2);
+
+            Log.printLine("Running " + sweep.getConfigurations().size() + " simulations, "
+                    + parallelism + " at a time");
+            long start = System.currentTimeMillis();
+            try (Writer out = new FileWriter(csvPath)) {
+                sweep.run(out, parallelism);
+            }
+            Log.printLine("Results written to " + csvPath + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("The simulation has been terminated due to an unexpected error");
+        }
+    }
+}
@@ -17,7 +17,18 @@
  */
 package org.workflowsim.examples.failure.clustering;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.workflowsim.WorkflowGraphCache;
+import org.workflowsim.utils.OnlineStatistics;
+import org.workflowsim.utils.ReplicationRunner;
+
 /**
+ * ParameterSweep searches the queue delay and failure parameters of
+ * FaultTolerantClusteringExample5. The replications of each point run in
+ * parallel, and each point is written as soon as it is done: the parameters,
+ * the mean makespan, the half-width of its 95% confidence interval and the
+ * number of replications.
  *
  * @author chenweiwei
  */
@@ -30,20 +41,35 @@ public class ParameterSweep {
         }
 
         String clustering = "DR";
+        /**
+         * Up to 100 replications per point, fewer once the 95% confidence
+         * interval of the makespan is within 1% of its mean.
+         */
+        ReplicationRunner runner = new ReplicationRunner(Runtime.getRuntime().availableProcessors());
+        runner.setMaxReplications(100);
+        runner.setTargetRelativeHalfWidth(0.01);
+        //the DAX file is parsed once for all replications
+        WorkflowGraphCache cache = new WorkflowGraphCache();
         //Search for best
-        String result = "";
-        for (double q_scale = 10; q_scale <= 100; q_scale += 10) {
-            for (double q_weight = 10; q_weight <= 10e4; q_weight *= 10) {
-                for (double q_shape = 2; q_shape <= 10; q_shape += 2) {
-                    for (double theta_weight = 10; theta_weight <= 10e4; theta_weight *= 10) {
-                        double makespan = execute100(p, q_scale, q_weight, q_shape, theta_weight, clustering);
-                        result += q_scale + " " + q_weight + " " + q_shape + " " + theta_weight + " " + makespan;
-                        result += "\n";
+        try {
+            Writer out = new OutputStreamWriter(System.out);
+            for (double q_scale = 10; q_scale <= 100; q_scale += 10) {
+                for (double q_weight = 10; q_weight <= 10e4; q_weight *= 10) {
+                    for (double q_shape = 2; q_shape <= 10; q_shape += 2) {
+                        for (double theta_weight = 10; theta_weight <= 10e4; theta_weight *= 10) {
+                            OnlineStatistics makespan = executeReplications(runner, cache, p, q_scale, q_weight,
+                                    q_shape, theta_weight, clustering);
+                            out.write(q_scale + " " + q_weight + " " + q_shape + " " + theta_weight + " "
+                                    + makespan.getMean() + " " + makespan.getHalfWidth(0.95) + " "
+                                    + makespan.getCount() + "\n");
+                            out.flush();
+                        }
                     }
                 }
             }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-        System.out.println(result);
     }
 
     public static double execute(String p, double q_scale, double q_weight, double q_shape,
@@ -60,14 +86,19 @@ public class ParameterSweep {
         return FaultTolerantClusteringExample5.main2(args);
     }
 
-    public static double execute100(String p, double q_scale, double q_weight, double q_shape,
-            double theta_weight, String clustering) {
-        double sum = 0.0;
-        int n = 100;
-        for (int i = 0; i < n; i++) {
-            sum += execute(p, q_scale, q_weight, q_shape, theta_weight, clustering);
-        }
-        sum /= n;
-        return sum;
+    /**
+     * Runs the replications of a point until the runner stops them, which is
+     * after at most its maximum number of replications
+     */
+    public static OnlineStatistics executeReplications(ReplicationRunner runner, final WorkflowGraphCache cache,
+            final String p, final double q_scale, final double q_weight, final double q_shape,
+            final double theta_weight, final String clustering) throws Exception {
+        return runner.run(new ReplicationRunner.Replication() {
+            @Override
+            public double run(int index) {
+                WorkflowGraphCache.setCache(cache);
+                return execute(p, q_scale, q_weight, q_shape, theta_weight, clustering);
+            }
+        }, null);
     }
 }
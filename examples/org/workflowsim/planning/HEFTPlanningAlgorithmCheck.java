@@ -0,0 +1,293 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.planning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.Log;
+import org.workflowsim.CondorVM;
+import org.workflowsim.FileItem;
+import org.workflowsim.Task;
+import org.workflowsim.utils.Parameters;
+
+/**
+ * Checks HEFTPlanningAlgorithm against the straightforward HEFT it replaces,
+ * which keeps its costs in maps and scans the whole schedule of a vm for a
+ * gap, with its ties broken in list order as HEFTPlanningAlgorithm now does.
+ * Random workflows, listed in random order, are planned on random vms, with
+ * few distinct lengths, file sizes and speeds so that ranks and finish times
+ * often tie. Both planners must put every task on the same vm. All tasks
+ * fit on all vms: a task that does not fit on a vm has an infinite rank, and
+ * so do its ancestors, which may then be planned after their children.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class HEFTPlanningAlgorithmCheck {
+
+    private static final int RUNS = 3000;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        boolean disabled = Log.isDisabled();
+        Log.disable();
+        for (int run = 0; run < RUNS; run++) {
+            check(random.nextLong());
+        }
+        Log.setDisabled(disabled);
+        Log.printLine("HEFTPlanningAlgorithmCheck: ok, " + RUNS + " random workflows");
+    }
+
+    /**
+     * Plans a random workflow with both planners
+     *
+     * @param seed the seed of the workflow and of the vms
+     */
+    private static void check(long seed) {
+        Random random = new Random(seed);
+        int taskNum = 1 + random.nextInt(random.nextBoolean() ? 8 : 80);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < taskNum; i++) {
+            Task task = new Task(i, 1000 * (1 + random.nextInt(4)));
+            FileItem output = new FileItem("f" + i, 1e6 * random.nextInt(4));
+            output.setType(Parameters.FileType.OUTPUT);
+            task.addFile(output);
+            tasks.add(task);
+        }
+        double density = random.nextDouble() * 0.3;
+        for (int i = 0; i < taskNum; i++) {
+            for (int j = i + 1; j < taskNum; j++) {
+                if (random.nextDouble() < density) {
+                    Task parent = tasks.get(i);
+                    Task child = tasks.get(j);
+                    parent.addChild(child);
+                    child.addParent(parent);
+                    if (random.nextBoolean()) {
+                        FileItem input = new FileItem("f" + i, parent.getFileList().get(0).getSize());
+                        input.setType(Parameters.FileType.INPUT);
+                        child.addFile(input);
+                    }
+                }
+            }
+        }
+        Collections.shuffle(tasks, random);
+
+        int vmNum = 1 + random.nextInt(8);
+        List<CondorVM> vms = new ArrayList<>();
+        for (int j = 0; j < vmNum; j++) {
+            vms.add(new CondorVM(j, 0, 500 * (1 + random.nextInt(3)), 1, 512,
+                    100 * (1 + random.nextInt(3)), 10000, "Xen", new CloudletSchedulerSpaceShared()));
+        }
+
+        new Reference(tasks, vms).run();
+        int[] expected = new int[taskNum];
+        for (Task task : tasks) {
+            expected[task.getCloudletId()] = task.getVmId();
+        }
+        HEFTPlanningAlgorithm heft = new HEFTPlanningAlgorithm();
+        heft.setTaskList(tasks);
+        heft.setVmList(vms);
+        heft.run();
+        for (Task task : tasks) {
+            if (task.getVmId() != expected[task.getCloudletId()]) {
+                throw new IllegalStateException("Task " + task.getCloudletId() + " of workflow " + seed
+                        + " went to vm " + task.getVmId() + " instead of vm " + expected[task.getCloudletId()]);
+            }
+        }
+    }
+
+    /**
+     * The HEFT planner up to WorkflowSim Toolkit 1.0, with identity maps and
+     * ties broken in list order
+     */
+    private static final class Reference {
+
+        private final List<Task> tasks;
+        private final List<CondorVM> vms;
+        private final Map<Task, Double> rank = new IdentityHashMap<>();
+        private final Map<Task, Double> earliestFinishTimes = new IdentityHashMap<>();
+        private final Map<CondorVM, List<double[]>> schedules = new IdentityHashMap<>();
+        private double averageBandwidth;
+
+        private Reference(List<Task> tasks, List<CondorVM> vms) {
+            this.tasks = tasks;
+            this.vms = vms;
+        }
+
+        private void run() {
+            for (CondorVM vm : vms) {
+                averageBandwidth += vm.getBw();
+                schedules.put(vm, new ArrayList<double[]>());
+            }
+            averageBandwidth /= vms.size();
+            for (Task task : tasks) {
+                calculateRank(task);
+            }
+            List<Task> order = new ArrayList<>(tasks);
+            //a stable sort: tasks of the same rank stay in list order
+            Collections.sort(order, new Comparator<Task>() {
+                @Override
+                public int compare(Task t1, Task t2) {
+                    return rank.get(t2).compareTo(rank.get(t1));
+                }
+            });
+            for (Task task : order) {
+                allocateTask(task);
+            }
+        }
+
+        private double computationCost(Task task, CondorVM vm) {
+            if (vm.getNumberOfPes() < task.getNumberOfPes()) {
+                return Double.MAX_VALUE;
+            }
+            return task.getCloudletTotalLength() / vm.getMips();
+        }
+
+        private double transferCost(Task parent, Task child) {
+            double acc = 0.0;
+            for (FileItem parentFile : parent.getFileList()) {
+                if (parentFile.getType() != Parameters.FileType.OUTPUT) {
+                    continue;
+                }
+                for (FileItem childFile : child.getFileList()) {
+                    if (childFile.getType() == Parameters.FileType.INPUT
+                            && childFile.getName().equals(parentFile.getName())) {
+                        acc += childFile.getSize();
+                        break;
+                    }
+                }
+            }
+            acc = acc / Consts.MILLION;
+            return acc * 8 / averageBandwidth;
+        }
+
+        private double calculateRank(Task task) {
+            if (rank.containsKey(task)) {
+                return rank.get(task);
+            }
+            double averageComputationCost = 0.0;
+            for (CondorVM vm : vms) {
+                averageComputationCost += computationCost(task, vm);
+            }
+            averageComputationCost /= vms.size();
+            double max = 0.0;
+            for (Task child : task.getChildList()) {
+                max = Math.max(max, transferCost(task, child) + calculateRank(child));
+            }
+            rank.put(task, averageComputationCost + max);
+            return rank.get(task);
+        }
+
+        private void allocateTask(Task task) {
+            CondorVM chosenVM = null;
+            double earliestFinishTime = Double.MAX_VALUE;
+            double bestReadyTime = 0.0;
+            for (CondorVM vm : vms) {
+                double minReadyTime = 0.0;
+                for (Task parent : task.getParentList()) {
+                    double readyTime = earliestFinishTimes.get(parent);
+                    if (parent.getVmId() != vm.getId()) {
+                        readyTime += transferCost(parent, task);
+                    }
+                    minReadyTime = Math.max(minReadyTime, readyTime);
+                }
+                double finishTime = findFinishTime(task, vm, minReadyTime, false);
+                if (finishTime < earliestFinishTime) {
+                    bestReadyTime = minReadyTime;
+                    earliestFinishTime = finishTime;
+                    chosenVM = vm;
+                }
+            }
+            findFinishTime(task, chosenVM, bestReadyTime, true);
+            earliestFinishTimes.put(task, earliestFinishTime);
+            task.setVmId(chosenVM.getId());
+        }
+
+        /**
+         * Finds the slot of a task in the schedule of a vm, each slot being
+         * its start and finish times
+         */
+        private double findFinishTime(Task task, CondorVM vm, double readyTime, boolean occupySlot) {
+            List<double[]> sched = schedules.get(vm);
+            double computationCost = computationCost(task, vm);
+            double start;
+            double finish;
+            int pos;
+            if (sched.isEmpty()) {
+                if (occupySlot) {
+                    sched.add(new double[]{readyTime, readyTime + computationCost});
+                }
+                return readyTime + computationCost;
+            }
+            if (sched.size() == 1) {
+                if (readyTime >= sched.get(0)[1]) {
+                    pos = 1;
+                    start = readyTime;
+                } else if (readyTime + computationCost <= sched.get(0)[0]) {
+                    pos = 0;
+                    start = readyTime;
+                } else {
+                    pos = 1;
+                    start = sched.get(0)[1];
+                }
+                if (occupySlot) {
+                    sched.add(pos, new double[]{start, start + computationCost});
+                }
+                return start + computationCost;
+            }
+            start = Math.max(readyTime, sched.get(sched.size() - 1)[1]);
+            finish = start + computationCost;
+            int i = sched.size() - 1;
+            int j = sched.size() - 2;
+            pos = i + 1;
+            while (j >= 0) {
+                double[] current = sched.get(i);
+                double[] previous = sched.get(j);
+                if (readyTime > previous[1]) {
+                    if (readyTime + computationCost <= current[0]) {
+                        start = readyTime;
+                        finish = readyTime + computationCost;
+                    }
+                    break;
+                }
+                if (previous[1] + computationCost <= current[0]) {
+                    start = previous[1];
+                    finish = previous[1] + computationCost;
+                    pos = i;
+                }
+                i--;
+                j--;
+            }
+            if (readyTime + computationCost <= sched.get(0)[0]) {
+                if (occupySlot) {
+                    sched.add(0, new double[]{readyTime, readyTime + computationCost});
+                }
+                return readyTime + computationCost;
+            }
+            if (occupySlot) {
+                sched.add(pos, new double[]{start, finish});
+            }
+            return finish;
+        }
+    }
+}
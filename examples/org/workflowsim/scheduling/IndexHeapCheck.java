@@ -0,0 +1,131 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.workflowsim.CondorVM;
+import org.workflowsim.WorkflowSimTags;
+
+/**
+ * Checks IndexHeap against the linear scans it replaces in MinMin, MaxMin and
+ * MCT. On random lists with many ties, the heaps must hand out the same
+ * indexes, in the same order, as repeatedly scanning the remaining elements
+ * for the shortest or longest job and for the fastest idle vm, the first one
+ * in the list winning ties.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class IndexHeapCheck {
+
+    private static final int RUNS = 2000;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        UtilizationModelFull full = new UtilizationModelFull();
+        for (int run = 0; run < RUNS; run++) {
+            int num = random.nextInt(200);
+            int range = 1 + random.nextInt(run % 2 == 0 ? 10 : 100000);
+
+            List<Cloudlet> cloudletList = new ArrayList<>();
+            for (int i = 0; i < num; i++) {
+                cloudletList.add(new Cloudlet(i, 1 + random.nextInt(range), 1, 0, 0, full, full, full));
+            }
+            check("shortest job", IndexHeap.byLength(cloudletList, false), scanByLength(cloudletList, false));
+            check("longest job", IndexHeap.byLength(cloudletList, true), scanByLength(cloudletList, true));
+
+            List<CondorVM> vmList = new ArrayList<>();
+            for (int i = 0; i < num; i++) {
+                CondorVM vm = new CondorVM(i, 0, 100 * (1 + random.nextInt(range)), 1 + random.nextInt(2),
+                        512, 1000, 10000, "Xen", new CloudletSchedulerSpaceShared());
+                if (random.nextInt(4) == 0) {
+                    vm.setState(WorkflowSimTags.VM_STATUS_BUSY);
+                }
+                vmList.add(vm);
+            }
+            check("fastest idle vm", IndexHeap.idleVmsByMips(vmList), scanIdleVmsByMips(vmList));
+        }
+        Log.printLine("IndexHeapCheck: ok, " + RUNS + " random lists");
+    }
+
+    /**
+     * Orders the jobs by repeatedly scanning the remaining ones
+     */
+    private static List<Integer> scanByLength(List<Cloudlet> cloudletList, boolean longestFirst) {
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < cloudletList.size(); i++) {
+            remaining.add(i);
+        }
+        List<Integer> order = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            for (int j = 1; j < remaining.size(); j++) {
+                long length = cloudletList.get(remaining.get(j)).getCloudletLength();
+                long bestLength = cloudletList.get(remaining.get(best)).getCloudletLength();
+                if (longestFirst ? length > bestLength : length < bestLength) {
+                    best = j;
+                }
+            }
+            order.add(remaining.remove(best));
+        }
+        return order;
+    }
+
+    /**
+     * Orders the idle vms by repeatedly scanning the remaining ones
+     */
+    private static List<Integer> scanIdleVmsByMips(List<CondorVM> vmList) {
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < vmList.size(); i++) {
+            if (vmList.get(i).getState() == WorkflowSimTags.VM_STATUS_IDLE) {
+                remaining.add(i);
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            for (int j = 1; j < remaining.size(); j++) {
+                if (vmList.get(remaining.get(j)).getCurrentRequestedTotalMips()
+                        > vmList.get(remaining.get(best)).getCurrentRequestedTotalMips()) {
+                    best = j;
+                }
+            }
+            order.add(remaining.remove(best));
+        }
+        return order;
+    }
+
+    /**
+     * Stops the check if a heap does not hand out the expected indexes
+     */
+    private static void check(String name, IndexHeap heap, List<Integer> expected) {
+        for (int index : expected) {
+            if (heap.isEmpty() || heap.poll() != index) {
+                throw new IllegalStateException("The " + name + " heap does not hand out " + index
+                        + " after " + expected.subList(0, expected.indexOf(index)));
+            }
+        }
+        if (!heap.isEmpty() || heap.poll() != -1) {
+            throw new IllegalStateException("The " + name + " heap hands out more than " + expected);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.utils;
+
+import java.util.Random;
+import org.apache.commons.math3.distribution.TDistribution;
+import org.cloudbus.cloudsim.Log;
+
+/**
+ * Checks OnlineStatistics against keeping every value and computing the mean
+ * and the variance in two passes, as ParameterSweep did by summing the
+ * makespans of its replications. Random values are added one at a time, some
+ * with a large common offset, and after each one the count, mean, variance
+ * and bounds must match the two-pass results up to rounding, and the
+ * confidence half-width must follow from the variance.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class OnlineStatisticsCheck {
+
+    private static final int RUNS = 2000;
+
+    private static final int VALUES = 300;
+
+    /**
+     * The largest relative difference allowed with the two-pass results
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        for (int run = 0; run < RUNS; run++) {
+            check(random.nextLong());
+        }
+        Log.printLine("OnlineStatisticsCheck: ok, " + RUNS + " series of " + VALUES + " values");
+    }
+
+    /**
+     * Adds random values to an OnlineStatistics and to an array
+     *
+     * @param seed the seed of the values
+     */
+    private static void check(long seed) {
+        Random random = new Random(seed);
+        double offset = random.nextBoolean() ? 0 : Math.pow(10, random.nextInt(10));
+        double scale = Math.pow(10, random.nextInt(7) - 3);
+        OnlineStatistics statistics = new OnlineStatistics();
+        double[] values = new double[VALUES];
+        for (int n = 1; n <= VALUES; n++) {
+            double value = offset + scale * (random.nextBoolean() ? random.nextGaussian()
+                    : random.nextInt(3));
+            values[n - 1] = value;
+            statistics.add(value);
+
+            double sum = 0.0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                sum += values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            double mean = sum / n;
+            double squares = 0.0;
+            for (int i = 0; i < n; i++) {
+                squares += (values[i] - mean) * (values[i] - mean);
+            }
+            double variance = n < 2 ? 0.0 : squares / (n - 1);
+
+            if (statistics.getCount() != n || statistics.getMin() != min || statistics.getMax() != max) {
+                throw new IllegalStateException("After " + n + " values, the count and bounds are "
+                        + statistics.getCount() + ", " + statistics.getMin() + " and " + statistics.getMax()
+                        + " instead of " + n + ", " + min + " and " + max);
+            }
+            double spread = max - min;
+            double magnitude = Math.max(Math.abs(min), Math.abs(max));
+            compare("mean", n, mean, statistics.getMean(), TOLERANCE * magnitude);
+            //each difference to the mean is only known up to the rounding of the values
+            double ulp = Math.ulp(magnitude);
+            compare("variance", n, variance, statistics.getVariance(),
+                    TOLERANCE * spread * spread + 8 * (spread + ulp) * ulp);
+            if (n >= 2) {
+                double quantile = new TDistribution(null, n - 1, TDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY)
+                        .inverseCumulativeProbability(0.975);
+                double halfWidth = quantile * Math.sqrt(statistics.getVariance() / n);
+                compare("half-width", n, halfWidth, statistics.getHalfWidth(0.95), TOLERANCE * halfWidth);
+            } else if (statistics.getHalfWidth(0.95) != Double.POSITIVE_INFINITY) {
+                throw new IllegalStateException("The half-width of one value is " + statistics.getHalfWidth(0.95));
+            }
+        }
+    }
+
+    /**
+     * Stops the check if a result differs from the two-pass one by more than
+     * rounding
+     *
+     * @param name the name of the result
+     * @param n the number of values
+     * @param expected the two-pass result
+     * @param actual the online result
+     * @param error the largest rounding error
+     */
+    private static void compare(String name, int n, double expected, double actual, double error) {
+        if (Math.abs(expected - actual) > error) {
+            throw new IllegalStateException("After " + n + " values, the " + name + " is " + actual
+                    + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ *   Copyright 2012-2013 University Of Southern California
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+package org.workflowsim.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.cloudbus.cloudsim.Log;
+
+/**
+ * Checks the storage bitsets of ReplicaCatalog against the map from file name
+ * to list of storage names it replaces. Random files are added to random
+ * storages, named either after vm ids or not, through addFileToStorage and
+ * addFileToVm. After each addition, the storages of every file must be the
+ * same whichever way they are read: getStorageList, isFileOnVm and
+ * getNextSite. getStorageList lists the storages in the order they were first
+ * used in the catalog, so it is compared as a set.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class ReplicaCatalogCheck {
+
+    private static final int RUNS = 500;
+
+    private static final int OPERATIONS = 400;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        Random random = new Random(seed);
+        for (int run = 0; run < RUNS; run++) {
+            check(random.nextLong());
+        }
+        Log.printLine("ReplicaCatalogCheck: ok, " + RUNS + " catalogs of " + OPERATIONS + " additions");
+    }
+
+    /**
+     * Adds random files to random storages, in the catalog and in a map
+     *
+     * @param seed the seed of the additions
+     */
+    private static void check(long seed) {
+        Random random = new Random(seed);
+        ReplicaCatalog.init(random.nextBoolean() ? ReplicaCatalog.FileSystem.LOCAL
+                : ReplicaCatalog.FileSystem.SHARED);
+        Map<String, List<String>> expected = new HashMap<>();
+        int fileNum = 1 + random.nextInt(50);
+        int vmNum = 1 + random.nextInt(40);
+        for (int i = 0; i < OPERATIONS; i++) {
+            String file = "f" + random.nextInt(fileNum) + ".dat";
+            String storage;
+            switch (random.nextInt(3)) {
+                case 0:
+                    int vmId = random.nextInt(vmNum);
+                    ReplicaCatalog.addFileToVm(file, vmId);
+                    storage = Integer.toString(vmId);
+                    break;
+                case 1:
+                    storage = Integer.toString(random.nextInt(vmNum));
+                    ReplicaCatalog.addFileToStorage(file, storage);
+                    break;
+                default:
+                    storage = random.nextBoolean() ? "source" : "site" + random.nextInt(5);
+                    ReplicaCatalog.addFileToStorage(file, storage);
+                    break;
+            }
+            List<String> storages = expected.get(file);
+            if (storages == null) {
+                storages = new ArrayList<>();
+                expected.put(file, storages);
+            }
+            if (!storages.contains(storage)) {
+                storages.add(storage);
+            }
+            if (i % 10 == 0 || i == OPERATIONS - 1) {
+                for (int f = 0; f <= fileNum; f++) {
+                    compare("f" + f + ".dat", expected.get("f" + f + ".dat"), vmNum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the check if the catalog does not give the expected storages of
+     * a file
+     */
+    private static void compare(String file, List<String> expected, int vmNum) {
+        List<String> list = ReplicaCatalog.getStorageList(file);
+        if (expected == null) {
+            if (list != null || ReplicaCatalog.getFileId(file) != -1) {
+                throw new IllegalStateException(file + " is in " + list + " instead of nowhere");
+            }
+            for (int vmId = 0; vmId < vmNum; vmId++) {
+                if (ReplicaCatalog.isFileOnVm(file, vmId)) {
+                    throw new IllegalStateException(file + " is on vm " + vmId + " instead of nowhere");
+                }
+            }
+            return;
+        }
+        Set<String> storages = new HashSet<>(expected);
+        if (list == null || list.size() != expected.size() || !storages.equals(new HashSet<>(list))) {
+            throw new IllegalStateException(file + " is in " + list + " instead of " + expected);
+        }
+        Set<String> sites = new HashSet<>();
+        int fileId = ReplicaCatalog.getFileId(file);
+        for (int site = ReplicaCatalog.getNextSite(fileId, 0); site >= 0;
+                site = ReplicaCatalog.getNextSite(fileId, site + 1)) {
+            sites.add(ReplicaCatalog.getSiteName(site));
+        }
+        if (!storages.equals(sites)) {
+            throw new IllegalStateException(file + " has the sites " + sites + " instead of " + expected);
+        }
+        for (int vmId = 0; vmId < vmNum; vmId++) {
+            boolean onVm = storages.contains(Integer.toString(vmId));
+            if (ReplicaCatalog.isFileOnVm(file, vmId) != onVm) {
+                throw new IllegalStateException(file + " is on vm " + vmId + ": " + !onVm + " instead of " + onVm);
+            }
+        }
+    }
+}
@@ -10,7 +10,6 @@ package org.cloudbus.cloudsim;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -193,7 +192,7 @@ public class Cloudlet {
 		accumulatedBwCost = 0.0;
 		costPerBw = 0.0;
 
-		requiredFiles = new LinkedList<String>();
+		requiredFiles = new ArrayList<String>(0);
 	}
 
 	/**
@@ -343,9 +342,9 @@ public class Cloudlet {
 		this.cloudletOutputSize = Math.max(1, cloudletOutputSize);
 
 		// Normally, a Cloudlet is only executed on a resource without being
-		// migrated to others. Hence, to reduce memory consumption, set the
-		// size of this ArrayList to be less than the default one.
-		resList = new ArrayList<Resource>(2);
+		// migrated to others. Hence, to reduce memory consumption, the ArrayList
+		// starts empty and only grows when the Cloudlet is submitted.
+		resList = new ArrayList<Resource>(0);
 		index = -1;
 		this.record = record;
 
@@ -353,7 +352,9 @@ public class Cloudlet {
 		accumulatedBwCost = 0.0;
 		costPerBw = 0.0;
 
-		requiredFiles = new LinkedList<String>();
+		// Most Cloudlets require few files or none, and the list is looked up by index, so an
+		// ArrayList that starts empty is used rather than a LinkedList.
+		requiredFiles = new ArrayList<String>(0);
 
 		setUtilizationModelCpu(utilizationModelCpu);
 		setUtilizationModelRam(utilizationModelRam);
@@ -1319,7 +1320,7 @@ public class Cloudlet {
 	public boolean addRequiredFile(final String fileName) {
 		// if the list is empty
 		if (getRequiredFiles() == null) {
-			setRequiredFiles(new LinkedList<String>());
+			setRequiredFiles(new ArrayList<String>(0));
 		}
 
 		// then check whether filename already exists or not
@@ -0,0 +1,646 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * CloudletSchedulerIndexedSpaceShared is a space-shared policy equivalent to
+ * {@link CloudletSchedulerSpaceShared}, for VMs that receive many cloudlets. Instead of scanning
+ * lists, it finds a cloudlet by its ID in a hash index, keeps the finished cloudlets in a FIFO
+ * queue and the waiting cloudlets in one FIFO queue per number of PEs. When PEs are released, the
+ * first waiting cloudlet that fits is the oldest of the heads of the queues of the cloudlets that
+ * need no more PEs than the free ones, so it is found without scanning the waiting cloudlets that
+ * do not fit. Cloudlets leave the exec list and the queues lazily: a cloudlet that is canceled or
+ * paused is found through the index, and its entry is dropped from the exec list at the next
+ * update, or skipped when it reaches the head of its queue.
+ * <p>
+ * The admission order is the same as with {@link CloudletSchedulerSpaceShared}: each finished
+ * cloudlet lets in the first cloudlet of the waiting list that fits in the free PEs. The IDs of the
+ * cloudlets of a VM are expected to be unique.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class CloudletSchedulerIndexedSpaceShared extends CloudletScheduler {
+
+	/** The location of a cloudlet that left the scheduler, or of an outdated entry. */
+	private static final int NONE = 0;
+
+	/** The location of an executing cloudlet. */
+	private static final int EXEC = 1;
+
+	/** The location of a waiting cloudlet. */
+	private static final int WAITING = 2;
+
+	/** The location of a paused cloudlet. */
+	private static final int PAUSED = 3;
+
+	/** The location of a finished cloudlet. */
+	private static final int FINISHED = 4;
+
+	/** The entries of the cloudlets, by cloudlet ID. */
+	private final Map<Integer, Entry> cloudletIndex;
+
+	/** The entries of the executing cloudlets, in the order of execution start. */
+	private final List<Entry> cloudletExecList;
+
+	/** The waiting cloudlets, by number of PEs, each in order of arrival. */
+	private final TreeMap<Integer, ArrayDeque<Entry>> cloudletWaitingQueues;
+
+	/** The finished cloudlets, in order of completion. */
+	private final ArrayDeque<Entry> cloudletFinishedQueue;
+
+	/** The number of executing cloudlets. */
+	private int execNum;
+
+	/** The number of waiting cloudlets. */
+	private int waitingNum;
+
+	/** The number of finished cloudlets. */
+	private int finishedNum;
+
+	/** The number of entries created, used to order the waiting cloudlets. */
+	private long entryNum;
+
+	/** The current CPUs. */
+	protected int currentCpus;
+
+	/** The used PEs. */
+	protected int usedPes;
+
+	/**
+	 * Creates a new CloudletSchedulerIndexedSpaceShared object. This method must be invoked before
+	 * starting the actual simulation.
+	 *
+	 * @pre $none
+	 * @post $none
+	 */
+	public CloudletSchedulerIndexedSpaceShared() {
+		super();
+		cloudletIndex = new HashMap<Integer, Entry>();
+		cloudletExecList = new ArrayList<Entry>();
+		cloudletWaitingQueues = new TreeMap<Integer, ArrayDeque<Entry>>();
+		cloudletFinishedQueue = new ArrayDeque<Entry>();
+		usedPes = 0;
+		currentCpus = 0;
+	}
+
+	/**
+	 * Updates the processing of cloudlets running under management of this scheduler.
+	 *
+	 * @param currentTime current simulation time
+	 * @param mipsShare array with MIPS share of each processor available to the scheduler
+	 * @return time predicted completion time of the earliest finishing cloudlet, or 0 if there is
+	 *         no next events
+	 * @pre currentTime >= 0
+	 * @post $none
+	 */
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		double timeSpam = currentTime - getPreviousTime(); // time since last update
+		double capacity = getCapacity(mipsShare);
+
+		// each machine in the exec list has the same amount of cpu
+		for (Entry entry : cloudletExecList) {
+			if (entry.location == EXEC) {
+				ResCloudlet rcl = entry.rcl;
+				rcl.updateCloudletFinishedSoFar((long) (capacity * timeSpam * rcl.getNumberOfPes() * Consts.MILLION));
+			}
+		}
+
+		// no more cloudlets in this scheduler
+		if (execNum == 0 && waitingNum == 0) {
+			cloudletExecList.clear();
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+
+		// update each cloudlet, keeping the order of the exec list and dropping the cloudlets
+		// that left it
+		int finished = 0;
+		int removed = 0;
+		int size = cloudletExecList.size();
+		for (int i = 0; i < size; i++) {
+			Entry entry = cloudletExecList.get(i);
+			if (entry.location != EXEC) {
+				removed++;
+			} else if (entry.rcl.getRemainingCloudletLength() == 0) {
+				// finished anyway, rounding issue...
+				cloudletFinish(entry.rcl);
+				finished++;
+				removed++;
+			} else {
+				cloudletExecList.set(i - removed, entry);
+			}
+		}
+		cloudletExecList.subList(size - removed, size).clear();
+
+		// for each finished cloudlet, add a new one from the waiting list
+		for (int i = 0; i < finished && waitingNum > 0; i++) {
+			Entry entry = pollWaiting(currentCpus - usedPes);
+			if (entry != null) {
+				ResCloudlet rcl = entry.rcl;
+				rcl.setCloudletStatus(Cloudlet.INEXEC);
+				for (int k = 0; k < rcl.getNumberOfPes(); k++) {
+					rcl.setMachineAndPeId(0, i);
+				}
+				addExec(rcl);
+				usedPes += rcl.getNumberOfPes();
+			}
+		}
+
+		// estimate finish time of cloudlets in the execution queue
+		double nextEvent = Double.MAX_VALUE;
+		for (Entry entry : cloudletExecList) {
+			ResCloudlet rcl = entry.rcl;
+			double remainingLength = rcl.getRemainingCloudletLength();
+			double estimatedFinishTime = currentTime + (remainingLength / (capacity * rcl.getNumberOfPes()));
+			if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+				estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+			}
+			if (estimatedFinishTime < nextEvent) {
+				nextEvent = estimatedFinishTime;
+			}
+		}
+		setPreviousTime(currentTime);
+		return nextEvent;
+	}
+
+	/**
+	 * Gets the average capacity of each CPU and updates the number of CPUs.
+	 *
+	 * @param mipsShare the mips share
+	 * @return the capacity
+	 */
+	protected double getCapacity(List<Double> mipsShare) {
+		double capacity = 0.0;
+		int cpus = 0;
+		for (Double mips : mipsShare) { // count the CPUs available to the VMM
+			capacity += mips;
+			if (mips > 0) {
+				cpus++;
+			}
+		}
+		currentCpus = cpus;
+		return capacity / cpus;
+	}
+
+	/**
+	 * Cancels execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being cancealed
+	 * @return the canceled cloudlet, $null if not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		Entry entry = cloudletIndex.get(cloudletId);
+		if (entry == null) {
+			return null;
+		}
+		ResCloudlet rcl = entry.rcl;
+		switch (removeEntry(entry)) {
+			case EXEC:
+				if (rcl.getRemainingCloudletLength() == 0) {
+					cloudletFinish(rcl);
+				} else {
+					rcl.setCloudletStatus(Cloudlet.CANCELED);
+				}
+				break;
+			case WAITING:
+				rcl.setCloudletStatus(Cloudlet.CANCELED);
+				break;
+			default:
+				break;
+		}
+		return rcl.getCloudlet();
+	}
+
+	/**
+	 * Pauses execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being paused
+	 * @return $true if cloudlet paused, $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		Entry entry = cloudletIndex.get(cloudletId);
+		if (entry == null || (entry.location != EXEC && entry.location != WAITING)) {
+			return false;
+		}
+		// moves to the paused list
+		ResCloudlet rgl = entry.rcl;
+		removeEntry(entry);
+		if (rgl.getRemainingCloudletLength() == 0) {
+			cloudletFinish(rgl);
+		} else {
+			rgl.setCloudletStatus(Cloudlet.PAUSED);
+			addEntry(rgl, PAUSED);
+		}
+		return true;
+	}
+
+	/**
+	 * Processes a finished cloudlet.
+	 *
+	 * @param rcl finished cloudlet
+	 * @pre rgl != $null
+	 * @post $none
+	 */
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		rcl.setCloudletStatus(Cloudlet.SUCCESS);
+		rcl.finalizeCloudlet();
+		cloudletFinishedQueue.add(addEntry(rcl, FINISHED));
+		finishedNum++;
+		usedPes -= rcl.getNumberOfPes();
+	}
+
+	/**
+	 * Resumes execution of a paused cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being resumed
+	 * @return $true if the cloudlet was resumed, $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public double cloudletResume(int cloudletId) {
+		Entry entry = cloudletIndex.get(cloudletId);
+		if (entry == null || entry.location != PAUSED) {
+			// not found in the paused list: either it is in in the queue, executing or not exist
+			return 0.0;
+		}
+		ResCloudlet rcl = entry.rcl;
+		removeEntry(entry);
+
+		long size = rcl.getRemainingCloudletLength();
+		size *= rcl.getNumberOfPes();
+
+		// it can go to the exec list
+		if ((currentCpus - usedPes) >= rcl.getNumberOfPes()) {
+			rcl.setCloudletStatus(Cloudlet.INEXEC);
+			for (int i = 0; i < rcl.getNumberOfPes(); i++) {
+				rcl.setMachineAndPeId(0, i);
+			}
+			rcl.getCloudlet().setCloudletLength(size);
+
+			addExec(rcl);
+			usedPes += rcl.getNumberOfPes();
+
+			// calculate the expected time for cloudlet completion
+			double capacity = getCapacity(getCurrentMipsShare());
+			long remainingLength = rcl.getRemainingCloudletLength();
+			return CloudSim.clock() + (remainingLength / (capacity * rcl.getNumberOfPes()));
+		}
+		// no enough free PEs: go to the waiting queue
+		rcl.setCloudletStatus(Cloudlet.QUEUED);
+		rcl.getCloudlet().setCloudletLength(size);
+		addWaiting(rcl);
+		return 0.0;
+	}
+
+	/**
+	 * Receives an cloudlet to be executed in the VM managed by this scheduler.
+	 *
+	 * @param cloudlet the submited cloudlet
+	 * @param fileTransferTime time required to move the required files from the SAN to the VM
+	 * @return expected finish time of this cloudlet, or 0 if it is in the waiting queue
+	 * @pre gl != null
+	 * @post $none
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		// no enough free PEs: go to the waiting queue
+		if ((currentCpus - usedPes) < cloudlet.getNumberOfPes()) {
+			rcl.setCloudletStatus(Cloudlet.QUEUED);
+			addWaiting(rcl);
+			return 0.0;
+		}
+
+		// it can go to the exec list
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			rcl.setMachineAndPeId(0, i);
+		}
+		addExec(rcl);
+		usedPes += cloudlet.getNumberOfPes();
+
+		// calculate the expected time for cloudlet completion
+		double capacity = getCapacity(getCurrentMipsShare());
+
+		// use the current capacity to estimate the extra amount of
+		// time to file transferring. It must be added to the cloudlet length
+		double extraSize = capacity * fileTransferTime;
+		long length = cloudlet.getCloudletLength();
+		length += extraSize;
+		cloudlet.setCloudletLength(length);
+		return cloudlet.getCloudletLength() / capacity;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#cloudletSubmit(cloudsim.Cloudlet)
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet) {
+		return cloudletSubmit(cloudlet, 0.0);
+	}
+
+	/**
+	 * Gets the status of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet
+	 * @return status of the cloudlet, -1 if cloudlet not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int getCloudletStatus(int cloudletId) {
+		Entry entry = cloudletIndex.get(cloudletId);
+		if (entry == null || entry.location == FINISHED) {
+			return -1;
+		}
+		return entry.rcl.getCloudletStatus();
+	}
+
+	/**
+	 * Get utilization created by all cloudlets.
+	 *
+	 * @param time the time
+	 * @return total utilization
+	 */
+	@Override
+	public double getTotalUtilizationOfCpu(double time) {
+		double totalUtilization = 0;
+		for (Entry entry : cloudletExecList) {
+			if (entry.location == EXEC) {
+				totalUtilization += entry.rcl.getCloudlet().getUtilizationOfCpu(time);
+			}
+		}
+		return totalUtilization;
+	}
+
+	/**
+	 * Informs about completion of some cloudlet in the VM managed by this scheduler.
+	 *
+	 * @return $true if there is at least one finished cloudlet; $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean isFinishedCloudlets() {
+		return finishedNum > 0;
+	}
+
+	/**
+	 * Returns the next cloudlet in the finished list, $null if this list is empty.
+	 *
+	 * @return a finished cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet getNextFinishedCloudlet() {
+		while (!cloudletFinishedQueue.isEmpty()) {
+			Entry entry = cloudletFinishedQueue.poll();
+			if (entry.location == FINISHED) {
+				removeEntry(entry);
+				return entry.rcl.getCloudlet();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of cloudlets runnning in the virtual machine.
+	 *
+	 * @return number of cloudlets runnning
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int runningCloudlets() {
+		return execNum;
+	}
+
+	/**
+	 * Returns one cloudlet to migrate to another vm.
+	 *
+	 * @return one running cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet migrateCloudlet() {
+		Entry entry = cloudletExecList.remove(0);
+		while (entry.location != EXEC) {
+			entry = cloudletExecList.remove(0);
+		}
+		removeEntry(entry);
+		ResCloudlet rcl = entry.rcl;
+		rcl.finalizeCloudlet();
+		Cloudlet cl = rcl.getCloudlet();
+		usedPes -= cl.getNumberOfPes();
+		return cl;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.CloudletScheduler#getCurrentRequestedMips()
+	 */
+	@Override
+	public List<Double> getCurrentRequestedMips() {
+		List<Double> mipsShare = new ArrayList<Double>();
+		if (getCurrentMipsShare() != null) {
+			for (Double mips : getCurrentMipsShare()) {
+				mipsShare.add(mips);
+			}
+		}
+		return mipsShare;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.CloudletScheduler#getTotalCurrentAvailableMipsForCloudlet(org.cloudbus
+	 * .cloudsim.ResCloudlet, java.util.List)
+	 */
+	@Override
+	public double getTotalCurrentAvailableMipsForCloudlet(ResCloudlet rcl, List<Double> mipsShare) {
+		return getCapacity(mipsShare);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.CloudletScheduler#getTotalCurrentAllocatedMipsForCloudlet(org.cloudbus
+	 * .cloudsim.ResCloudlet, double)
+	 */
+	@Override
+	public double getTotalCurrentAllocatedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.CloudletScheduler#getTotalCurrentRequestedMipsForCloudlet(org.cloudbus
+	 * .cloudsim.ResCloudlet, double)
+	 */
+	@Override
+	public double getTotalCurrentRequestedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfRam() {
+		return 0;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfBw() {
+		return 0;
+	}
+
+	/**
+	 * Indexes a cloudlet at a new location. A new entry is created, so that the entries left in
+	 * the queues by the previous locations of the cloudlet are outdated.
+	 *
+	 * @param rcl the cloudlet
+	 * @param location the location
+	 * @return the entry
+	 */
+	private Entry addEntry(ResCloudlet rcl, int location) {
+		Entry entry = new Entry(rcl, location, entryNum++);
+		Entry previous = cloudletIndex.put(rcl.getCloudletId(), entry);
+		if (previous != null) {
+			removeEntry(previous);
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes a cloudlet from its location. Executing and queued entries stay in the exec list
+	 * and in their queues until they are dropped by the next update or polled.
+	 *
+	 * @param entry the entry of the cloudlet
+	 * @return the location it was removed from
+	 */
+	private int removeEntry(Entry entry) {
+		int location = entry.location;
+		switch (location) {
+			case EXEC:
+				execNum--;
+				break;
+			case WAITING:
+				waitingNum--;
+				break;
+			case FINISHED:
+				finishedNum--;
+				break;
+			default:
+				break;
+		}
+		entry.location = NONE;
+		if (cloudletIndex.get(entry.rcl.getCloudletId()) == entry) {
+			cloudletIndex.remove(entry.rcl.getCloudletId());
+		}
+		return location;
+	}
+
+	/**
+	 * Adds a cloudlet at the end of the exec list.
+	 *
+	 * @param rcl the cloudlet
+	 */
+	private void addExec(ResCloudlet rcl) {
+		cloudletExecList.add(addEntry(rcl, EXEC));
+		execNum++;
+	}
+
+	/**
+	 * Adds a cloudlet at the end of the waiting list.
+	 *
+	 * @param rcl the cloudlet
+	 */
+	private void addWaiting(ResCloudlet rcl) {
+		Entry entry = addEntry(rcl, WAITING);
+		ArrayDeque<Entry> queue = cloudletWaitingQueues.get(rcl.getNumberOfPes());
+		if (queue == null) {
+			queue = new ArrayDeque<Entry>();
+			cloudletWaitingQueues.put(rcl.getNumberOfPes(), queue);
+		}
+		queue.add(entry);
+		waitingNum++;
+	}
+
+	/**
+	 * Removes the first cloudlet of the waiting list that fits in some PEs.
+	 *
+	 * @param freePes the number of free PEs
+	 * @return the entry of the cloudlet, $null if none fits
+	 */
+	private Entry pollWaiting(int freePes) {
+		ArrayDeque<Entry> first = null;
+		Iterator<ArrayDeque<Entry>> it = cloudletWaitingQueues.headMap(freePes, true).values().iterator();
+		while (it.hasNext()) {
+			ArrayDeque<Entry> queue = it.next();
+			while (!queue.isEmpty() && queue.peek().location != WAITING) {
+				queue.poll();
+			}
+			if (queue.isEmpty()) {
+				it.remove();
+			} else if (first == null || queue.peek().order < first.peek().order) {
+				first = queue;
+			}
+		}
+		if (first == null) {
+			return null;
+		}
+		Entry entry = first.poll();
+		removeEntry(entry);
+		return entry;
+	}
+
+	/**
+	 * The location of a cloudlet in the scheduler.
+	 */
+	private static final class Entry {
+
+		/** The cloudlet. */
+		private final ResCloudlet rcl;
+
+		/** The location, NONE once the cloudlet has moved. */
+		private int location;
+
+		/** The creation order of the entry. */
+		private final long order;
+
+		private Entry(ResCloudlet rcl, int location, long order) {
+			this.rcl = rcl;
+			this.location = location;
+			this.order = order;
+		}
+	}
+
+}
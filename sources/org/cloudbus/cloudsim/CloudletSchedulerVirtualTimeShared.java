@@ -0,0 +1,646 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * CloudletSchedulerVirtualTimeShared is a time-shared policy equivalent to
+ * {@link CloudletSchedulerTimeShared}, for VMs that run many cloudlets at once. Under time sharing
+ * every PE of every running cloudlet progresses at the same rate, the capacity, so the scheduler
+ * keeps a single virtual clock: the number of MI processed by one PE since the start. A cloudlet
+ * that arrives at virtual time v with a length of l MI on p PEs finishes when the virtual clock
+ * reaches its finish tag v + l / p, whatever the capacity changes in between. The running
+ * cloudlets are kept in a heap of finish tags, so that an update only advances the virtual clock
+ * and removes the finished cloudlets from the top of the heap: updates, submissions and
+ * completions take O(log n) time instead of O(n).
+ * <p>
+ * The progress of the cloudlets ({@link ResCloudlet#updateCloudletFinishedSoFar(long)}) is only
+ * recorded when they leave the heap. The results are therefore not exactly those of
+ * {@link CloudletSchedulerTimeShared}, which counts the remaining length of a cloudlet in whole MI
+ * and so finishes each cloudlet up to one MI early. For cloudlets of at least 1000 MI, the finish
+ * times differ by up to 1e-3 of the response time, from arrival to finish, plus the time of two
+ * events, as CloudletSchedulerVirtualTimeSharedCheck checks. Simulations whose cloudlets finish at
+ * nearly the same time may see them finish in a different order.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class CloudletSchedulerVirtualTimeShared extends CloudletScheduler {
+
+	/**
+	 * The tolerance on remaining lengths, in MI, so that a cloudlet that the estimated finish
+	 * time leaves with one MI left up to rounding errors is finished.
+	 */
+	private static final double LENGTH_TOLERANCE = 1e-6;
+
+	/** The running cloudlets, a heap ordered by finish tag. */
+	private final List<Share> heap;
+
+	/** The cloudlet paused list. */
+	private final List<Share> cloudletPausedList;
+
+	/** The cloudlet finished list. */
+	private final List<ResCloudlet> cloudletFinishedList;
+
+	/** The virtual time, in MI processed by one PE. */
+	private double virtualTime;
+
+	/** The number of PEs of the running cloudlets. */
+	private int pesInUse;
+
+	/** The number of cloudlets that have started or resumed, used to order them. */
+	private long arrivals;
+
+	/** The current cp us. */
+	protected int currentCPUs;
+
+	/**
+	 * Creates a new CloudletSchedulerVirtualTimeShared object. This method must be invoked before
+	 * starting the actual simulation.
+	 *
+	 * @pre $none
+	 * @post $none
+	 */
+	public CloudletSchedulerVirtualTimeShared() {
+		super();
+		heap = new ArrayList<Share>();
+		cloudletPausedList = new ArrayList<Share>();
+		cloudletFinishedList = new ArrayList<ResCloudlet>();
+		currentCPUs = 0;
+	}
+
+	/**
+	 * Updates the processing of cloudlets running under management of this scheduler.
+	 *
+	 * @param currentTime current simulation time
+	 * @param mipsShare array with MIPS share of each processor available to the scheduler
+	 * @return time predicted completion time of the earliest finishing cloudlet, or 0 if there is
+	 *         no next events
+	 * @pre currentTime >= 0
+	 * @post $none
+	 */
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		if (heap.isEmpty()) {
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+		virtualTime += getCapacity(mipsShare) * (currentTime - getPreviousTime());
+
+		// the cloudlets with less than one MI left are finished, as with the time-shared policy
+		List<Share> finished = new ArrayList<Share>();
+		collectFinished(0, finished);
+		if (!finished.isEmpty()) {
+			for (Share share : finished) {
+				remove(share.position);
+			}
+			// finish them in the order of arrival, as with the exec list of the time-shared policy
+			Collections.sort(finished, ARRIVAL_ORDER);
+			for (Share share : finished) {
+				cloudletFinish(share.rcl);
+			}
+		}
+
+		setPreviousTime(currentTime);
+		if (heap.isEmpty()) {
+			return Double.MAX_VALUE;
+		}
+
+		// estimate finish time of cloudlets
+		double nextEvent = getEstimatedFinishTime(0, heap.get(0).finishTag + 1, getCapacity(mipsShare));
+		if (nextEvent < CloudSim.getMinTimeBetweenEvents()) {
+			nextEvent = CloudSim.getMinTimeBetweenEvents();
+		}
+		return currentTime + nextEvent;
+	}
+
+	/**
+	 * Gets the capacity, that is the MIPS of each PE of a running cloudlet.
+	 *
+	 * @param mipsShare the mips share
+	 * @return the capacity
+	 */
+	protected double getCapacity(List<Double> mipsShare) {
+		double capacity = 0.0;
+		int cpus = 0;
+		for (Double mips : mipsShare) {
+			capacity += mips;
+			if (mips > 0.0) {
+				cpus++;
+			}
+		}
+		currentCPUs = cpus;
+
+		if (pesInUse > currentCPUs) {
+			capacity /= pesInUse;
+		} else {
+			capacity /= currentCPUs;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Cancels execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being cancealed
+	 * @return the canceled cloudlet, $null if not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		// First, looks in the finished queue
+		for (int i = 0; i < cloudletFinishedList.size(); i++) {
+			if (cloudletFinishedList.get(i).getCloudletId() == cloudletId) {
+				return cloudletFinishedList.remove(i).getCloudlet();
+			}
+		}
+
+		// Then searches in the exec list
+		int position = findRunning(cloudletId);
+		if (position >= 0) {
+			Share share = remove(position);
+			if (share.rcl.getRemainingCloudletLength() == 0) {
+				cloudletFinish(share.rcl);
+			} else {
+				share.rcl.setCloudletStatus(Cloudlet.CANCELED);
+			}
+			return share.rcl.getCloudlet();
+		}
+
+		// Now, looks in the paused queue
+		for (int i = 0; i < cloudletPausedList.size(); i++) {
+			if (cloudletPausedList.get(i).rcl.getCloudletId() == cloudletId) {
+				Share share = cloudletPausedList.remove(i);
+				share.rcl.setCloudletStatus(Cloudlet.CANCELED);
+				return share.rcl.getCloudlet();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Pauses execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being paused
+	 * @return $true if cloudlet paused, $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		int position = findRunning(cloudletId);
+		if (position < 0) {
+			return false;
+		}
+		// remove cloudlet from the exec list and put it in the paused list
+		Share share = remove(position);
+		if (share.rcl.getRemainingCloudletLength() == 0) {
+			cloudletFinish(share.rcl);
+		} else {
+			share.rcl.setCloudletStatus(Cloudlet.PAUSED);
+			cloudletPausedList.add(share);
+		}
+		return true;
+	}
+
+	/**
+	 * Processes a finished cloudlet.
+	 *
+	 * @param rcl finished cloudlet
+	 * @pre rgl != $null
+	 * @post $none
+	 */
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		rcl.setCloudletStatus(Cloudlet.SUCCESS);
+		rcl.finalizeCloudlet();
+		cloudletFinishedList.add(rcl);
+	}
+
+	/**
+	 * Resumes execution of a paused cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being resumed
+	 * @return expected finish time of the cloudlet, 0.0 if queued
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public double cloudletResume(int cloudletId) {
+		for (int i = 0; i < cloudletPausedList.size(); i++) {
+			Share share = cloudletPausedList.get(i);
+			if (share.rcl.getCloudletId() == cloudletId) {
+				cloudletPausedList.remove(i);
+				share.rcl.setCloudletStatus(Cloudlet.INEXEC);
+				add(share, share.remaining);
+
+				double remainingLength = share.rcl.getRemainingCloudletLength();
+				return CloudSim.clock() + (remainingLength / (getCapacity(getCurrentMipsShare()) * share.pes));
+			}
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Receives an cloudlet to be executed in the VM managed by this scheduler.
+	 *
+	 * @param cloudlet the submited cloudlet
+	 * @param fileTransferTime time required to move the required files from the SAN to the VM
+	 * @return expected finish time of this cloudlet
+	 * @pre gl != null
+	 * @post $none
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			rcl.setMachineAndPeId(0, i);
+		}
+
+		// the capacity includes the PEs of the new cloudlet
+		Share share = new Share(rcl);
+		pesInUse += share.pes;
+
+		// use the current capacity to estimate the extra amount of
+		// time to file transferring. It must be added to the cloudlet length
+		double extraSize = getCapacity(getCurrentMipsShare()) * fileTransferTime;
+		long length = (long) (cloudlet.getCloudletLength() + extraSize);
+		cloudlet.setCloudletLength(length);
+
+		pesInUse -= share.pes;
+		add(share, rcl.getRemainingCloudletLength());
+
+		return cloudlet.getCloudletLength() / getCapacity(getCurrentMipsShare());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#cloudletSubmit(cloudsim.Cloudlet)
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet) {
+		return cloudletSubmit(cloudlet, 0.0);
+	}
+
+	/**
+	 * Gets the status of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet
+	 * @return status of the cloudlet, -1 if cloudlet not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int getCloudletStatus(int cloudletId) {
+		int position = findRunning(cloudletId);
+		if (position >= 0) {
+			return heap.get(position).rcl.getCloudletStatus();
+		}
+		for (Share share : cloudletPausedList) {
+			if (share.rcl.getCloudletId() == cloudletId) {
+				return share.rcl.getCloudletStatus();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get utilization created by all cloudlets.
+	 *
+	 * @param time the time
+	 * @return total utilization
+	 */
+	@Override
+	public double getTotalUtilizationOfCpu(double time) {
+		double totalUtilization = 0;
+		for (Share share : heap) {
+			totalUtilization += share.rcl.getCloudlet().getUtilizationOfCpu(time);
+		}
+		return totalUtilization;
+	}
+
+	/**
+	 * Informs about completion of some cloudlet in the VM managed by this scheduler.
+	 *
+	 * @return $true if there is at least one finished cloudlet; $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean isFinishedCloudlets() {
+		return cloudletFinishedList.size() > 0;
+	}
+
+	/**
+	 * Returns the next cloudlet in the finished list, $null if this list is empty.
+	 *
+	 * @return a finished cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet getNextFinishedCloudlet() {
+		if (cloudletFinishedList.size() > 0) {
+			return cloudletFinishedList.remove(0).getCloudlet();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of cloudlets runnning in the virtual machine.
+	 *
+	 * @return number of cloudlets runnning
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int runningCloudlets() {
+		return heap.size();
+	}
+
+	/**
+	 * Returns one cloudlet to migrate to another vm: the running cloudlet that arrived first, as
+	 * with the time-shared policy.
+	 *
+	 * @return one running cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet migrateCloudlet() {
+		int first = 0;
+		for (int i = 1; i < heap.size(); i++) {
+			if (heap.get(i).arrival < heap.get(first).arrival) {
+				first = i;
+			}
+		}
+		ResCloudlet rgl = remove(first).rcl;
+		rgl.finalizeCloudlet();
+		return rgl.getCloudlet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getCurrentRequestedMips()
+	 */
+	@Override
+	public List<Double> getCurrentRequestedMips() {
+		List<Double> mipsShare = new ArrayList<Double>();
+		return mipsShare;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentAvailableMipsForCloudlet(cloudsim.ResCloudlet,
+	 * java.util.List)
+	 */
+	@Override
+	public double getTotalCurrentAvailableMipsForCloudlet(ResCloudlet rcl, List<Double> mipsShare) {
+		return getCapacity(getCurrentMipsShare());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentAllocatedMipsForCloudlet(cloudsim.ResCloudlet,
+	 * double)
+	 */
+	@Override
+	public double getTotalCurrentAllocatedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentRequestedMipsForCloudlet(cloudsim.ResCloudlet,
+	 * double)
+	 */
+	@Override
+	public double getTotalCurrentRequestedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfRam() {
+		double ram = 0;
+		for (Share share : heap) {
+			ram += share.rcl.getCloudlet().getUtilizationOfRam(CloudSim.clock());
+		}
+		return ram;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfBw() {
+		double bw = 0;
+		for (Share share : heap) {
+			bw += share.rcl.getCloudlet().getUtilizationOfBw(CloudSim.clock());
+		}
+		return bw;
+	}
+
+	/**
+	 * Gets the length a running cloudlet has left.
+	 *
+	 * @param share the cloudlet
+	 * @return the remaining length in MI
+	 */
+	private double getRemainingLength(Share share) {
+		return (share.finishTag - virtualTime) * share.pes;
+	}
+
+	/**
+	 * Collects the running cloudlets with less than one MI left. Such a cloudlet is less than one
+	 * MI per PE away from its finish tag, so only the top of the heap is searched.
+	 *
+	 * @param position the position in the heap to search from
+	 * @param finished the list the cloudlets are added to
+	 */
+	private void collectFinished(int position, List<Share> finished) {
+		if (position >= heap.size() || heap.get(position).finishTag - virtualTime >= 1 + LENGTH_TOLERANCE) {
+			return;
+		}
+		if (getRemainingLength(heap.get(position)) < 1 + LENGTH_TOLERANCE) {
+			finished.add(heap.get(position));
+		}
+		collectFinished(2 * position + 1, finished);
+		collectFinished(2 * position + 2, finished);
+	}
+
+	/**
+	 * Gets the time until the next running cloudlet finishes, estimated from its remaining length
+	 * in whole MI as with the time-shared policy. The rounding moves a cloudlet ahead by less than
+	 * one MI per PE, so only the cloudlets whose finish tag is below a bound are searched.
+	 *
+	 * @param position the position in the heap to search from
+	 * @param bound the finish tag of the first cloudlet plus one
+	 * @param capacity the capacity
+	 * @return the time, Double.MAX_VALUE if none of the cloudlets is below the bound
+	 */
+	private double getEstimatedFinishTime(int position, double bound, double capacity) {
+		if (position >= heap.size() || heap.get(position).finishTag >= bound) {
+			return Double.MAX_VALUE;
+		}
+		Share share = heap.get(position);
+		double time = Math.floor(getRemainingLength(share)) / (capacity * share.pes);
+		time = Math.min(time, getEstimatedFinishTime(2 * position + 1, bound, capacity));
+		return Math.min(time, getEstimatedFinishTime(2 * position + 2, bound, capacity));
+	}
+
+	/**
+	 * Finds a running cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet
+	 * @return its position in the heap, -1 if it is not running
+	 */
+	private int findRunning(int cloudletId) {
+		for (int i = 0; i < heap.size(); i++) {
+			if (heap.get(i).rcl.getCloudletId() == cloudletId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Starts running a cloudlet. Like a cloudlet added to the exec list of the time-shared policy,
+	 * it progresses from the previous update on.
+	 *
+	 * @param share the cloudlet
+	 * @param remaining the length it has left, in MI
+	 */
+	private void add(Share share, double remaining) {
+		share.startTag = virtualTime;
+		share.finishTag = virtualTime + remaining / share.pes;
+		share.arrival = arrivals++;
+		pesInUse += share.pes;
+		heap.add(share);
+		siftUp(heap.size() - 1, share);
+	}
+
+	/**
+	 * Stops running a cloudlet and records its progress.
+	 *
+	 * @param position the position of the cloudlet in the heap
+	 * @return the cloudlet
+	 */
+	private Share remove(int position) {
+		Share share = heap.get(position);
+		Share last = heap.remove(heap.size() - 1);
+		if (last != share) {
+			if (position > 0 && TAG_ORDER.compare(last, heap.get((position - 1) / 2)) < 0) {
+				siftUp(position, last);
+			} else {
+				siftDown(position, last);
+			}
+		}
+		pesInUse -= share.pes;
+
+		double progress = Math.min(virtualTime, share.finishTag) - share.startTag;
+		share.rcl.updateCloudletFinishedSoFar((long) (progress * share.pes * Consts.MILLION));
+		share.remaining = Math.max(share.finishTag - virtualTime, 0.0) * share.pes;
+		return share;
+	}
+
+	/**
+	 * Moves a cloudlet up the heap from a position.
+	 */
+	private void siftUp(int position, Share share) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (TAG_ORDER.compare(share, heap.get(parent)) >= 0) {
+				break;
+			}
+			heap.set(position, heap.get(parent));
+			heap.get(position).position = position;
+			position = parent;
+		}
+		heap.set(position, share);
+		share.position = position;
+	}
+
+	/**
+	 * Moves a cloudlet down the heap from a position.
+	 */
+	private void siftDown(int position, Share share) {
+		int size = heap.size();
+		while (2 * position + 1 < size) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && TAG_ORDER.compare(heap.get(child + 1), heap.get(child)) < 0) {
+				child++;
+			}
+			if (TAG_ORDER.compare(heap.get(child), share) >= 0) {
+				break;
+			}
+			heap.set(position, heap.get(child));
+			heap.get(position).position = position;
+			position = child;
+		}
+		heap.set(position, share);
+		share.position = position;
+	}
+
+	/** Orders the cloudlets by finish tag, then by arrival. */
+	private static final Comparator<Share> TAG_ORDER = new Comparator<Share>() {
+
+		@Override
+		public int compare(Share a, Share b) {
+			int result = Double.compare(a.finishTag, b.finishTag);
+			return result != 0 ? result : Long.compare(a.arrival, b.arrival);
+		}
+	};
+
+	/** Orders the cloudlets by arrival. */
+	private static final Comparator<Share> ARRIVAL_ORDER = new Comparator<Share>() {
+
+		@Override
+		public int compare(Share a, Share b) {
+			return Long.compare(a.arrival, b.arrival);
+		}
+	};
+
+	/**
+	 * A cloudlet and its tags.
+	 */
+	private static final class Share {
+
+		/** The cloudlet. */
+		private final ResCloudlet rcl;
+
+		/** The number of PEs of the cloudlet. */
+		private final int pes;
+
+		/** The virtual time when it started or resumed running. */
+		private double startTag;
+
+		/** The virtual time when it finishes. */
+		private double finishTag;
+
+		/** The length it had left when it stopped running, in MI. */
+		private double remaining;
+
+		/** The arrival number of the cloudlet. */
+		private long arrival;
+
+		/** The position of the cloudlet in the heap. */
+		private int position;
+
+		private Share(ResCloudlet rcl) {
+			this.rcl = rcl;
+			this.pes = rcl.getNumberOfPes();
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.lists.PeList;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.util.VmRegistry;
 
 /**
  * Host executes actions related to management of virtual machines (e.g., creation and destruction).
@@ -44,6 +45,9 @@ public class Host {
 	/** The vm list. */
 	private final List<? extends Vm> vmList = new ArrayList<Vm>();
 
+	/** The vms of the vm list by key, kept up to date by the methods that change the list. */
+	private final VmRegistry<Vm> vmRegistry = new VmRegistry<Vm>();
+
 	/** The pe list. */
 	private List<? extends Pe> peList;
 
@@ -143,6 +147,7 @@ public class Host {
 
 			getVmsMigratingIn().add(vm);
 			getVmList().add(vm);
+			vmRegistry.put(vm.getKey(), vm);
 			updateVmsProcessing(CloudSim.clock());
 			vm.getHost().updateVmsProcessing(CloudSim.clock());
 		}
@@ -157,6 +162,7 @@ public class Host {
 		vmDeallocate(vm);
 		getVmsMigratingIn().remove(vm);
 		getVmList().remove(vm);
+		vmRegistry.remove(vm.getKey());
 		getVmScheduler().getVmsMigratingIn().remove(vm.getUid());
 		vm.setInMigration(false);
 	}
@@ -168,6 +174,7 @@ public class Host {
 		for (Vm vm : getVmsMigratingIn()) {
 			if (!getVmList().contains(vm)) {
 				getVmList().add(vm);
+				vmRegistry.put(vm.getKey(), vm);
 			}
 			if (!getVmScheduler().getVmsMigratingIn().contains(vm.getUid())) {
 				getVmScheduler().getVmsMigratingIn().add(vm.getUid());
@@ -230,6 +237,7 @@ public class Host {
 
 		setStorage(getStorage() - vm.getSize());
 		getVmList().add(vm);
+		vmRegistry.put(vm.getKey(), vm);
 		vm.setHost(this);
 		return true;
 	}
@@ -245,6 +253,7 @@ public class Host {
 		if (vm != null) {
 			vmDeallocate(vm);
 			getVmList().remove(vm);
+			vmRegistry.remove(vm.getKey());
 			vm.setHost(null);
 		}
 	}
@@ -262,6 +271,7 @@ public class Host {
 			setStorage(getStorage() + vm.getSize());
 		}
 		getVmList().clear();
+		vmRegistry.clear();
 	}
 
 	/**
@@ -286,7 +296,8 @@ public class Host {
 	}
 
 	/**
-	 * Returns a VM object.
+	 * Returns a VM object. It is looked up by key, so the vm list should only be changed through
+	 * the methods of the host.
 	 * 
 	 * @param vmId the vm id
 	 * @param userId ID of VM's owner
@@ -295,12 +306,7 @@ public class Host {
 	 * @post $none
 	 */
 	public Vm getVm(int vmId, int userId) {
-		for (Vm vm : getVmList()) {
-			if (vm.getId() == vmId && vm.getUserId() == userId) {
-				return vm;
-			}
-		}
-		return null;
+		return vmRegistry.get(Vm.getKey(userId, vmId));
 	}
 
 	/**
@@ -13,6 +13,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
@@ -36,18 +38,6 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
-	protected static int nextIdx = 0;
-
-	private static boolean networkEnabled = false;
-
-	protected static DelayMatrix_Float delayMatrix = null;
-
-	protected static double[][] bwMatrix = null;
-
-	protected static TopologicalGraph graph = null;
-
-	protected static Map<Integer, Integer> map = null;
-
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
 	 * written in the BRITE format and contains topologycal information on simulation entities.
@@ -57,14 +47,15 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
+		State state = state();
 		Log.printLine("Topology file: " + fileName);
 
 		// try to find the file
 		GraphReaderBrite reader = new GraphReaderBrite();
 
 		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
+			state.graph = reader.readGraphFile(fileName);
+			state.map = new HashMap<Integer, Integer>();
 			generateMatrices();
 		} catch (IOException e) {
 			// problem with the file. Does not simulate network
@@ -78,13 +69,14 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
+		State state = state();
 		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
+		state.delayMatrix = new DelayMatrix_Float(state.graph, false);
 
 		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		state.bwMatrix = createBwMatrix(state.graph, false);
 
-		networkEnabled = true;
+		state.networkEnabled = true;
 	}
 
 	/**
@@ -99,30 +91,31 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		State state = state();
 
-		if (graph == null) {
-			graph = new TopologicalGraph();
+		if (state.graph == null) {
+			state.graph = new TopologicalGraph();
 		}
 
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
+		if (state.map == null) {
+			state.map = new HashMap<Integer, Integer>();
 		}
 
 		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(srcId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(srcId, state.nextIdx);
+			state.nextIdx++;
 		}
 
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(destId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(destId, state.nextIdx);
+			state.nextIdx++;
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		state.graph.addLink(new TopologicalLink(state.map.get(srcId), state.map.get(destId), (float) lat, (float) bw));
 
 		generateMatrices();
 
@@ -171,12 +164,13 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
 			try {
 				// this CloudSim entity was already mapped?
-				if (!map.containsKey(cloudSimEntityID)) {
-					if (!map.containsValue(briteID)) { // this BRITE node was already mapped?
-						map.put(cloudSimEntityID, briteID);
+				if (!state.map.containsKey(cloudSimEntityID)) {
+					if (!state.map.containsValue(briteID)) { // this BRITE node was already mapped?
+						state.map.put(cloudSimEntityID, briteID);
 					} else {
 						Log.printLine("Error in network mapping. BRITE node " + briteID + " already in use.");
 					}
@@ -199,9 +193,10 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
 			try {
-				map.remove(cloudSimEntityID);
+				state.map.remove(cloudSimEntityID);
 			} catch (Exception e) {
 				Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
 			}
@@ -219,10 +214,11 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = state.delayMatrix.getDelay(state.map.get(srcID), state.map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -242,7 +238,40 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return state().networkEnabled;
+	}
+
+	/**
+	 * Gets the state of the network topology in the simulation context of the calling thread.
+	 *
+	 * @return the state
+	 */
+	private static State state() {
+		SimulationContext context = CloudSim.getContext();
+		State state = (State) context.getAttribute(State.class);
+		if (state == null) {
+			state = new State();
+			context.setAttribute(State.class, state);
+		}
+		return state;
+	}
+
+	/**
+	 * The state of the network topology, one per simulation context.
+	 */
+	private static final class State {
+
+		int nextIdx = 0;
+
+		boolean networkEnabled = false;
+
+		DelayMatrix_Float delayMatrix = null;
+
+		double[][] bwMatrix = null;
+
+		TopologicalGraph graph = null;
+
+		Map<Integer, Integer> map = null;
 	}
 
 }
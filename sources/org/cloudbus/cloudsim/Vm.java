@@ -11,6 +11,8 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.cloudbus.cloudsim.util.VmRegistry;
+
 /**
  * Vm represents a VM: it runs inside a Host, sharing hostList with other VMs. It processes
  * cloudlets. This processing happens according to a policy, defined by the CloudletScheduler. Each
@@ -257,11 +259,34 @@ public class Vm {
 	 * @param userId the user id
 	 * @param vmId the vm id
 	 * @return string uid
+	 * @deprecated builds a new String at each call; to look a VM up by its ids, use
+	 *             {@link #getKey(int, int)}, which allocates nothing
 	 */
+	@Deprecated
 	public static String getUid(int userId, int vmId) {
 		return userId + "-" + vmId;
 	}
 
+	/**
+	 * Gets the key of the VM in a {@link VmRegistry}.
+	 * 
+	 * @return the key
+	 */
+	public long getKey() {
+		return VmRegistry.key(getUserId(), getId());
+	}
+
+	/**
+	 * Gets the key of a VM in a {@link VmRegistry}.
+	 * 
+	 * @param userId the user id
+	 * @param vmId the vm id
+	 * @return the key
+	 */
+	public static long getKey(int userId, int vmId) {
+		return VmRegistry.key(userId, vmId);
+	}
+
 	/**
 	 * Gets the id.
 	 * 
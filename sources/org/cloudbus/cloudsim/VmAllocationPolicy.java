@@ -57,6 +57,23 @@ public abstract class VmAllocationPolicy {
 	 */
 	public abstract boolean allocateHostForVm(Vm vm, Host host);
 
+	/**
+	 * Allocates hosts for several VMs, in the order of the list. The hosts are the ones
+	 * allocateHostForVm(Vm) would pick for each VM in turn.
+	 * 
+	 * @param vmList the VMs
+	 * @return for each VM, $true if a host could be allocated; $false otherwise
+	 * @pre vmList != null
+	 * @post $none
+	 */
+	public boolean[] allocateHostsForVms(List<? extends Vm> vmList) {
+		boolean[] results = new boolean[vmList.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = allocateHostForVm(vmList.get(i));
+		}
+		return results;
+	}
+
 	/**
 	 * Optimize allocation of the VMs according to current utilization.
 	 * 
@@ -10,14 +10,17 @@ package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.VmRegistry;
 
 /**
  * VmAllocationPolicySimple is an VmAllocationPolicy that chooses, as the host for a VM, the host
- * with less PEs in use.
+ * with less PEs in use. The free PEs of the hosts are indexed in a segment tree, so that finding
+ * that host and updating its free PEs take O(log n) time for n hosts.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -28,12 +31,21 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	/** The vm table. */
 	private Map<String, Host> vmTable;
 
+	/** The hosts of the vms, by vm key, so that looking a host up does not build the vm uid. */
+	private final VmRegistry<Host> hostRegistry = new VmRegistry<Host>();
+
 	/** The used pes. */
 	private Map<String, Integer> usedPes;
 
 	/** The free pes. */
 	private List<Integer> freePes;
 
+	/** The index of the free pes, to be kept in sync with the free pes list. */
+	private FreePesIndex freePesIndex;
+
+	/** The index of each host in the host list. */
+	private final Map<Host, Integer> hostIndexes = new IdentityHashMap<Host, Integer>();
+
 	/**
 	 * Creates the new VmAllocationPolicySimple object.
 	 * 
@@ -44,11 +56,14 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	public VmAllocationPolicySimple(List<? extends Host> list) {
 		super(list);
 
-		setFreePes(new ArrayList<Integer>());
+		List<Integer> freePes = new ArrayList<Integer>();
 		for (Host host : getHostList()) {
-			getFreePes().add(host.getNumberOfPes());
-
+			freePes.add(host.getNumberOfPes());
+			if (!hostIndexes.containsKey(host)) {
+				hostIndexes.put(host, hostIndexes.size());
+			}
 		}
+		setFreePes(freePes);
 
 		setVmTable(new HashMap<String, Host>());
 		setUsedPes(new HashMap<String, Integer>());
@@ -67,39 +82,40 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 		int requiredPes = vm.getNumberOfPes();
 		boolean result = false;
 		int tries = 0;
-		List<Integer> freePesTmp = new ArrayList<Integer>();
-		for (Integer freePes : getFreePes()) {
-			freePesTmp.add(freePes);
-		}
+		int hostNum = getFreePes().size();
+		// the hosts tried are taken out of the index until a host is found
+		int[] triedHosts = new int[Math.min(hostNum, 16)];
 
 		if (!getVmTable().containsKey(vm.getUid())) { // if this vm was not created
 			do {// we still trying until we find a host or until we try all of them
-				int moreFree = Integer.MIN_VALUE;
-				int idx = -1;
-
-				// we want the host with less pes in use
-				for (int i = 0; i < freePesTmp.size(); i++) {
-					if (freePesTmp.get(i) > moreFree) {
-						moreFree = freePesTmp.get(i);
-						idx = i;
-					}
-				}
+				// we want the host with less pes in use, the first one if there are several
+				int idx = freePesIndex.getMaxIndex();
 
 				Host host = getHostList().get(idx);
 				result = host.vmCreate(vm);
 
 				if (result) { // if vm were succesfully created in the host
 					getVmTable().put(vm.getUid(), host);
+					hostRegistry.put(vm.getKey(), host);
 					getUsedPes().put(vm.getUid(), requiredPes);
-					getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+					setHostFreePes(idx, getFreePes().get(idx) - requiredPes);
 					result = true;
 					break;
 				} else {
-					freePesTmp.set(idx, Integer.MIN_VALUE);
+					if (tries == triedHosts.length) {
+						int[] tmp = new int[Math.min(hostNum, 2 * tries)];
+						System.arraycopy(triedHosts, 0, tmp, 0, tries);
+						triedHosts = tmp;
+					}
+					triedHosts[tries] = idx;
+					freePesIndex.set(idx, Integer.MIN_VALUE);
 				}
 				tries++;
-			} while (!result && tries < getFreePes().size());
+			} while (!result && tries < hostNum);
 
+			for (int i = 0; i < tries; i++) {
+				freePesIndex.set(triedHosts[i], getFreePes().get(triedHosts[i]));
+			}
 		}
 
 		return result;
@@ -115,11 +131,12 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	@Override
 	public void deallocateHostForVm(Vm vm) {
 		Host host = getVmTable().remove(vm.getUid());
-		int idx = getHostList().indexOf(host);
+		hostRegistry.remove(vm.getKey());
+		int idx = getHostIndex(host);
 		int pes = getUsedPes().remove(vm.getUid());
 		if (host != null) {
 			host.vmDestroy(vm);
-			getFreePes().set(idx, getFreePes().get(idx) + pes);
+			setHostFreePes(idx, getFreePes().get(idx) + pes);
 		}
 	}
 
@@ -133,7 +150,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(Vm vm) {
-		return getVmTable().get(vm.getUid());
+		return hostRegistry.get(vm.getKey());
 	}
 
 	/**
@@ -147,7 +164,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(int vmId, int userId) {
-		return getVmTable().get(Vm.getUid(userId, vmId));
+		return hostRegistry.get(Vm.getKey(userId, vmId));
 	}
 
 	/**
@@ -166,6 +183,14 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	protected void setVmTable(Map<String, Host> vmTable) {
 		this.vmTable = vmTable;
+		hostRegistry.clear();
+		for (Host host : getHostList()) {
+			for (Vm vm : host.getVmList()) {
+				if (vmTable.get(vm.getUid()) == host) {
+					hostRegistry.put(vm.getKey(), host);
+				}
+			}
+		}
 	}
 
 	/**
@@ -202,6 +227,29 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	protected void setFreePes(List<Integer> freePes) {
 		this.freePes = freePes;
+		freePesIndex = new FreePesIndex(freePes);
+	}
+
+	/**
+	 * Sets the free pes of a host, in the free pes list and in its index.
+	 * 
+	 * @param idx the index of the host
+	 * @param pes the free pes
+	 */
+	protected void setHostFreePes(int idx, int pes) {
+		getFreePes().set(idx, pes);
+		freePesIndex.set(idx, pes);
+	}
+
+	/**
+	 * Gets the index of a host in the host list.
+	 * 
+	 * @param host the host
+	 * @return the index, -1 if the host is not in the list
+	 */
+	protected int getHostIndex(Host host) {
+		Integer idx = hostIndexes.get(host);
+		return idx == null ? -1 : idx;
 	}
 
 	/*
@@ -223,11 +271,12 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
 			getVmTable().put(vm.getUid(), host);
+			hostRegistry.put(vm.getKey(), host);
 
 			int requiredPes = vm.getNumberOfPes();
-			int idx = getHostList().indexOf(host);
+			int idx = getHostIndex(host);
 			getUsedPes().put(vm.getUid(), requiredPes);
-			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+			setHostFreePes(idx, getFreePes().get(idx) - requiredPes);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
@@ -237,4 +286,69 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 
 		return false;
 	}
+
+	/**
+	 * A segment tree over the free pes of the hosts, which gives the first host with the most free
+	 * pes.
+	 */
+	private static final class FreePesIndex {
+
+		/** The number of leaves, a power of two. */
+		private final int leaves;
+
+		/** The maximum free pes in each subtree, the root at 1 and the leaves from {@link #leaves}. */
+		private final int[] max;
+
+		/** The first host with the maximum free pes in each subtree. */
+		private final int[] maxIndex;
+
+		FreePesIndex(List<Integer> freePes) {
+			int n = 1;
+			while (n < freePes.size()) {
+				n *= 2;
+			}
+			leaves = n;
+			max = new int[2 * n];
+			maxIndex = new int[2 * n];
+			for (int i = 0; i < n; i++) {
+				max[n + i] = i < freePes.size() ? freePes.get(i) : Integer.MIN_VALUE;
+				maxIndex[n + i] = i < freePes.size() ? i : -1;
+			}
+			for (int node = n - 1; node > 0; node--) {
+				pull(node);
+			}
+		}
+
+		/**
+		 * Gets the first host with the most free pes.
+		 * 
+		 * @return the index of the host, -1 if all the hosts have Integer.MIN_VALUE free pes
+		 */
+		int getMaxIndex() {
+			return max[1] > Integer.MIN_VALUE ? maxIndex[1] : -1;
+		}
+
+		/**
+		 * Sets the free pes of a host.
+		 * 
+		 * @param idx the index of the host
+		 * @param pes the free pes
+		 */
+		void set(int idx, int pes) {
+			int node = leaves + idx;
+			max[node] = pes;
+			for (node /= 2; node > 0; node /= 2) {
+				pull(node);
+			}
+		}
+
+		private void pull(int node) {
+			int left = 2 * node;
+			int right = left + 1;
+			// on ties the left subtree wins, since its hosts come first
+			int child = max[right] > max[left] ? right : left;
+			max[node] = max[child];
+			maxIndex[node] = maxIndex[child];
+		}
+	}
 }
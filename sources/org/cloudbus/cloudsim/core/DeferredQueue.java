@@ -8,15 +8,23 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue of a {@link SimEntity}, that is, the mailbox
+ * holding the events sent to the entity that it has not processed yet. The events are kept in a
+ * doubly linked list in temporal order and are also linked, in the same order, into one list per
+ * tag. Hence the first event, or the first event with one of the tags of a {@link PredicateType},
+ * can be found and removed in constant time. Other predicates are matched against each event in
+ * turn.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,65 +32,336 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The first event. */
+	private Node head;
+
+	/** The last event. */
+	private Node tail;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The events by tag. */
+	private final Map<Integer, TagList> tagLists = new HashMap<Integer, TagList>();
+
+	/** The number of events. */
+	private int size;
+
+	/** The number of events ever added, used to order events with the same time. */
+	private long serial;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
+		Node node = new Node(newEvent, serial++);
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
-		}
-
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
-			}
+
+		Node prev = tail;
+		while (prev != null && prev.event.eventTime() > eventTime) {
+			prev = prev.prev;
+		}
+		node.prev = prev;
+		node.next = prev == null ? head : prev.next;
+		if (node.prev == null) {
+			head = node;
+		} else {
+			node.prev.next = node;
+		}
+		if (node.next == null) {
+			tail = node;
+		} else {
+			node.next.prev = node;
+		}
+
+		Integer tag = Integer.valueOf(newEvent.getTag());
+		TagList list = tagLists.get(tag);
+		if (list == null) {
+			list = new TagList();
+			tagLists.put(tag, list);
 		}
+		list.add(node);
+		size++;
+	}
 
-		list.add(newEvent);
+	/**
+	 * Returns the first event matching a predicate.
+	 *
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent findFirst(Predicate p) {
+		Node node = findFirstNode(p);
+		return node == null ? null : node.event;
+	}
+
+	/**
+	 * Removes and returns the first event matching a predicate.
+	 *
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent select(Predicate p) {
+		Node node = findFirstNode(p);
+		if (node == null) {
+			return null;
+		}
+		unlink(node);
+		return node.event;
+	}
+
+	/**
+	 * Counts the events matching a predicate.
+	 *
+	 * @param p the predicate
+	 * @return the number of events
+	 */
+	public int count(Predicate p) {
+		if (p.getClass() == PredicateAny.class) {
+			return size;
+		}
+		int count = 0;
+		if (p.getClass() == PredicateType.class) {
+			PredicateType type = (PredicateType) p;
+			for (int i = 0; i < type.getTagCount(); i++) {
+				if (!isRepeated(type, i)) {
+					TagList list = tagLists.get(type.getTag(i));
+					if (list != null) {
+						count += list.size;
+					}
+				}
+			}
+			return count;
+		}
+		for (Node node = head; node != null; node = node.next) {
+			if (p.match(node.event)) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	/**
 	 * Returns an iterator to the events in the queue.
-	 * 
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private Node next = head;
+
+			private Node last;
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = next.next;
+				return last.event;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				unlink(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		head = null;
+		tail = null;
+		tagLists.clear();
+		size = 0;
+	}
+
+	/**
+	 * Finds the first event matching a predicate.
+	 *
+	 * @param p the predicate
+	 * @return the node of the event, or <tt>null</tt> if no event matches
+	 */
+	private Node findFirstNode(Predicate p) {
+		if (p.getClass() == PredicateAny.class) {
+			return head;
+		}
+		if (p.getClass() == PredicateType.class) {
+			PredicateType type = (PredicateType) p;
+			Node first = null;
+			for (int i = 0; i < type.getTagCount(); i++) {
+				TagList list = tagLists.get(type.getTag(i));
+				if (list != null && list.head != null && (first == null || list.head.isBefore(first))) {
+					first = list.head;
+				}
+			}
+			return first;
+		}
+		for (Node node = head; node != null; node = node.next) {
+			if (p.match(node.event)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a tag of a predicate also appears before in the predicate, so that its events
+	 * are counted only once.
+	 *
+	 * @param type the predicate
+	 * @param index the index of the tag
+	 * @return true, if the tag appears at a lower index
+	 */
+	private static boolean isRepeated(PredicateType type, int index) {
+		for (int i = 0; i < index; i++) {
+			if (type.getTag(i) == type.getTag(index)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes an event from the queue and from the list of its tag.
+	 *
+	 * @param node the node of the event
+	 */
+	private void unlink(Node node) {
+		if (node.prev == null) {
+			head = node.next;
+		} else {
+			node.prev.next = node.next;
+		}
+		if (node.next == null) {
+			tail = node.prev;
+		} else {
+			node.next.prev = node.prev;
+		}
+		node.tagList.remove(node);
+		size--;
+	}
+
+	/**
+	 * An event of the queue, linked into the whole queue and into the list of its tag.
+	 */
+	private static final class Node {
+
+		/** The event. */
+		private final SimEvent event;
+
+		/** The order in which the event was added. */
+		private final long serial;
+
+		/** The previous and next events of the queue. */
+		private Node prev, next;
+
+		/** The previous and next events with the same tag. */
+		private Node tagPrev, tagNext;
+
+		/** The list of the tag of the event. */
+		private TagList tagList;
+
+		Node(SimEvent event, long serial) {
+			this.event = event;
+			this.serial = serial;
+		}
+
+		/**
+		 * Checks whether this event comes before another one in the queue.
+		 *
+		 * @param other the other event
+		 * @return true, if this event comes first
+		 */
+		boolean isBefore(Node other) {
+			double time = event.eventTime();
+			double otherTime = other.event.eventTime();
+			if (time != otherTime) {
+				return time < otherTime;
+			}
+			return serial < other.serial;
+		}
+	}
+
+	/**
+	 * The events with a given tag, in the order of the queue.
+	 */
+	private static final class TagList {
+
+		/** The first and last events. */
+		private Node head, tail;
+
+		/** The number of events. */
+		private int size;
+
+		/**
+		 * Adds an event after all the events of the list that do not come after it.
+		 *
+		 * @param node the node of the event
+		 */
+		void add(Node node) {
+			Node prev = tail;
+			while (prev != null && node.isBefore(prev)) {
+				prev = prev.tagPrev;
+			}
+			node.tagPrev = prev;
+			node.tagNext = prev == null ? head : prev.tagNext;
+			if (node.tagPrev == null) {
+				head = node;
+			} else {
+				node.tagPrev.tagNext = node;
+			}
+			if (node.tagNext == null) {
+				tail = node;
+			} else {
+				node.tagNext.tagPrev = node;
+			}
+			node.tagList = this;
+			size++;
+		}
+
+		/**
+		 * Removes an event from the list.
+		 *
+		 * @param node the node of the event
+		 */
+		void remove(Node node) {
+			if (node.tagPrev == null) {
+				head = node.tagNext;
+			} else {
+				node.tagPrev.tagNext = node.tagNext;
+			}
+			if (node.tagNext == null) {
+				tail = node.tagPrev;
+			} else {
+				node.tagNext.tagPrev = node.tagPrev;
+			}
+			size--;
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -8,92 +8,199 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
- * 
+ * This class defines the future event queue used by {@link Simulation}. Events are kept in the
+ * order given by {@link SimEvent#compareTo(SimEvent)}, that is, by time and then by serial number.
+ * Subclasses decide how the events are stored; {@link FutureQueueSimple} keeps them in a
+ * {@link java.util.TreeSet} and is the queue used unless another one is passed to
+ * {@link CloudSim#init(int, java.util.Calendar, boolean, FutureQueue)}.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see FutureQueueSimple
+ * @see FutureQueueHeap
+ * @see FutureQueueCalendar
+ * @see FutureQueueLadder
  */
-public class FutureQueue {
-
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+public abstract class FutureQueue {
 
 	/** The serial. */
 	private long serial = 0;
 
+	/**
+	 * The serial of events added to the head of the queue. It is always lower than the serial of
+	 * the other events, and increases so that such events keep the order in which they were added.
+	 */
+	private long firstSerial = Long.MIN_VALUE;
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		insert(newEvent);
 	}
 
 	/**
 	 * Add a new event to the head of the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEventFirst(SimEvent newEvent) {
-		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		newEvent.setSerial(firstSerial++);
+		insert(newEvent);
 	}
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
-	 * @return the iterator
+	 * Inserts an event whose serial has already been set.
+	 *
+	 * @param event the event
 	 */
-	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
-	}
+	protected abstract void insert(SimEvent event);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public abstract SimEvent peek();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public abstract SimEvent poll();
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the size
 	 */
-	public int size() {
-		return sortedSet.size();
-	}
+	public abstract int size();
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
-	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+	public abstract boolean remove(SimEvent event);
+
+	/**
+	 * Clears the queue.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Adds all the events of the queue, in any order, to the given list.
+	 *
+	 * @param list the list
+	 */
+	protected abstract void copyTo(List<SimEvent> list);
+
+	/**
+	 * Returns an iterator to the queue. The events are returned in temporal order and
+	 * {@link Iterator#remove()} removes the last returned event from the queue.
+	 *
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator() {
+		List<SimEvent> list = new ArrayList<SimEvent>(size());
+		copyTo(list);
+		Collections.sort(list);
+		final Iterator<SimEvent> snapshot = list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				return snapshot.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = snapshot.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				FutureQueue.this.remove(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
 	}
 
 	/**
-	 * Clears the queue.
+	 * Inserts an event into a list sorted in reverse temporal order, so that the first event is the
+	 * last element of the list and can be removed in constant time.
+	 *
+	 * @param list the list sorted in reverse temporal order
+	 * @param event the event
+	 */
+	protected static void insertReversed(List<SimEvent> list, SimEvent event) {
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (list.get(mid).compareTo(event) > 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		list.add(low, event);
+	}
+
+	/**
+	 * Removes all the events sent by an entity that match a predicate.
+	 *
+	 * @param src the id of the entity that sent the events
+	 * @param p the predicate
+	 * @return true, if any event was removed
 	 */
-	public void clear() {
-		sortedSet.clear();
+	public boolean removeAll(int src, Predicate p) {
+		boolean changed = false;
+		Iterator<SimEvent> iter = iterator();
+		while (iter.hasNext()) {
+			SimEvent ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iter.remove();
+				changed = true;
+			}
+		}
+		return changed;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,264 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A future event queue implemented as a calendar queue (R. Brown, "Calendar queues: a fast O(1)
+ * priority queue implementation for the simulation event set problem", CACM 31(10), 1988). Events
+ * are hashed by time into an array of buckets, each bucket covering one "day" of a "year" that wraps
+ * around. The number of buckets doubles or halves as the queue grows or shrinks, and the width of
+ * a day is estimated from the separation between the first events of the queue, so that insertion
+ * and removal cost O(1) on average.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ */
+public class FutureQueueCalendar extends FutureQueue {
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The maximum number of buckets. */
+	private static final int MAX_BUCKETS = 1 << 24;
+
+	/** The number of first events used to estimate the bucket width. */
+	private static final int WIDTH_SAMPLE = 25;
+
+	/** The buckets. Each bucket is sorted in reverse temporal order. */
+	private List<List<SimEvent>> buckets;
+
+	/** The number of buckets minus one. The number of buckets is a power of two. */
+	private int mask;
+
+	/** The time covered by each bucket. */
+	private double width;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/** The day in which the search for the first event starts. No event is before this day. */
+	private long currentDay;
+
+	/** The bucket that holds the first event, or -1 if it has to be searched for. */
+	private int firstBucket;
+
+	/**
+	 * Creates an empty calendar queue.
+	 */
+	public FutureQueueCalendar() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates an empty calendar queue with an initial bucket width.
+	 *
+	 * @param width the initial time covered by each bucket
+	 * @pre width > 0
+	 */
+	public FutureQueueCalendar(double width) {
+		if (width <= 0) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is: " + width);
+		}
+		this.width = width;
+		initBuckets(MIN_BUCKETS);
+	}
+
+	@Override
+	protected void insert(SimEvent event) {
+		long day = getDay(event.eventTime());
+		int index = (int) (day & mask);
+		insertReversed(buckets.get(index), event);
+		size++;
+		if (day < currentDay) {
+			currentDay = day;
+		}
+		if (firstBucket >= 0 && event.compareTo(getLast(buckets.get(firstBucket))) < 0) {
+			firstBucket = index;
+		}
+		if (size > 2 * buckets.size() && buckets.size() < MAX_BUCKETS) {
+			resize(2 * buckets.size());
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		int index = findFirstBucket();
+		if (index < 0) {
+			return null;
+		}
+		return getLast(buckets.get(index));
+	}
+
+	@Override
+	public SimEvent poll() {
+		int index = findFirstBucket();
+		if (index < 0) {
+			return null;
+		}
+		List<SimEvent> bucket = buckets.get(index);
+		SimEvent first = bucket.remove(bucket.size() - 1);
+		size--;
+		firstBucket = -1;
+		if (size < buckets.size() / 2 && buckets.size() > MIN_BUCKETS) {
+			resize(buckets.size() / 2);
+		}
+		return first;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		List<SimEvent> bucket = buckets.get((int) (getDay(event.eventTime()) & mask));
+		for (int i = bucket.size() - 1; i >= 0; i--) {
+			if (bucket.get(i) == event) {
+				bucket.remove(i);
+				size--;
+				firstBucket = -1;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		initBuckets(MIN_BUCKETS);
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> list) {
+		for (List<SimEvent> bucket : buckets) {
+			list.addAll(bucket);
+		}
+	}
+
+	/**
+	 * Gets the day of a time, counted from time zero.
+	 *
+	 * @param time the time
+	 * @return the day
+	 */
+	private long getDay(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Gets the last element of a list.
+	 *
+	 * @param list the list
+	 * @return the last element
+	 */
+	private static SimEvent getLast(List<SimEvent> list) {
+		return list.get(list.size() - 1);
+	}
+
+	/**
+	 * Finds the bucket that holds the first event. The buckets are visited day by day from the
+	 * current day; if a whole year holds no event of its day, the first event is searched for
+	 * directly among the buckets.
+	 *
+	 * @return the bucket index, or -1 if the queue is empty
+	 */
+	private int findFirstBucket() {
+		if (size == 0) {
+			return -1;
+		}
+		if (firstBucket >= 0) {
+			return firstBucket;
+		}
+		long day = currentDay;
+		for (int i = 0; i <= mask; i++, day++) {
+			int index = (int) (day & mask);
+			List<SimEvent> bucket = buckets.get(index);
+			if (!bucket.isEmpty() && getDay(getLast(bucket).eventTime()) == day) {
+				currentDay = day;
+				firstBucket = index;
+				return index;
+			}
+		}
+		SimEvent first = null;
+		for (int i = 0; i <= mask; i++) {
+			List<SimEvent> bucket = buckets.get(i);
+			if (!bucket.isEmpty() && (first == null || getLast(bucket).compareTo(first) < 0)) {
+				first = getLast(bucket);
+				firstBucket = i;
+			}
+		}
+		currentDay = getDay(first.eventTime());
+		return firstBucket;
+	}
+
+	/**
+	 * Creates empty buckets.
+	 *
+	 * @param number the number of buckets, a power of two
+	 */
+	private void initBuckets(int number) {
+		buckets = new ArrayList<List<SimEvent>>(number);
+		for (int i = 0; i < number; i++) {
+			buckets.add(new ArrayList<SimEvent>(2));
+		}
+		mask = number - 1;
+		size = 0;
+		currentDay = Long.MAX_VALUE;
+		firstBucket = -1;
+	}
+
+	/**
+	 * Changes the number of buckets, estimates a new bucket width from the first events and
+	 * re-inserts all the events.
+	 *
+	 * @param number the new number of buckets, a power of two
+	 */
+	private void resize(int number) {
+		List<SimEvent> events = new ArrayList<SimEvent>(size);
+		copyTo(events);
+		Collections.sort(events);
+
+		// three times the average separation of the first events, ignoring large gaps
+		int sample = Math.min(events.size(), WIDTH_SAMPLE);
+		if (sample > 1) {
+			double first = events.get(0).eventTime();
+			double average = (events.get(sample - 1).eventTime() - first) / (sample - 1);
+			double sum = 0;
+			int count = 0;
+			for (int i = 1; i < sample; i++) {
+				double gap = events.get(i).eventTime() - events.get(i - 1).eventTime();
+				if (gap <= 2 * average) {
+					sum += gap;
+					count++;
+				}
+			}
+			if (count > 0 && sum > 0) {
+				width = 3 * sum / count;
+			}
+		}
+
+		initBuckets(number);
+		// appending the events from the last one keeps each bucket in reverse order
+		for (int i = events.size() - 1; i >= 0; i--) {
+			SimEvent event = events.get(i);
+			long day = getDay(event.eventTime());
+			buckets.get((int) (day & mask)).add(event);
+			if (day < currentDay) {
+				currentDay = day;
+			}
+		}
+		size = events.size();
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A future event queue backed by an implicit d-ary heap stored in an array. Insertion and removal
+ * of the first event cost O(log n) and do not allocate, which makes it faster than
+ * {@link FutureQueueSimple} for large queues. A 4-ary heap is used by default since it touches
+ * fewer cache lines than a binary heap.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ */
+public class FutureQueueHeap extends FutureQueue {
+
+	/** The number of children of each node. */
+	private final int arity;
+
+	/** The heap. */
+	private SimEvent[] heap;
+
+	/** The number of events in the heap. */
+	private int size;
+
+	/**
+	 * Creates a 4-ary heap.
+	 */
+	public FutureQueueHeap() {
+		this(4);
+	}
+
+	/**
+	 * Creates a heap with the given number of children per node.
+	 *
+	 * @param arity the number of children per node, 2 for a binary heap
+	 * @pre arity >= 2
+	 */
+	public FutureQueueHeap(int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("The heap arity should be at least 2, but is: " + arity);
+		}
+		this.arity = arity;
+		heap = new SimEvent[64];
+		size = 0;
+	}
+
+	@Override
+	protected void insert(SimEvent event) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		siftUp(size, event);
+		size++;
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		return heap[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int i = 0; i < size; i++) {
+			if (heap[i] == event) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(int src, Predicate p) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			SimEvent ev = heap[i];
+			if (ev.getSource() != src || !p.match(ev)) {
+				heap[kept++] = ev;
+			}
+		}
+		if (kept == size) {
+			return false;
+		}
+		Arrays.fill(heap, kept, size, null);
+		size = kept;
+		// rebuild the heap bottom-up
+		for (int i = (size - 2) / arity; i >= 0; i--) {
+			siftDown(i, heap[i]);
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> list) {
+		list.addAll(Arrays.asList(heap).subList(0, size));
+	}
+
+	/**
+	 * Removes the event at a position of the heap.
+	 *
+	 * @param index the position
+	 */
+	private void removeAt(int index) {
+		size--;
+		SimEvent last = heap[size];
+		heap[size] = null;
+		if (index == size) {
+			return;
+		}
+		siftDown(index, last);
+		if (heap[index] == last) {
+			siftUp(index, last);
+		}
+	}
+
+	/**
+	 * Moves an event up from a position until its parent is not greater than it.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftUp(int index, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			SimEvent ev = heap[parent];
+			if (event.compareTo(ev) >= 0) {
+				break;
+			}
+			heap[index] = ev;
+			index = parent;
+		}
+		heap[index] = event;
+	}
+
+	/**
+	 * Moves an event down from a position until its children are not less than it.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftDown(int index, SimEvent event) {
+		while (true) {
+			int child = index * arity + 1;
+			if (child >= size) {
+				break;
+			}
+			int end = Math.min(child + arity, size);
+			int min = child;
+			for (int i = child + 1; i < end; i++) {
+				if (heap[i].compareTo(heap[min]) < 0) {
+					min = i;
+				}
+			}
+			if (heap[min].compareTo(event) >= 0) {
+				break;
+			}
+			heap[index] = heap[min];
+			index = min;
+		}
+		heap[index] = event;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A future event queue implemented as a ladder queue (W. T. Tang, R. S. M. Goh and I. L.-J. Thng,
+ * "Ladder queue: an O(1) priority queue structure for large-scale discrete event simulation", ACM
+ * TOMACS 15(3), 2005). Far events are appended unsorted to the top list. When the events near the
+ * head are needed, they are spread over the buckets of a rung, and a bucket holding too many
+ * events is spread again over a finer rung. Only small buckets are sorted, into the bottom list,
+ * from which events are removed. Unlike a calendar queue, it does not need to be resized.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ */
+public class FutureQueueLadder extends FutureQueue {
+
+	/** A bucket holding more events than this is spread over a new rung instead of being sorted. */
+	private static final int THRESHOLD = 50;
+
+	/** The maximum number of rungs. */
+	private static final int MAX_RUNGS = 8;
+
+	/** The events after {@link #topStart}, unsorted. */
+	private List<SimEvent> top;
+
+	/** The time after which events are appended to the top list. */
+	private double topStart;
+
+	/** The minimum time of the events in the top list. */
+	private double topMin;
+
+	/** The maximum time of the events in the top list. */
+	private double topMax;
+
+	/** The rungs, from the coarsest to the finest. */
+	private final Rung[] rungs;
+
+	/** The number of rungs in use. */
+	private int rungCount;
+
+	/** The events before the current bucket of the finest rung, in reverse temporal order. */
+	private List<SimEvent> bottom;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/**
+	 * Creates an empty ladder queue.
+	 */
+	public FutureQueueLadder() {
+		rungs = new Rung[MAX_RUNGS];
+		clear();
+	}
+
+	@Override
+	protected void insert(SimEvent event) {
+		size++;
+		double time = event.eventTime();
+		if (time > topStart) {
+			if (top.isEmpty() || time < topMin) {
+				topMin = time;
+			}
+			if (top.isEmpty() || time > topMax) {
+				topMax = time;
+			}
+			top.add(event);
+			return;
+		}
+		for (int i = 0; i < rungCount; i++) {
+			Rung rung = rungs[i];
+			int index = rung.getBucket(time);
+			if (index >= rung.current) {
+				rung.add(index, event);
+				return;
+			}
+		}
+		insertReversed(bottom, event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (bottom.isEmpty() && !fillBottom()) {
+			return null;
+		}
+		return bottom.get(bottom.size() - 1);
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (bottom.isEmpty() && !fillBottom()) {
+			return null;
+		}
+		size--;
+		return bottom.remove(bottom.size() - 1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (removeFrom(bottom, event) || removeFrom(top, event)) {
+			return true;
+		}
+		for (int i = 0; i < rungCount; i++) {
+			Rung rung = rungs[i];
+			List<SimEvent> bucket = rung.buckets[Math.max(rung.getBucket(event.eventTime()), 0)];
+			if (bucket != null && removeFrom(bucket, event)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		top = new ArrayList<SimEvent>();
+		topStart = Double.NEGATIVE_INFINITY;
+		topMin = 0;
+		topMax = 0;
+		for (int i = 0; i < rungs.length; i++) {
+			rungs[i] = null;
+		}
+		rungCount = 0;
+		bottom = new ArrayList<SimEvent>();
+		size = 0;
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> list) {
+		list.addAll(top);
+		for (int i = 0; i < rungCount; i++) {
+			for (List<SimEvent> bucket : rungs[i].buckets) {
+				if (bucket != null) {
+					list.addAll(bucket);
+				}
+			}
+		}
+		list.addAll(bottom);
+	}
+
+	/**
+	 * Removes an event from a list.
+	 *
+	 * @param list the list
+	 * @param event the event
+	 * @return true, if the event was in the list
+	 */
+	private boolean removeFrom(List<SimEvent> list, SimEvent event) {
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (list.get(i) == event) {
+				list.remove(i);
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the first events of the queue to the bottom list, which must be empty.
+	 *
+	 * @return true, if the queue had any event
+	 */
+	private boolean fillBottom() {
+		while (true) {
+			if (rungCount == 0) {
+				if (top.isEmpty()) {
+					return false;
+				}
+				List<SimEvent> events = top;
+				top = new ArrayList<SimEvent>();
+				topStart = topMax;
+				if (events.size() <= THRESHOLD || topMax == topMin) {
+					sortIntoBottom(events);
+					return true;
+				}
+				addRung(topMin, topMax - topMin, events);
+				continue;
+			}
+
+			Rung rung = rungs[rungCount - 1];
+			while (rung.current < rung.buckets.length
+					&& (rung.buckets[rung.current] == null || rung.buckets[rung.current].isEmpty())) {
+				rung.current++;
+			}
+			if (rung.current == rung.buckets.length) {
+				rungs[--rungCount] = null;
+				continue;
+			}
+
+			List<SimEvent> bucket = rung.buckets[rung.current];
+			rung.buckets[rung.current] = null;
+			double start = rung.getBucketStart(rung.current);
+			rung.current++;
+			if (bucket.size() > THRESHOLD && rungCount < MAX_RUNGS && !hasSingleTime(bucket)) {
+				addRung(start, rung.width, bucket);
+				continue;
+			}
+			sortIntoBottom(bucket);
+			return true;
+		}
+	}
+
+	/**
+	 * Spreads events over the buckets of a new finest rung.
+	 *
+	 * @param start the time at which the rung starts
+	 * @param length the time covered by the rung
+	 * @param events the events
+	 */
+	private void addRung(double start, double length, List<SimEvent> events) {
+		Rung rung = new Rung(start, length / events.size(), events.size());
+		for (SimEvent event : events) {
+			rung.add(Math.max(rung.getBucket(event.eventTime()), 0), event);
+		}
+		rungs[rungCount++] = rung;
+	}
+
+	/**
+	 * Sorts events into the bottom list.
+	 *
+	 * @param events the events
+	 */
+	private void sortIntoBottom(List<SimEvent> events) {
+		Collections.sort(events, Collections.reverseOrder());
+		bottom = events;
+	}
+
+	/**
+	 * Checks whether all the events of a list have the same time, in which case spreading them over
+	 * a new rung would not separate them.
+	 *
+	 * @param events the events
+	 * @return true, if all the events have the same time
+	 */
+	private static boolean hasSingleTime(List<SimEvent> events) {
+		double time = events.get(0).eventTime();
+		for (SimEvent event : events) {
+			if (event.eventTime() != time) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A rung of the ladder: an array of unsorted buckets of equal width. The buckets before the
+	 * current one have already been moved to a finer rung or to the bottom list.
+	 */
+	private static final class Rung {
+
+		/** The time at which the first bucket starts. */
+		private final double start;
+
+		/** The time covered by each bucket. */
+		private final double width;
+
+		/** The buckets, created when the first event is added. */
+		private final List<SimEvent>[] buckets;
+
+		/** The first bucket that may hold events. */
+		private int current;
+
+		@SuppressWarnings("unchecked")
+		Rung(double start, double width, int number) {
+			this.start = start;
+			this.width = width;
+			buckets = (List<SimEvent>[]) new List<?>[number];
+			current = 0;
+		}
+
+		/**
+		 * Gets the bucket of a time. Times after the end of the rung fall into the last bucket.
+		 *
+		 * @param time the time
+		 * @return the bucket index, negative if the time is before the start of the rung
+		 */
+		int getBucket(double time) {
+			if (time < start) {
+				return -1;
+			}
+			if (width <= 0) {
+				return buckets.length - 1;
+			}
+			double index = Math.floor((time - start) / width);
+			return (int) Math.min(index, buckets.length - 1);
+		}
+
+		/**
+		 * Gets the time at which a bucket starts.
+		 *
+		 * @param index the bucket index
+		 * @return the start time
+		 */
+		double getBucketStart(int index) {
+			return start + index * width;
+		}
+
+		/**
+		 * Adds an event to a bucket.
+		 *
+		 * @param index the bucket index
+		 * @param event the event
+		 */
+		void add(int index, SimEvent event) {
+			if (buckets[index] == null) {
+				buckets[index] = new ArrayList<SimEvent>();
+			}
+			buckets[index].add(event);
+		}
+	}
+
+}
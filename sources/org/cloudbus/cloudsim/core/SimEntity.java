@@ -42,6 +42,12 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The events sent to the entity that it has not processed yet. */
+	private DeferredQueue deferred;
+
+	/** The context of the simulation to which the entity belongs. */
+	private final SimulationContext context;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -54,6 +60,8 @@ public abstract class SimEntity implements Cloneable {
 		this.name = name;
 		id = -1;
 		state = RUNNABLE;
+		deferred = new DeferredQueue();
+		context = CloudSim.getContext();
 		CloudSim.addEntity(this);
 	}
 
@@ -66,6 +74,16 @@ public abstract class SimEntity implements Cloneable {
 		return name;
 	}
 
+	/**
+	 * Get the context of the simulation to which this entity belongs, that is, the context of the
+	 * thread that created it.
+	 * 
+	 * @return The simulation context
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
 	/**
 	 * Get the unique id number assigned to this entity.
 	 * 
@@ -428,6 +446,7 @@ public abstract class SimEntity implements Cloneable {
 		SimEntity copy = (SimEntity) super.clone();
 		copy.setName(name);
 		copy.setEventBuffer(null);
+		copy.deferred = new DeferredQueue();
 		return copy;
 	}
 
@@ -461,6 +480,16 @@ public abstract class SimEntity implements Cloneable {
 		return evbuf;
 	}
 
+	/**
+	 * Gets the deferred queue, which holds the events sent to the entity that it has not processed
+	 * yet.
+	 * 
+	 * @return the deferred queue
+	 */
+	protected DeferredQueue getDeferredQueue() {
+		return deferred;
+	}
+
 	// The entity states
 	/** The Constant RUNNABLE. */
 	public static final int RUNNABLE = 0;
@@ -0,0 +1,119 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * This class holds the state of one simulation: the clock, the entities, the future event queue and
+ * the other variables of {@link CloudSim}, as well as the state that other modules attach to it with
+ * {@link #setAttribute(Object, Object)}. The static methods of {@link CloudSim} work on the context
+ * of the calling thread, which is a default context shared by all threads unless another one has
+ * been set with {@link CloudSim#setContext(SimulationContext)}. Hence independent simulations can
+ * run in parallel in one JVM, each one in its own thread and with its own context:
+ *
+ * <pre>
+ * CloudSim.setContext(new SimulationContext());
+ * CloudSim.init(1, Calendar.getInstance(), false);
+ * // create the entities
+ * CloudSim.startSimulation();
+ * </pre>
+ *
+ * The entities, events and other objects of a simulation must not be shared with simulations
+ * running in other contexts.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim#getContext()
+ * @see CloudSim#setContext(SimulationContext)
+ */
+public class SimulationContext {
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The wait predicates. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/** The state attached by other modules. */
+	private final Map<Object, Object> attributes = new HashMap<Object, Object>();
+
+	/**
+	 * Gets the state attached to this context under a key. Modules that keep state in static
+	 * variables use their own class, or a private class, as the key, so that each simulation has its
+	 * own copy of the state.
+	 *
+	 * @param key the key
+	 * @return the state, or <tt>null</tt> if none has been attached under the key
+	 */
+	public Object getAttribute(Object key) {
+		return attributes.get(key);
+	}
+
+	/**
+	 * Attaches state to this context under a key.
+	 *
+	 * @param key the key
+	 * @param value the state, or <tt>null</tt> to remove it
+	 */
+	public void setAttribute(Object key, Object value) {
+		if (value == null) {
+			attributes.remove(key);
+		} else {
+			attributes.put(key, value);
+		}
+	}
+
+}
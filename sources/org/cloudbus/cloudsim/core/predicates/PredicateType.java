@@ -58,4 +58,23 @@ public class PredicateType extends Predicate {
 		return false;
 	}
 
+	/**
+	 * Gets the number of tags selected by this predicate.
+	 *
+	 * @return the number of tags
+	 */
+	public int getTagCount() {
+		return tags.length;
+	}
+
+	/**
+	 * Gets a tag selected by this predicate.
+	 *
+	 * @param index the index of the tag, between 0 and {@link #getTagCount()} - 1
+	 * @return the tag
+	 */
+	public int getTag(int index) {
+		return tags[index];
+	}
+
 }
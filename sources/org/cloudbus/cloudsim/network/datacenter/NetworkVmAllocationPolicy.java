@@ -18,6 +18,7 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.VmRegistry;
 
 /**
  * NetworkVmAllocationPolicy is an VmAllocationPolicy that chooses, as the host for a VM, the host
@@ -33,6 +34,9 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	/** The vm table. */
 	private Map<String, Host> vmTable;
 
+	/** The hosts of the vms, by vm key, so that looking a host up does not build the vm uid. */
+	private final VmRegistry<Host> hostRegistry = new VmRegistry<Host>();
+
 	/** The used pes. */
 	private Map<String, Integer> usedPes;
 
@@ -99,6 +103,7 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 
 				if (result) { // if vm were succesfully created in the host
 					getVmTable().put(vm.getUid(), host);
+					hostRegistry.put(vm.getKey(), host);
 					getUsedPes().put(vm.getUid(), requiredPes);
 					getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
 					result = true;
@@ -148,6 +153,7 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	@Override
 	public void deallocateHostForVm(Vm vm) {
 		Host host = getVmTable().remove(vm.getUid());
+		hostRegistry.remove(vm.getKey());
 		int idx = getHostList().indexOf(host);
 		int pes = getUsedPes().remove(vm.getUid());
 		if (host != null) {
@@ -168,7 +174,7 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(Vm vm) {
-		return getVmTable().get(vm.getUid());
+		return hostRegistry.get(vm.getKey());
 	}
 
 	/**
@@ -184,7 +190,7 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(int vmId, int userId) {
-		return getVmTable().get(Vm.getUid(userId, vmId));
+		return hostRegistry.get(Vm.getKey(userId, vmId));
 	}
 
 	/**
@@ -203,6 +209,14 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	 */
 	protected void setVmTable(Map<String, Host> vmTable) {
 		this.vmTable = vmTable;
+		hostRegistry.clear();
+		for (Host host : getHostList()) {
+			for (Vm vm : host.getVmList()) {
+				if (vmTable.get(vm.getUid()) == host) {
+					hostRegistry.put(vm.getKey(), host);
+				}
+			}
+		}
 	}
 
 	/**
@@ -260,6 +274,7 @@ public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
 			getVmTable().put(vm.getUid(), host);
+			hostRegistry.put(vm.getKey(), host);
 
 			int requiredPes = vm.getNumberOfPes();
 			int idx = getHostList().indexOf(host);
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Pe;
@@ -15,6 +16,7 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -34,6 +36,30 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerHostUtilizationHistory extends PowerHost {
 
+	/** The VMs the utilization history was summed over, in the order of the VM list. */
+	private PowerVm[] summedVms = new PowerVm[0];
+
+	/** The modification count of the utilization history of each of these VMs when summed. */
+	private int[] summedVmHistoryCounts = new int[0];
+
+	/** The MIPS of each of these VMs when summed. */
+	private double[] summedVmMips = new double[0];
+
+	/** The number of VMs summed. */
+	private int summedVmsNum;
+
+	/** The MIPS of the host when summed. */
+	private double summedHostMips = Double.NaN;
+
+	/**
+	 * The utilization history summed over the first VMs: row k is the sum over the first k VMs,
+	 * so that row 0 is all zeros.
+	 */
+	private double[][] utilizationHistorySums = new double[][] { new double[PowerVm.HISTORY_LENGTH] };
+
+	/** The utilization history returned, reused as long as its length does not change. */
+	private double[] utilizationHistory = new double[0];
+
 	/**
 	 * Instantiates a new power host utilization history.
 	 * 
@@ -57,19 +83,85 @@ public class PowerHostUtilizationHistory extends PowerHost {
 	}
 
 	/**
-	 * Gets the host utilization history.
+	 * Gets the host utilization history, from the newest value to the oldest, without the zeros at
+	 * its end.
+	 * 
+	 * The sums over the VMs are kept between calls: only the VMs from the first one that was added,
+	 * removed or sampled since the previous call are summed again, so that a VM appended to the VM
+	 * list, or removed from its end, costs one pass over its own history. The VMs are summed in the
+	 * order of the VM list, so that the values are exactly the ones of a sum over all the VMs.
+	 * 
+	 * The array returned is reused by the next calls; it should not be kept.
 	 * 
 	 * @return the host utilization history
 	 */
 	protected double[] getUtilizationHistory() {
-		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+		List<PowerVm> vmList = this.<PowerVm> getVmList();
+		int vmsNum = vmList.size();
 		double hostMips = getTotalMips();
-		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
+		int valid = 0;
+		if (hostMips == summedHostMips) {
+			int max = Math.min(summedVmsNum, vmsNum);
+			while (valid < max && isSummed(valid, vmList.get(valid))) {
+				valid++;
 			}
 		}
-		return MathUtil.trimZeroTail(utilizationHistory);
+		ensureSumsCapacity(vmsNum);
+		for (int k = valid; k < vmsNum; k++) {
+			PowerVm vm = vmList.get(k);
+			DoubleRingBuffer vmHistory = vm.getUtilizationHistory();
+			double[] sum = utilizationHistorySums[k + 1];
+			System.arraycopy(utilizationHistorySums[k], 0, sum, 0, sum.length);
+			for (int i = 0; i < vmHistory.size(); i++) {
+				sum[i] += vmHistory.getDouble(i) * vm.getMips() / hostMips;
+			}
+			summedVms[k] = vm;
+			summedVmHistoryCounts[k] = vmHistory.getModificationCount();
+			summedVmMips[k] = vm.getMips();
+		}
+		summedVmsNum = vmsNum;
+		summedHostMips = hostMips;
+
+		double[] sum = utilizationHistorySums[vmsNum];
+		int length = MathUtil.countNonZeroBeginning(sum);
+		if (utilizationHistory.length != length) {
+			utilizationHistory = new double[length];
+		}
+		System.arraycopy(sum, 0, utilizationHistory, 0, length);
+		return utilizationHistory;
+	}
+
+	/**
+	 * Checks whether a VM was summed at a position of the VM list, and is unchanged since.
+	 * 
+	 * @param index the position
+	 * @param vm the VM at this position
+	 * @return true, if the sums up to the VM can be reused
+	 */
+	private boolean isSummed(int index, PowerVm vm) {
+		return summedVms[index] == vm
+				&& summedVmHistoryCounts[index] == vm.getUtilizationHistory().getModificationCount()
+				&& summedVmMips[index] == vm.getMips();
+	}
+
+	/**
+	 * Makes room for the sums over a number of VMs, keeping the sums computed.
+	 * 
+	 * @param vmsNum the number of VMs
+	 */
+	private void ensureSumsCapacity(int vmsNum) {
+		if (utilizationHistorySums.length > vmsNum) {
+			return;
+		}
+		int capacity = Math.max(vmsNum + 1, 2 * utilizationHistorySums.length);
+		double[][] sums = Arrays.copyOf(utilizationHistorySums, capacity);
+		for (int k = utilizationHistorySums.length; k < capacity; k++) {
+			sums[k] = new double[PowerVm.HISTORY_LENGTH];
+		}
+		utilizationHistorySums = sums;
+		summedVms = Arrays.copyOf(summedVms, capacity - 1);
+		summedVmHistoryCounts = Arrays.copyOf(summedVmHistoryCounts, capacity - 1);
+		summedVmMips = Arrays.copyOf(summedVmMips, capacity - 1);
 	}
 
 }
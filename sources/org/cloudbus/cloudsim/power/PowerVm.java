@@ -8,12 +8,12 @@
 
 package org.cloudbus.cloudsim.power;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -36,8 +36,8 @@ public class PowerVm extends Vm {
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
-	/** The utilization history. */
-	private final List<Double> utilizationHistory = new LinkedList<Double>();
+	/** The utilization history, from the newest value to the oldest. */
+	private final DoubleRingBuffer utilizationHistory = new DoubleRingBuffer(HISTORY_LENGTH);
 
 	/** The previous time. */
 	private double previousTime;
@@ -107,20 +107,7 @@ public class PowerVm extends Vm {
 	 * @return the utilization mean in MIPS
 	 */
 	public double getUtilizationMad() {
-		double mad = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
-			double median = MathUtil.median(getUtilizationHistory());
-			double[] deviationSum = new double[n];
-			for (int i = 0; i < n; i++) {
-				deviationSum[i] = Math.abs(median - getUtilizationHistory().get(i));
-			}
-			mad = MathUtil.median(deviationSum);
-		}
-		return mad;
+		return MathUtil.mad(getUtilizationHistory().toDoubleArray());
 	}
 
 	/**
@@ -129,14 +116,12 @@ public class PowerVm extends Vm {
 	 * @return the utilization mean in MIPS
 	 */
 	public double getUtilizationMean() {
+		DoubleRingBuffer history = getUtilizationHistory();
 		double mean = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
+		if (!history.isEmpty()) {
+			int n = history.size();
 			for (int i = 0; i < n; i++) {
-				mean += getUtilizationHistory().get(i);
+				mean += history.getDouble(i);
 			}
 			mean /= n;
 		}
@@ -150,14 +135,12 @@ public class PowerVm extends Vm {
 	 */
 	public double getUtilizationVariance() {
 		double mean = getUtilizationMean();
+		DoubleRingBuffer history = getUtilizationHistory();
 		double variance = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
+		if (!history.isEmpty()) {
+			int n = history.size();
 			for (int i = 0; i < n; i++) {
-				double tmp = getUtilizationHistory().get(i) * getMips() - mean;
+				double tmp = history.getDouble(i) * getMips() - mean;
 				variance += tmp * tmp;
 			}
 			variance /= n;
@@ -166,23 +149,26 @@ public class PowerVm extends Vm {
 	}
 
 	/**
-	 * Adds the utilization history value.
+	 * Adds the utilization history value. Only the last HISTORY_LENGTH values are kept.
 	 * 
 	 * @param utilization the utilization
 	 */
 	public void addUtilizationHistoryValue(final double utilization) {
-		getUtilizationHistory().add(0, utilization);
-		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
-			getUtilizationHistory().remove(HISTORY_LENGTH);
-		}
+		getUtilizationHistory().addFirst(utilization);
 	}
 
 	/**
-	 * Gets the utilization history.
+	 * Gets the utilization history, from the newest value to the oldest. It is a view of the
+	 * history, not a copy.
+	 * 
+	 * Up to CloudSim Toolkit 3.0 this method returned a mutable List&lt;Double&gt;. The buffer
+	 * returned now is still a List&lt;Double&gt;, but a read-only one: subclasses that added or
+	 * removed values through this list must use {@link #addUtilizationHistoryValue(double)} or
+	 * {@link DoubleRingBuffer#addFirst(double)} instead.
 	 * 
 	 * @return the utilization history
 	 */
-	protected List<Double> getUtilizationHistory() {
+	protected DoubleRingBuffer getUtilizationHistory() {
 		return utilizationHistory;
 	}
 
@@ -17,6 +17,7 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.VmRegistry;
 
 /**
  * The class of an abstract power-aware VM allocation policy.
@@ -37,6 +38,9 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	/** The vm table. */
 	private final Map<String, Host> vmTable = new HashMap<String, Host>();
 
+	/** The hosts of the vms, by vm key, so that looking a host up does not build the vm uid. */
+	private final VmRegistry<Host> hostRegistry = new VmRegistry<Host>();
+
 	/**
 	 * Instantiates a new power vm allocation policy abstract.
 	 * 
@@ -67,7 +71,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 			return false;
 		}
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
-			getVmTable().put(vm.getUid(), host);
+			setHost(vm, host);
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
 					CloudSim.clock());
@@ -101,6 +105,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	@Override
 	public void deallocateHostForVm(Vm vm) {
 		Host host = getVmTable().remove(vm.getUid());
+		hostRegistry.remove(vm.getKey());
 		if (host != null) {
 			host.vmDestroy(vm);
 		}
@@ -112,7 +117,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	 */
 	@Override
 	public Host getHost(Vm vm) {
-		return getVmTable().get(vm.getUid());
+		return hostRegistry.get(vm.getKey());
 	}
 
 	/*
@@ -121,11 +126,23 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	 */
 	@Override
 	public Host getHost(int vmId, int userId) {
-		return getVmTable().get(Vm.getUid(userId, vmId));
+		return hostRegistry.get(Vm.getKey(userId, vmId));
+	}
+
+	/**
+	 * Records the host of a vm, in the vm table and in the host registry.
+	 * 
+	 * @param vm the vm
+	 * @param host the host
+	 */
+	protected void setHost(Vm vm, Host host) {
+		getVmTable().put(vm.getUid(), host);
+		hostRegistry.put(vm.getKey(), host);
 	}
 
 	/**
-	 * Gets the vm table.
+	 * Gets the vm table. The hosts are looked up in a registry keyed by vm keys, so a host must be
+	 * recorded with {@link #setHost(Vm, Host)} rather than put in this table.
 	 * 
 	 * @return the vm table
 	 */
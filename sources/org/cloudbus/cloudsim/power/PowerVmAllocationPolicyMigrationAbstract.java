@@ -522,7 +522,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 				Log.printLine("Couldn't restore VM #" + vm.getId() + " on host #" + host.getId());
 				System.exit(0);
 			}
-			getVmTable().put(vm.getUid(), host);
+			setHost(vm, host);
 		}
 	}
 
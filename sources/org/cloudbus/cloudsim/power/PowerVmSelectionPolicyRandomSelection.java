@@ -9,9 +9,9 @@
 package org.cloudbus.cloudsim.power;
 
 import java.util.List;
-import java.util.Random;
 
 import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.util.RandomStreams;
 
 /**
  * The Random Selection (RS) VM selection policy.
@@ -41,7 +41,7 @@ public class PowerVmSelectionPolicyRandomSelection extends PowerVmSelectionPolic
 		if (migratableVms.isEmpty()) {
 			return null;
 		}
-		int index = (new Random()).nextInt(migratableVms.size());
+		int index = RandomStreams.getStream(RandomStreams.VM_SELECTION).nextInt(migratableVms.size());
 		return migratableVms.get(index);
 	}
 
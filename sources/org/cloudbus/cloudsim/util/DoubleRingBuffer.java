@@ -0,0 +1,141 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * DoubleRingBuffer keeps the last values added to it, up to a fixed capacity, in a primitive
+ * array. The values are indexed from the newest (index 0) to the oldest; once the buffer is full,
+ * adding a value drops the oldest one. Adding a value and reading a value by its index are O(1) and
+ * do not allocate.
+ *
+ * The buffer is a read-only {@link java.util.List} view of its values, so that it can be passed
+ * where a list is expected; {@link #getDouble(int)} reads a value without boxing it.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class DoubleRingBuffer extends AbstractList<Double> implements RandomAccess {
+
+	/** The values, the newest at head. */
+	private final double[] values;
+
+	/** The index of the newest value in values. */
+	private int head;
+
+	/** The number of values. */
+	private int size;
+
+	/**
+	 * Instantiates a new empty buffer.
+	 *
+	 * @param capacity the largest number of values kept
+	 * @pre capacity > 0
+	 */
+	public DoubleRingBuffer(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		values = new double[capacity];
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Adds a value as the newest one, dropping the oldest one if the buffer is full.
+	 *
+	 * @param value the value
+	 */
+	public void addFirst(final double value) {
+		head = (head == 0 ? values.length : head) - 1;
+		values[head] = value;
+		if (size < values.length) {
+			size++;
+		}
+		modCount++;
+	}
+
+	/**
+	 * Gets a value.
+	 *
+	 * @param index the index of the value, 0 for the newest
+	 * @return the value
+	 * @pre 0 <= index < size()
+	 */
+	public double getDouble(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int i = head + index;
+		return values[i < values.length ? i : i - values.length];
+	}
+
+	@Override
+	public Double get(final int index) {
+		return getDouble(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the largest number of values kept.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Gets the number of times the buffer was changed, so that a result computed from its values
+	 * can be known to be up to date.
+	 *
+	 * @return the number of changes
+	 */
+	public int getModificationCount() {
+		return modCount;
+	}
+
+	/**
+	 * Removes all the values.
+	 */
+	@Override
+	public void clear() {
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Copies the values, from the newest to the oldest, to an array.
+	 *
+	 * @param array the array, at least size() long
+	 * @return the array
+	 */
+	public double[] toDoubleArray(final double[] array) {
+		int first = Math.min(size, values.length - head);
+		System.arraycopy(values, head, array, 0, first);
+		System.arraycopy(values, 0, array, first, size - first);
+		return array;
+	}
+
+	/**
+	 * Copies the values, from the newest to the oldest, to a new array.
+	 *
+	 * @return the array
+	 */
+	public double[] toDoubleArray() {
+		return toDoubleArray(new double[size]);
+	}
+
+}
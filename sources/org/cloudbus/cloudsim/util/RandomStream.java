@@ -0,0 +1,144 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.Random;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * RandomStream is a stream of pseudo-random numbers generated with the SplitMix64 algorithm, the
+ * algorithm of java.util.SplittableRandom: a 64-bit seed is advanced by a constant gamma and the
+ * result is mixed. A stream can be split into a new stream that is statistically independent of
+ * it, without any shared state. It is a {@link Random}, so that it can be used by the JDK
+ * collections and the CloudSim distributions, and a commons-math {@link RandomGenerator}, so that
+ * it can be used by the commons-math distributions.
+ *
+ * A stream is not thread-safe; each thread, or each simulation, should use its own streams.
+ *
+ * @see RandomStreams
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class RandomStream extends Random implements RandomGenerator {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The gamma of the streams that are not split from another stream. */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/** The double unit, 2^-53. */
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	/** The seed, advanced by gamma for each number. */
+	private long seed;
+
+	/** The gamma, an odd number. */
+	private long gamma;
+
+	/**
+	 * Instantiates a new stream.
+	 *
+	 * @param seed the seed
+	 */
+	public RandomStream(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Instantiates a new stream.
+	 *
+	 * @param seed the seed
+	 * @param gamma the gamma, an odd number
+	 */
+	private RandomStream(long seed, long gamma) {
+		super(seed);
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Splits a new stream from this one. Both streams are independent from then on.
+	 *
+	 * @return the new stream
+	 */
+	public RandomStream split() {
+		return new RandomStream(nextLong(), mixGamma(nextSeed()));
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		this.seed = seed;
+		this.gamma = GOLDEN_GAMMA;
+	}
+
+	@Override
+	public void setSeed(int seed) {
+		setSeed((long) seed);
+	}
+
+	@Override
+	public void setSeed(int[] seed) {
+		long combined = 0;
+		for (int value : seed) {
+			combined = mix64(combined + (value & 0xFFFFFFFFL));
+		}
+		setSeed(combined);
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (mix64(nextSeed()) >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	@Override
+	public double nextDouble() {
+		return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Advances the seed.
+	 *
+	 * @return the new seed
+	 */
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	/**
+	 * Mixes the bits of a 64-bit value (the finalizer of SplitMix64).
+	 *
+	 * @param z the value
+	 * @return the mixed value
+	 */
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Mixes a 64-bit value into a gamma: an odd number with enough bit transitions.
+	 *
+	 * @param z the value
+	 * @return the gamma
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * RandomStreams gives each source of randomness of a simulation, such as the overheads of a level
+ * of a workflow or the failures of a VM, its own named {@link RandomStream}. The stream of a name
+ * is seeded from the seed of the simulation and the name only, so that it does not depend on how
+ * much the other streams have been used: with the same seed, a source of randomness draws the same
+ * numbers even if the others change (common random numbers), and simulations running in parallel
+ * with different seeds draw independent numbers.
+ *
+ * The streams are kept per simulation context. Unless {@link #setSeed(long)} is called, the seed
+ * of a simulation is taken from the clock, so that runs differ as they used to.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class RandomStreams {
+
+	/** The stream the distributions created without a seed split their own streams from. */
+	public static final String DISTRIBUTIONS = "cloudsim.distributions";
+
+	/** The stream the stochastic utilization models created without a seed split their own from. */
+	public static final String UTILIZATION = "cloudsim.utilization";
+
+	/** The stream the random vm selection policy draws from. */
+	public static final String VM_SELECTION = "cloudsim.vmselection";
+
+	/**
+	 * Sets the seed of the simulation of the calling thread, and discards the streams created so
+	 * far.
+	 *
+	 * @param seed the seed
+	 */
+	public static void setSeed(long seed) {
+		State state = state();
+		state.seed = seed;
+		state.streams.clear();
+	}
+
+	/**
+	 * Gets the seed of the simulation of the calling thread.
+	 *
+	 * @return the seed
+	 */
+	public static long getSeed() {
+		return state().seed;
+	}
+
+	/**
+	 * Gets the stream of a name. The same stream is returned for the same name, until the seed is
+	 * set.
+	 *
+	 * @param name the name of the stream
+	 * @return the stream
+	 */
+	public static RandomStream getStream(String name) {
+		State state = state();
+		RandomStream stream = state.streams.get(name);
+		if (stream == null) {
+			stream = new RandomStream(RandomStream.mix64(state.seed ^ RandomStream.mix64(hash(name))));
+			state.streams.put(name, stream);
+		}
+		return stream;
+	}
+
+	/**
+	 * Splits a new stream from the stream of a name, for sources of randomness that are created
+	 * in numbers, such as distributions.
+	 *
+	 * @param name the name of the stream
+	 * @return a new stream
+	 */
+	public static RandomStream split(String name) {
+		return getStream(name).split();
+	}
+
+	/**
+	 * Hashes a name into 64 bits (FNV-1a), the same way in every JVM.
+	 *
+	 * @param name the name
+	 * @return the hash
+	 */
+	private static long hash(String name) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets the state of the random streams in the simulation context of the calling thread.
+	 *
+	 * @return the state
+	 */
+	private static State state() {
+		SimulationContext context = CloudSim.getContext();
+		State state = (State) context.getAttribute(State.class);
+		if (state == null) {
+			state = new State();
+			context.setAttribute(State.class, state);
+		}
+		return state;
+	}
+
+	/**
+	 * The state of the random streams, one per simulation context.
+	 */
+	private static final class State {
+
+		long seed = System.nanoTime();
+
+		final Map<String, RandomStream> streams = new HashMap<String, RandomStream>();
+	}
+}
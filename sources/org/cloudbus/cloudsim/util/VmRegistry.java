@@ -0,0 +1,209 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.Arrays;
+
+/**
+ * VmRegistry maps VMs, identified by their user id and VM id, to objects such as the host of each
+ * VM. The key of a VM is a long (see {@link #key(int, int)}), so that unlike the String uids of
+ * the VMs, looking a VM up does not build a String. It is an open addressing hash table with
+ * linear probing: lookups take constant time and allocate nothing.
+ *
+ * @param <T> the type of the objects
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class VmRegistry<T> {
+
+	/** The value of the free slots of the key table. */
+	private static final long FREE = Long.MIN_VALUE;
+
+	/** The keys, FREE for free slots. */
+	private long[] keys;
+
+	/** The objects. */
+	private Object[] values;
+
+	/** The number of keys. */
+	private int size;
+
+	/**
+	 * Instantiates a new, empty registry.
+	 */
+	public VmRegistry() {
+		init(16);
+	}
+
+	/**
+	 * Gets the key of a VM: its user id in the high 32 bits and its VM id in the low 32 bits.
+	 *
+	 * @param userId the user id
+	 * @param vmId the VM id
+	 * @return the key
+	 */
+	public static long key(int userId, int vmId) {
+		return ((long) userId << 32) | (vmId & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the object of a VM.
+	 *
+	 * @param key the key of the VM
+	 * @return the object, $null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long key) {
+		int slot = find(key);
+		return slot < 0 ? null : (T) values[slot];
+	}
+
+	/**
+	 * Checks whether a VM has an object.
+	 *
+	 * @param key the key of the VM
+	 * @return true if it has one
+	 */
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Sets the object of a VM.
+	 *
+	 * @param key the key of the VM
+	 * @param value the object
+	 * @return the previous object, $null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public T put(long key, T value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("Invalid key " + key);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				T previous = (T) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > keys.length / 2) {
+			resize(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the object of a VM.
+	 *
+	 * @param key the key of the VM
+	 * @return the removed object, $null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return null;
+		}
+		T previous = (T) values[slot];
+		// shift back the following keys of the probe sequence, so that no tombstone is needed
+		int mask = keys.length - 1;
+		int free = slot;
+		for (int next = (free + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+		}
+		keys[free] = FREE;
+		values[free] = null;
+		size--;
+		return previous;
+	}
+
+	/**
+	 * Removes all the objects.
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of VMs that have an object.
+	 *
+	 * @return the number of VMs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the slot of a key.
+	 *
+	 * @param key the key
+	 * @return the slot, -1 if the key is not in the table
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Mixes the bits of a key, so that consecutive ids spread over the table.
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Allocates the tables.
+	 *
+	 * @param capacity the number of slots, a power of two
+	 */
+	private void init(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		values = new Object[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Moves the keys to larger tables.
+	 *
+	 * @param capacity the new number of slots, a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		init(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				put(oldKeys[i], (T) oldValues[i]);
+			}
+		}
+	}
+}
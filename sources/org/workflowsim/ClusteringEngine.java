@@ -16,7 +16,9 @@
 package org.workflowsim;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -29,6 +31,7 @@ import org.workflowsim.clustering.balancing.BalancedClustering;
 import org.workflowsim.utils.ClusteringParameters;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.ClassType;
+import org.workflowsim.utils.Parameters.FileType;
 import org.workflowsim.utils.ReplicaCatalog;
 
 /**
@@ -205,11 +208,23 @@ public final class ClusteringEngine extends SimEntity {
          * WorkflowSim will transfers them when this job is executed
          */
         List<FileItem> fileList = new ArrayList<>();
+        /**
+         * An input file is a real input file (see FileItem.isRealInputFile)
+         * unless a file of the list with the same name is an output file, so
+         * the names of the output files are collected first instead of
+         * scanning the list for each input file.
+         */
+        Set<String> outputFileNames = new HashSet<>();
+        for (FileItem file : list) {
+            if (file.getType() == FileType.OUTPUT) {
+                outputFileNames.add(file.getName());
+            }
+        }
         for (FileItem file : list) {
             /**
              * To avoid duplicate files
              */
-            if (file.isRealInputFile(list)) {
+            if (file.getType() == FileType.INPUT && !outputFileNames.contains(file.getName())) {
                 ReplicaCatalog.addFileToStorage(file.getName(), Parameters.SOURCE);
                 fileList.add(file);
             }
@@ -34,6 +34,11 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  */
 public class Task extends Cloudlet {
 
+    /*
+     * The utilization model of the tasks. It has no state, so all the tasks
+     * share it instead of creating three models each.
+     */
+    private static final UtilizationModelFull UTILIZATION_MODEL_FULL = new UtilizationModelFull();
     /*
      * The list of parent tasks. 
      */
@@ -93,7 +98,7 @@ public class Task extends Cloudlet {
          * and utilizationModelBw are just set to be the default mode. You can
          * change it for your own purpose.
          */
-        super(taskId, taskLength, 1, 0, 0, new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+        super(taskId, taskLength, 1, 0, 0, UTILIZATION_MODEL_FULL, UTILIZATION_MODEL_FULL, UTILIZATION_MODEL_FULL);
 
         this.childList = new ArrayList<>();
         this.parentList = new ArrayList<>();
@@ -15,8 +15,12 @@
  */
 package org.workflowsim;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Consts;
@@ -45,6 +49,25 @@ import org.workflowsim.utils.Parameters.FileType;
  */
 public class WorkflowDatacenter extends Datacenter {
 
+    /**
+     * The vms of the hosts, in the order of the hosts and of their vm lists,
+     * null if the vms may have changed since it was built.
+     */
+    private List<VmState> vmStates;
+    private Map<Vm, VmState> mVm2State;
+    /**
+     * Whether every host updates its vms as Host does, so that the vms can be
+     * updated one by one.
+     */
+    private boolean vmsUpdatedOneByOne;
+    /**
+     * The vms (indexes in vmStates) that have jobs to process, and the vms
+     * that have been updated or have received a job since the last completion
+     * check.
+     */
+    private final BitSet activeVms = new BitSet();
+    private final BitSet dirtyVms = new BitSet();
+
     public WorkflowDatacenter(String name,
             DatacenterCharacteristics characteristics,
             VmAllocationPolicy vmAllocationPolicy,
@@ -133,6 +156,7 @@ public class WorkflowDatacenter extends Datacenter {
                 fileTransferTime = processDataStageInForComputeJob(job.getFileList(), job);
             }
 
+            activate(vm);
             CloudletScheduler scheduler = vm.getCloudletScheduler();
             double estimatedFinishTime = scheduler.cloudletSubmit(job, fileTransferTime);
             updateTaskExecTime(job, vm);
@@ -231,8 +255,8 @@ public class WorkflowDatacenter extends Datacenter {
             //The input file is not an output File 
             if (file.isRealInputFile(requiredFiles)) {
                 double maxBwth = 0.0;
-                List siteList = ReplicaCatalog.getStorageList(file.getName());
-                if (siteList.isEmpty()) {
+                int fileId = ReplicaCatalog.getFileId(file.getName());
+                if (fileId < 0) {
                     throw new Exception(file.getName() + " does not exist");
                 }
                 switch (ReplicaCatalog.getFileSystem()) {
@@ -257,29 +281,33 @@ public class WorkflowDatacenter extends Datacenter {
                         Host host = getVmAllocationPolicy().getHost(vmId, userId);
                         Vm vm = host.getVm(vmId, userId);
 
+                        int localSite = ReplicaCatalog.getSite(this.getName());
+                        int vmSite = ReplicaCatalog.getVmSite(vmId);
+                        int sourceSite = ReplicaCatalog.getSite(Parameters.SOURCE);
                         boolean requiredFileStagein = true;
-                        for (Iterator it = siteList.iterator(); it.hasNext();) {
+                        for (int site = ReplicaCatalog.getNextSite(fileId, 0); site >= 0;
+                                site = ReplicaCatalog.getNextSite(fileId, site + 1)) {
                             //site is where one replica of this data is located at
-                            String site = (String) it.next();
-                            if (site.equals(this.getName())) {
+                            if (site == localSite) {
                                 continue;
                             }
                             /**
                              * This file is already in the local vm and thus it
                              * is no need to transfer
                              */
-                            if (site.equals(Integer.toString(vmId))) {
+                            if (site == vmSite) {
                                 requiredFileStagein = false;
                                 break;
                             }
                             double bwth;
-                            if (site.equals(Parameters.SOURCE)) {
+                            if (site == sourceSite) {
                                 //transfers from the source to the VM is limited to the VM bw only
                                 bwth = vm.getBw();
                                 //bwth = dcStorage.getBaseBandwidth();
                             } else {
                                 //transfers between two VMs is limited to both VMs
-                                bwth = Math.min(vm.getBw(), getVmAllocationPolicy().getHost(Integer.parseInt(site), userId).getVm(Integer.parseInt(site), userId).getBw());
+                                int siteVmId = Integer.parseInt(ReplicaCatalog.getSiteName(site));
+                                bwth = Math.min(vm.getBw(), getVmAllocationPolicy().getHost(siteVmId, userId).getVm(siteVmId, userId).getBw());
                                 //bwth = dcStorage.getBandwidth(Integer.parseInt(site), vmId);
                             }
                             if (bwth > maxBwth) {
@@ -297,7 +325,7 @@ public class WorkflowDatacenter extends Datacenter {
                         //We should add but since CondorVm has a small capability it often fails
                         //We currently don't use this storage to do anything meaningful. It is left for future. 
                         //condorVm.addLocalFile(file);
-                        ReplicaCatalog.addFileToStorage(file.getName(), Integer.toString(vmId));
+                        ReplicaCatalog.addFileToVm(file.getName(), vmId);
                         break;
                 }
             }
@@ -305,6 +333,37 @@ public class WorkflowDatacenter extends Datacenter {
         return time;
     }
 
+    /**
+     * Processes an event. Events other than job submissions and vm updates may
+     * change the vms or their jobs without going through the vm index, so the
+     * vms are brought up to date before them and the index is rebuilt after
+     * them.
+     *
+     * @param ev a SimEvent object
+     */
+    @Override
+    public void processEvent(SimEvent ev) {
+        switch (ev.getTag()) {
+            case CloudSimTags.VM_DATACENTER_EVENT:
+            case CloudSimTags.CLOUDLET_SUBMIT:
+            case CloudSimTags.CLOUDLET_SUBMIT_ACK:
+                super.processEvent(ev);
+                break;
+            default:
+                synchronizeVms();
+                super.processEvent(ev);
+                this.vmStates = null;
+                break;
+        }
+    }
+
+    /**
+     * Updates the jobs of the vms. The vms without jobs are skipped: updating
+     * them only sets their last update time, which is done when they get a
+     * job again (see activate). The vms with jobs are all updated, since
+     * their progress is rounded at each update and skipping an update would
+     * change the finish times of their jobs.
+     */
     @Override
     protected void updateCloudletProcessing() {
         // if some time passed since last processing
@@ -312,16 +371,36 @@ public class WorkflowDatacenter extends Datacenter {
         // simulation step is skipped and schedulers are not properly initialized
         //this is a bug of CloudSim if the runtime is smaller than 0.1 (now is 0.01) it doesn't work at all
         if (CloudSim.clock() < 0.111 || CloudSim.clock() > getLastProcessTime() + 0.01) {
-            List<? extends Host> list = getVmAllocationPolicy().getHostList();
+            buildVmIndex();
             double smallerTime = Double.MAX_VALUE;
-            // for each host...
-            for (Host host : list) {
-                // inform VMs to update processing
-                double time = host.updateVmsProcessing(CloudSim.clock());
-                // what time do we expect that the next cloudlet will finish?
-                if (time < smallerTime) {
-                    smallerTime = time;
+            if (vmsUpdatedOneByOne) {
+                for (int i = activeVms.nextSetBit(0); i >= 0; i = activeVms.nextSetBit(i + 1)) {
+                    VmState state = vmStates.get(i);
+                    double time = state.update(CloudSim.clock());
+                    dirtyVms.set(i);
+                    if (time > 0.0) {
+                        // what time do we expect that the next cloudlet will finish?
+                        if (time < smallerTime) {
+                            smallerTime = time;
+                        }
+                    } else if (state.skippable) {
+                        // no more jobs, skip this vm until it gets one
+                        activeVms.clear(i);
+                        state.stale = true;
+                    }
+                }
+            } else {
+                List<? extends Host> list = getVmAllocationPolicy().getHostList();
+                // for each host...
+                for (Host host : list) {
+                    // inform VMs to update processing
+                    double time = host.updateVmsProcessing(CloudSim.clock());
+                    // what time do we expect that the next cloudlet will finish?
+                    if (time < smallerTime) {
+                        smallerTime = time;
+                    }
                 }
+                dirtyVms.set(0, vmStates.size());
             }
             // gurantees a minimal interval before scheduling the event
             if (smallerTime < CloudSim.clock() + 0.11) {
@@ -336,26 +415,116 @@ public class WorkflowDatacenter extends Datacenter {
 
     /**
      * Verifies if some cloudlet inside this PowerDatacenter already finished.
-     * If yes, send it to the User/Broker
+     * If yes, send it to the User/Broker. Only the vms updated or given a job
+     * since the last check can have finished cloudlets.
      *
      * @pre $none
      * @post $none
      */
     @Override
     protected void checkCloudletCompletion() {
-        List<? extends Host> list = getVmAllocationPolicy().getHostList();
-        for (Host host : list) {
+        buildVmIndex();
+        for (int i = dirtyVms.nextSetBit(0); i >= 0; i = dirtyVms.nextSetBit(i + 1)) {
+            Vm vm = vmStates.get(i).vm;
+            while (vm.getCloudletScheduler().isFinishedCloudlets()) {
+                Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
+                if (cl != null) {
+                    sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+                    register(cl);
+                }
+            }
+        }
+        dirtyVms.clear();
+    }
+
+    /**
+     * Builds the vm index if the vms may have changed. All vms are then
+     * considered active and dirty, as none has been skipped yet.
+     */
+    private void buildVmIndex() {
+        if (vmStates != null) {
+            return;
+        }
+        vmStates = new ArrayList<>();
+        mVm2State = new IdentityHashMap<>();
+        vmsUpdatedOneByOne = true;
+        Map<Class<?>, Boolean> mClass2Skippable = new HashMap<>();
+        for (Host host : getVmAllocationPolicy().getHostList()) {
+            vmsUpdatedOneByOne &= inheritsFrom(host.getClass(), Host.class, "updateVmsProcessing",
+                    double.class);
             for (Vm vm : host.getVmList()) {
-                while (vm.getCloudletScheduler().isFinishedCloudlets()) {
-                    Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
-                    if (cl != null) {
-                        sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
-                        register(cl);
-                    }
+                Boolean skippable = mClass2Skippable.get(vm.getClass());
+                if (skippable == null) {
+                    skippable = inheritsFrom(vm.getClass(), Vm.class, "updateVmProcessing",
+                            double.class, List.class);
+                    mClass2Skippable.put(vm.getClass(), skippable);
                 }
+                VmState state = new VmState(vm, host, vmStates.size(), skippable);
+                mVm2State.put(vm, state);
+                vmStates.add(state);
             }
         }
+        activeVms.clear();
+        activeVms.set(0, vmStates.size());
+        dirtyVms.clear();
+        dirtyVms.set(0, vmStates.size());
     }
+
+    /**
+     * Checks whether a class inherits a method from a base class instead of
+     * overriding it
+     *
+     * @param clazz the class
+     * @param base the base class
+     * @param name the name of the method
+     * @param parameterTypes the parameter types of the method
+     * @return whether the method of clazz is the one declared by base, false
+     * if it has no such method
+     */
+    private static boolean inheritsFrom(Class<?> clazz, Class<?> base, String name,
+            Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes).getDeclaringClass() == base;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Marks a vm as active before it gets a job, and brings it up to date if
+     * it has been skipped
+     *
+     * @param vm the vm
+     */
+    private void activate(Vm vm) {
+        buildVmIndex();
+        VmState state = mVm2State.get(vm);
+        if (state == null) {
+            return;
+        }
+        if (state.stale) {
+            state.update(getLastProcessTime());
+            state.stale = false;
+        }
+        activeVms.set(state.index);
+        dirtyVms.set(state.index);
+    }
+
+    /**
+     * Brings all the skipped vms up to date
+     */
+    private void synchronizeVms() {
+        if (vmStates == null) {
+            return;
+        }
+        for (VmState state : vmStates) {
+            if (state.stale) {
+                state.update(getLastProcessTime());
+                state.stale = false;
+            }
+        }
+    }
+
     /*
      * Register a file to the storage if it is an output file
      * @param requiredFiles, all files to be stage-in
@@ -382,10 +551,40 @@ public class WorkflowDatacenter extends Datacenter {
                          * Left here for future work
                          */
                         CondorVM vm = (CondorVM) host.getVm(vmId, userId);
-                        ReplicaCatalog.addFileToStorage(file.getName(), Integer.toString(vmId));
+                        ReplicaCatalog.addFileToVm(file.getName(), vmId);
                         break;
                 }
             }
         }
     }
+
+    /**
+     * A vm in the vm index
+     */
+    private static final class VmState {
+
+        private final Vm vm;
+        private final Host host;
+        private final int index;
+        /**
+         * Whether the vm updates its jobs as Vm does, so that it can be
+         * skipped when it has none
+         */
+        private final boolean skippable;
+        /**
+         * Whether the vm has been skipped since its last update
+         */
+        private boolean stale;
+
+        private VmState(Vm vm, Host host, int index, boolean skippable) {
+            this.vm = vm;
+            this.host = host;
+            this.index = index;
+            this.skippable = skippable;
+        }
+
+        private double update(double currentTime) {
+            return vm.updateVmProcessing(currentTime, host.getVmScheduler().getAllocatedMipsForVm(vm));
+        }
+    }
 }
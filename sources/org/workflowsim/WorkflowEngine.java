@@ -16,10 +16,11 @@
 package org.workflowsim;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
@@ -41,9 +42,10 @@ import org.workflowsim.utils.Parameters;
 public final class WorkflowEngine extends SimEntity {
 
     /**
-     * The job list.
+     * The job list. It may still hold submitted jobs, which are removed in
+     * batches, see compactJobsList().
      */
-    protected List<? extends Cloudlet> jobsList;
+    protected List<Job> jobsList;
     /**
      * The job submitted list.
      */
@@ -62,6 +64,32 @@ public final class WorkflowEngine extends SimEntity {
      */
     private List<Integer> schedulerId;
     private List<WorkflowScheduler> scheduler;
+    /**
+     * The ids of the jobs that have returned. A job is ready once the ids of
+     * all of its parents are in this set.
+     */
+    private final BitSet jobsReceivedIds;
+    /**
+     * The jobs in the job list that have not been submitted yet.
+     */
+    private final Map<Job, PendingJob> pendingJobs;
+    /**
+     * The pending jobs waiting for a parent id, one entry per parent edge.
+     */
+    private final Map<Integer, List<PendingJob>> jobsWaitingFor;
+    /**
+     * The pending jobs whose parents have all returned, in job list order.
+     */
+    private final PriorityQueue<PendingJob> readyJobs;
+    /**
+     * The sequence number given to the next pending job.
+     */
+    private long pendingSequence;
+    /**
+     * The number of submitted jobs still kept in the job list. They are
+     * removed lazily to avoid shifting the list on every submission.
+     */
+    private int submittedJobsInList;
 
     /**
      * Created a new WorkflowEngine object.
@@ -79,6 +107,11 @@ public final class WorkflowEngine extends SimEntity {
     public WorkflowEngine(String name, int schedulers) throws Exception {
         super(name);
 
+        jobsReceivedIds = new BitSet();
+        pendingJobs = new HashMap<>();
+        jobsWaitingFor = new HashMap<>();
+        readyJobs = new PriorityQueue<>();
+
         setJobsList(new ArrayList<>());
         setJobsSubmittedList(new ArrayList<>());
         setJobsReceivedList(new ArrayList<>());
@@ -132,7 +165,7 @@ public final class WorkflowEngine extends SimEntity {
      * @param list the list
      */
     public void submitCloudletList(List<? extends Cloudlet> list) {
-        getJobsList().addAll(list);
+        addPendingJobs(list);
     }
 
     /**
@@ -203,7 +236,12 @@ public final class WorkflowEngine extends SimEntity {
      */
     protected void processJobSubmit(SimEvent ev) {
         List<? extends Cloudlet> list = (List) ev.getData();
-        setJobsList(list);
+        setJobsList(new ArrayList<>());
+        pendingJobs.clear();
+        jobsWaitingFor.clear();
+        readyJobs.clear();
+        submittedJobsInList = 0;
+        addPendingJobs(list);
     }
 
     /**
@@ -218,13 +256,16 @@ public final class WorkflowEngine extends SimEntity {
         Job job = (Job) ev.getData();
         if (job.getCloudletStatus() == Cloudlet.FAILED) {
             // Reclusteringengine will add retry job to jobList
-            int newId = getJobsList().size() + getJobsSubmittedList().size();
-            getJobsList().addAll(ReclusteringEngine.process(job, newId));
+            int newId = getPendingJobsNum() + getJobsSubmittedList().size();
+            List<Job> retryJobs = ReclusteringEngine.process(job, newId);
+            addPendingJobs(retryJobs);
+            addRetryDependencies(retryJobs);
         }
 
         getJobsReceivedList().add(job);
+        releaseChildren(job.getCloudletId());
         jobsSubmitted--;
-        if (getJobsList().isEmpty() && jobsSubmitted == 0) {
+        if (getPendingJobsNum() == 0 && jobsSubmitted == 0) {
             //send msg to all the schedulers
             for (int i = 0; i < getSchedulerIds().size(); i++) {
                 sendNow(getSchedulerId(i), CloudSimTags.END_OF_SIMULATION, null);
@@ -250,20 +291,111 @@ public final class WorkflowEngine extends SimEntity {
     }
 
     /**
-     * Checks whether a job list contains a id
+     * Adds jobs to the job list and indexes them by the parents they still
+     * wait for. Jobs whose parents have all returned become ready.
+     *
+     * @param list the jobs to add
+     */
+    private void addPendingJobs(List<? extends Cloudlet> list) {
+        for (Cloudlet cloudlet : list) {
+            Job job = (Job) cloudlet;
+            jobsList.add(job);
+            PendingJob pending = new PendingJob(job, pendingSequence++);
+            pendingJobs.put(job, pending);
+            List<Job> parentList = job.getParentList();
+            for (Job parent : parentList) {
+                waitFor(pending, parent.getCloudletId());
+            }
+            if (pending.remaining == 0) {
+                readyJobs.add(pending);
+            }
+        }
+    }
+
+    /**
+     * Registers the parent edges that ReclusteringEngine appends to the
+     * children of a failed job when it creates the retry jobs.
+     *
+     * @param retryJobs the retry jobs
+     */
+    private void addRetryDependencies(List<Job> retryJobs) {
+        for (Job retryJob : retryJobs) {
+            for (Task child : retryJob.getChildList()) {
+                PendingJob pending = pendingJobs.get(child);
+                if (pending != null) {
+                    waitFor(pending, retryJob.getCloudletId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes a pending job wait for a parent id unless it has returned.
+     *
+     * @param pending the pending job
+     * @param parentId the parent id
+     */
+    private void waitFor(PendingJob pending, int parentId) {
+        if (jobsReceivedIds.get(parentId)) {
+            return;
+        }
+        List<PendingJob> waiting = jobsWaitingFor.get(parentId);
+        if (waiting == null) {
+            waiting = new ArrayList<>();
+            jobsWaitingFor.put(parentId, waiting);
+        }
+        waiting.add(pending);
+        pending.remaining++;
+    }
+
+    /**
+     * Marks a job id as returned and releases the jobs that only waited for
+     * it.
      *
-     * @param jobList the job list
      * @param id the job id
-     * @return
      */
-    private boolean hasJobListContainsID(List jobList, int id) {
-        for (Iterator it = jobList.iterator(); it.hasNext();) {
-            Job job = (Job) it.next();
-            if (job.getCloudletId() == id) {
-                return true;
+    private void releaseChildren(int id) {
+        if (jobsReceivedIds.get(id)) {
+            return;
+        }
+        jobsReceivedIds.set(id);
+        List<PendingJob> waiting = jobsWaitingFor.remove(id);
+        if (waiting != null) {
+            for (PendingJob pending : waiting) {
+                pending.remaining--;
+                if (pending.remaining == 0) {
+                    readyJobs.add(pending);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of jobs in the job list that have not been submitted.
+     *
+     * @return the number of pending jobs
+     */
+    private int getPendingJobsNum() {
+        return jobsList.size() - submittedJobsInList;
+    }
+
+    /**
+     * Removes the submitted jobs from the job list once they make up half of
+     * it, so that each submission costs amortized O(1). It is called when
+     * jobs are submitted.
+     */
+    private void compactJobsList() {
+        if (submittedJobsInList == 0 || submittedJobsInList * 2 < jobsList.size()) {
+            return;
+        }
+        List<Job> compacted = new ArrayList<>(jobsList.size() - submittedJobsInList);
+        for (Job job : jobsList) {
+            if (pendingJobs.containsKey(job)) {
+                compacted.add(job);
             }
         }
-        return false;
+        setJobsList(compacted);
+        submittedJobsInList = 0;
     }
 
     /**
@@ -274,42 +406,35 @@ public final class WorkflowEngine extends SimEntity {
      */
     protected void submitJobs() {
 
-        List<Job> list = getJobsList();
         Map<Integer, List> allocationList = new HashMap<>();
         for (int i = 0; i < getSchedulers().size(); i++) {
             List<Job> submittedList = new ArrayList<>();
             allocationList.put(getSchedulerId(i), submittedList);
         }
-        int num = list.size();
-        for (int i = 0; i < num; i++) {
-            //at the beginning
-            Job job = list.get(i);
+        while (!readyJobs.isEmpty()) {
+            PendingJob pending = readyJobs.poll();
+            Job job = pending.job;
+            /**
+             * A job whose id has returned stays in the job list. A job that
+             * got a new parent after it became ready is queued again once
+             * that parent returns.
+             */
             //Dont use job.isFinished() it is not right
-            if (!hasJobListContainsID(this.getJobsReceivedList(), job.getCloudletId())) {
-                List<Job> parentList = job.getParentList();
-                boolean flag = true;
-                for (Job parent : parentList) {
-                    if (!hasJobListContainsID(this.getJobsReceivedList(), parent.getCloudletId())) {
-                        flag = false;
-                        break;
-                    }
-                }
-                /**
-                 * This job's parents have all completed successfully. Should
-                 * submit.
-                 */
-                if (flag) {
-                    List submittedList = allocationList.get(job.getUserId());
-                    submittedList.add(job);
-                    jobsSubmitted++;
-                    getJobsSubmittedList().add(job);
-                    list.remove(job);
-                    i--;
-                    num--;
-                }
+            if (pending.remaining > 0 || jobsReceivedIds.get(job.getCloudletId())) {
+                continue;
             }
-
+            /**
+             * This job's parents have all completed successfully. Should
+             * submit.
+             */
+            List submittedList = allocationList.get(job.getUserId());
+            submittedList.add(job);
+            jobsSubmitted++;
+            getJobsSubmittedList().add(job);
+            pendingJobs.remove(job);
+            submittedJobsInList++;
         }
+        compactJobsList();
         /**
          * If we have multiple schedulers. Divide them equally.
          */
@@ -369,23 +494,30 @@ public final class WorkflowEngine extends SimEntity {
     }
 
     /**
-     * Gets the job list.
+     * Gets the job list: the jobs that have not been submitted yet, in the
+     * order in which they were added. The list is a copy; jobs are added
+     * with submitCloudletList().
      *
      * @param <T> the generic type
      * @return the job list
      */
     @SuppressWarnings("unchecked")
     public <T extends Cloudlet> List<T> getJobsList() {
-        return (List<T>) jobsList;
+        List<Job> list = new ArrayList<>(getPendingJobsNum());
+        for (Job job : jobsList) {
+            if (pendingJobs.containsKey(job)) {
+                list.add(job);
+            }
+        }
+        return (List<T>) list;
     }
 
     /**
      * Sets the job list.
      *
-     * @param <T> the generic type
-     * @param cloudletList the new job list
+     * @param jobsList the new job list
      */
-    private <T extends Cloudlet> void setJobsList(List<T> jobsList) {
+    private void setJobsList(List<Job> jobsList) {
         this.jobsList = jobsList;
     }
 
@@ -515,4 +647,27 @@ public final class WorkflowEngine extends SimEntity {
         }
         return null;
     }
+
+    /**
+     * A job in the job list together with the number of parents it still
+     * waits for. Pending jobs are ordered by their position in the job list so
+     * that jobs are submitted in the same order as the list.
+     */
+    private static final class PendingJob implements Comparable<PendingJob> {
+
+        private final Job job;
+        private final long sequence;
+        private int remaining;
+
+        PendingJob(Job job, long sequence) {
+            this.job = job;
+            this.sequence = sequence;
+            this.remaining = 0;
+        }
+
+        @Override
+        public int compareTo(PendingJob other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
 }
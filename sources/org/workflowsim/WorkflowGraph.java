@@ -0,0 +1,365 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.workflowsim.utils.Parameters;
+import org.workflowsim.utils.Parameters.FileType;
+import org.workflowsim.utils.ReplicaCatalog;
+
+/**
+ * WorkflowGraph is the content of a DAX file as it has been parsed: the tasks,
+ * their files and their dependencies. It is immutable so that a workflow that
+ * is simulated many times (for example in a parameter sweep) is parsed only
+ * once, even by simulations running in parallel. Since tasks are changed while
+ * a workflow is simulated, each simulation creates its own tasks with
+ * createTasks().
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public final class WorkflowGraph {
+
+    /**
+     * The length of each task before the runtime scale is applied.
+     */
+    final long[] lengths;
+    /**
+     * The type of each task.
+     */
+    final String[] types;
+    /**
+     * The depth of each task.
+     */
+    final int[] depths;
+    /**
+     * The files used by each task: the files of task i are at indexes
+     * fileStart[i] to fileStart[i + 1] - 1 of fileNames, fileSizes and
+     * fileTypes.
+     */
+    final int[] fileStart;
+    final String[] fileNames;
+    final double[] fileSizes;
+    final FileType[] fileTypes;
+    /**
+     * The children of each task, in the order of the DAX file: the children
+     * of task i are children[childStart[i]] to children[childStart[i + 1] -
+     * 1].
+     */
+    final int[] childStart;
+    final int[] children;
+    /**
+     * The parents of each task, in the order of the DAX file.
+     */
+    final int[] parentStart;
+    final int[] parents;
+
+    /**
+     * Initialize a WorkflowGraph from its arrays, which are not copied
+     */
+    WorkflowGraph(long[] lengths, String[] types, int[] depths,
+            int[] fileStart, String[] fileNames, double[] fileSizes, FileType[] fileTypes,
+            int[] childStart, int[] children, int[] parentStart, int[] parents) {
+        this.lengths = lengths;
+        this.types = types;
+        this.depths = depths;
+        this.fileStart = fileStart;
+        this.fileNames = fileNames;
+        this.fileSizes = fileSizes;
+        this.fileTypes = fileTypes;
+        this.childStart = childStart;
+        this.children = children;
+        this.parentStart = parentStart;
+        this.parents = parents;
+    }
+
+    /**
+     * Initialize a WorkflowGraph from a Builder
+     *
+     * @param builder the builder
+     */
+    private WorkflowGraph(Builder builder) {
+        int size = builder.lengths.size();
+        this.lengths = new long[size];
+        for (int i = 0; i < size; i++) {
+            this.lengths[i] = builder.lengths.get(i);
+        }
+        this.types = builder.types.toArray(new String[size]);
+        this.fileStart = toArray(builder.fileStart);
+        this.fileNames = builder.fileNames.toArray(new String[builder.fileNames.size()]);
+        this.fileSizes = new double[fileNames.length];
+        for (int i = 0; i < fileSizes.length; i++) {
+            this.fileSizes[i] = builder.fileSizes.get(i);
+        }
+        this.fileTypes = builder.fileTypes.toArray(new FileType[fileNames.length]);
+        int[] edgeParents = toArray(builder.edgeParents);
+        int[] edgeChildren = toArray(builder.edgeChildren);
+        this.childStart = new int[size + 1];
+        this.children = group(edgeParents, edgeChildren, childStart);
+        this.parentStart = new int[size + 1];
+        this.parents = group(edgeChildren, edgeParents, parentStart);
+        this.depths = computeDepths();
+    }
+
+    /**
+     * Groups the dependencies by one of their ends, keeping their order
+     *
+     * @param from the end the dependencies are grouped by
+     * @param to the other end
+     * @param start filled with the first index of the group of each task
+     * @return the other ends, group by group
+     */
+    private static int[] group(int[] from, int[] to, int[] start) {
+        for (int i = 0; i < from.length; i++) {
+            start[from[i] + 1]++;
+        }
+        for (int i = 0; i + 1 < start.length; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] next = start.clone();
+        int[] grouped = new int[to.length];
+        for (int i = 0; i < from.length; i++) {
+            grouped[next[from[i]]++] = to[i];
+        }
+        return grouped;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Gets the number of tasks
+     *
+     * @return the number of tasks
+     */
+    public int getTaskNum() {
+        return lengths.length;
+    }
+
+    /**
+     * Gets the number of dependencies
+     *
+     * @return the number of dependencies
+     */
+    public int getDependencyNum() {
+        return children.length;
+    }
+
+    /**
+     * Creates the tasks of this workflow and appends them to a list. Task ids
+     * are consecutive, the runtime scale of Parameters is applied to task
+     * lengths and input files are shared through the ReplicaCatalog, exactly
+     * as if the DAX file was parsed again.
+     *
+     * @param firstId the id of the first task
+     * @param userId the user id
+     * @param taskList the list the tasks are appended to
+     * @return the id following the id of the last task
+     */
+    public int createTasks(int firstId, int userId, List<Task> taskList) {
+        Task[] tasks = new Task[lengths.length];
+        for (int i = 0; i < tasks.length; i++) {
+            long length = lengths[i];
+            //multiple the scale, by default it is 1.0
+            length *= Parameters.getRuntimeScale();
+            List<FileItem> mFileList = new ArrayList<>(fileStart[i + 1] - fileStart[i]);
+            for (int j = fileStart[i]; j < fileStart[i + 1]; j++) {
+                String fileName = fileNames[j];
+                FileType type = fileTypes[j];
+                FileItem tFile;
+                if (type == FileType.OUTPUT) {
+                    tFile = new FileItem(fileName, fileSizes[j]);
+                } else if (ReplicaCatalog.containsFile(fileName)) {
+                    tFile = ReplicaCatalog.getFile(fileName);
+                } else {
+                    tFile = new FileItem(fileName, fileSizes[j]);
+                    ReplicaCatalog.setFile(fileName, tFile);
+                }
+                tFile.setType(type);
+                mFileList.add(tFile);
+            }
+            Task task = new Task(firstId + i, length);
+            task.setType(types[i]);
+            task.setUserId(userId);
+            for (FileItem file : mFileList) {
+                task.addRequiredFile(file.getName());
+            }
+            task.setFileList(mFileList);
+            task.setDepth(depths[i]);
+            /**
+             * The dependencies of a task are known, so its lists are
+             * allocated with the right size rather than with room for ten
+             * tasks, which adds up on large workflows.
+             */
+            task.setChildList(new ArrayList<Task>(childStart[i + 1] - childStart[i]));
+            task.setParentList(new ArrayList<Task>(parentStart[i + 1] - parentStart[i]));
+            taskList.add(task);
+            tasks[i] = task;
+        }
+        for (int i = 0; i < tasks.length; i++) {
+            for (int k = childStart[i]; k < childStart[i + 1]; k++) {
+                tasks[i].addChild(tasks[children[k]]);
+            }
+            for (int k = parentStart[i]; k < parentStart[i + 1]; k++) {
+                tasks[i].addParent(tasks[parents[k]]);
+            }
+        }
+        return firstId + tasks.length;
+    }
+
+    /**
+     * Computes the depth of each task: root tasks have depth 1 and any other
+     * task is one level deeper than its deepest parent.
+     *
+     * @return the depths
+     */
+    private int[] computeDepths() {
+        int size = lengths.length;
+        int[] depth = new int[size];
+        int[] parentNum = new int[size];
+        for (int i = 0; i < size; i++) {
+            parentNum[i] = parentStart[i + 1] - parentStart[i];
+        }
+        /**
+         * Visit tasks in topological order, starting from the root tasks.
+         */
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (parentNum[i] == 0) {
+                depth[i] = 1;
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int task = queue[head];
+            for (int k = childStart[task]; k < childStart[task + 1]; k++) {
+                int child = children[k];
+                if (depth[task] + 1 > depth[child]) {
+                    depth[child] = depth[task] + 1;
+                }
+                if (--parentNum[child] == 0) {
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Builder collects the tasks and dependencies of a DAX file while it is
+     * parsed. The files of a task are added after the task itself.
+     */
+    static final class Builder {
+
+        /**
+         * Map from task name to task index.
+         */
+        private final Map<String, Integer> mName2Index = new HashMap<>();
+        /**
+         * File names and task types, interned so that each one is stored
+         * once.
+         */
+        private final Map<String, String> mStrings = new HashMap<>();
+        private final List<Long> lengths = new ArrayList<>();
+        private final List<String> types = new ArrayList<>();
+        private final List<Integer> fileStart = new ArrayList<>();
+        private final List<String> fileNames = new ArrayList<>();
+        private final List<Double> fileSizes = new ArrayList<>();
+        private final List<FileType> fileTypes = new ArrayList<>();
+        private final List<Integer> edgeParents = new ArrayList<>();
+        private final List<Integer> edgeChildren = new ArrayList<>();
+
+        Builder() {
+            fileStart.add(0);
+        }
+
+        /**
+         * Adds a task
+         *
+         * @param name the name (id in the DAX) of the task
+         * @param type the type of the task
+         * @param length the length of the task, before the runtime scale is
+         * applied
+         */
+        void addTask(String name, String type, long length) {
+            mName2Index.put(name, lengths.size());
+            lengths.add(length);
+            types.add(intern(type));
+            fileStart.add(fileNames.size());
+        }
+
+        /**
+         * Adds a file to the last task added
+         *
+         * @param name the name of the file
+         * @param size the size of the file
+         * @param type the type of the file
+         */
+        void addFile(String name, double size, FileType type) {
+            fileNames.add(intern(name));
+            fileSizes.add(size);
+            fileTypes.add(type);
+            fileStart.set(lengths.size(), fileNames.size());
+        }
+
+        private String intern(String string) {
+            String interned = mStrings.get(string);
+            if (interned == null) {
+                interned = string;
+                mStrings.put(string, string);
+            }
+            return interned;
+        }
+
+        /**
+         * Checks whether a task has been added
+         *
+         * @param name the name of the task
+         * @return whether it has been added
+         */
+        boolean containsTask(String name) {
+            return mName2Index.containsKey(name);
+        }
+
+        /**
+         * Adds a dependency between two tasks that have been added
+         *
+         * @param parentName the name of the parent task
+         * @param childName the name of the child task
+         */
+        void addDependency(String parentName, String childName) {
+            edgeParents.add(mName2Index.get(parentName));
+            edgeChildren.add(mName2Index.get(childName));
+        }
+
+        /**
+         * Builds the graph
+         *
+         * @return the graph
+         */
+        WorkflowGraph build() {
+            return new WorkflowGraph(this);
+        }
+    }
+}
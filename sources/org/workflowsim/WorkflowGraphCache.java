@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * WorkflowGraphCache keeps the WorkflowGraph of each DAX file it has been asked
+ * for, so that a DAX file is parsed once however many simulations use it. A
+ * cache can be shared by simulations running in parallel: set it in the
+ * simulation context of each of them with setCache() and the WorkflowParser of
+ * the simulation takes its graphs from the cache.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class WorkflowGraphCache {
+
+    /**
+     * Map from DAX path to graph. It is null if the DAX file cannot be parsed.
+     */
+    private final Map<String, WorkflowGraph> mPath2Graph = new HashMap<>();
+
+    /**
+     * Gets the graph of a DAX file, parsing the file if it has not been parsed
+     * yet
+     *
+     * @param path the DAX path
+     * @return the graph, or null if the file cannot be parsed
+     */
+    public synchronized WorkflowGraph getGraph(String path) {
+        if (!mPath2Graph.containsKey(path)) {
+            mPath2Graph.put(path, WorkflowParser.parseGraph(path));
+        }
+        return mPath2Graph.get(path);
+    }
+
+    /**
+     * Sets the cache of the simulation context of the calling thread
+     *
+     * @param cache the cache, or null to parse DAX files every time
+     */
+    public static void setCache(WorkflowGraphCache cache) {
+        CloudSim.getContext().setAttribute(WorkflowGraphCache.class, cache);
+    }
+
+    /**
+     * Gets the cache of the simulation context of the calling thread
+     *
+     * @return the cache, or null if none has been set
+     */
+    public static WorkflowGraphCache getCache() {
+        return (WorkflowGraphCache) CloudSim.getContext().getAttribute(WorkflowGraphCache.class);
+    }
+}
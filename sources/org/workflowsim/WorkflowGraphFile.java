@@ -0,0 +1,349 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.cloudbus.cloudsim.Log;
+import org.workflowsim.utils.Parameters.FileType;
+
+/**
+ * WorkflowGraphFile reads and writes workflows in the binary .wfb format, a
+ * compiled DAX file that loads much faster than XML. WorkflowParser reads the
+ * files whose name ends with .wfb in this format. To compile a DAX file, run
+ *
+ * <pre>
+ * java org.workflowsim.WorkflowGraphFile Montage_1000.xml Montage_1000.wfb
+ * </pre>
+ *
+ * A .wfb file is big endian and holds, in this order: the magic number, the
+ * version, the numbers of tasks, files, dependencies and strings; the string
+ * table, each string as its length in bytes (-1 for null) followed by its
+ * UTF-8 bytes; the length, depth and type (an index in the string table) of
+ * each task; the files of the tasks, as offsets followed by the name, size and
+ * type of each file; and the children and then the parents of the tasks, each
+ * as offsets followed by task indexes.
+ *
+ * The file is read in one bulk read and closed before read() returns, and its
+ * arrays are copied into the WorkflowGraph rather than viewed in place. A
+ * graph is cached and shared by the simulations of a parameter sweep, and
+ * used long after it is loaded: views would keep the file mapped, and locked
+ * on Windows, for as long as the graph is reachable, and would not be safe
+ * to read from several threads. The copies are bulk copies of primitive
+ * arrays, so loading still costs no parsing.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public final class WorkflowGraphFile {
+
+    /**
+     * The file name extension
+     */
+    public static final String EXTENSION = ".wfb";
+    /**
+     * "WFB1" in ASCII
+     */
+    private static final int MAGIC = 0x57464231;
+    private static final int VERSION = 1;
+
+    private WorkflowGraphFile() {
+    }
+
+    /**
+     * Compiles a DAX file into a .wfb file
+     *
+     * @param args the DAX path and the .wfb path
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            Log.printLine("Usage: java org.workflowsim.WorkflowGraphFile <dax path> <wfb path>");
+            return;
+        }
+        WorkflowGraph graph = WorkflowParser.parseGraph(args[0]);
+        if (graph == null) {
+            return;
+        }
+        try {
+            write(graph, args[1]);
+            Log.printLine("Compiled " + graph.getTaskNum() + " tasks and "
+                    + graph.getDependencyNum() + " dependencies into " + args[1]);
+        } catch (IOException ioe) {
+            Log.printLine("IO Exception;Cannot write " + args[1]);
+        }
+    }
+
+    /**
+     * Checks whether a path is the path of a .wfb file
+     *
+     * @param path the path
+     * @return whether it ends with .wfb
+     */
+    public static boolean isWorkflowGraphFile(String path) {
+        return path.toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Writes a graph to a .wfb file
+     *
+     * @param graph the graph
+     * @param path the .wfb path
+     * @throws IOException
+     */
+    public static void write(WorkflowGraph graph, String path) throws IOException {
+        Map<String, Integer> mString2Index = new HashMap<>();
+        int[] typeIndexes = indexStrings(graph.types, mString2Index);
+        int[] fileNameIndexes = indexStrings(graph.fileNames, mString2Index);
+        String[] strings = new String[mString2Index.size()];
+        for (Map.Entry<String, Integer> entry : mString2Index.entrySet()) {
+            strings[entry.getValue()] = entry.getKey();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.getTaskNum());
+            out.writeInt(graph.fileNames.length);
+            out.writeInt(graph.getDependencyNum());
+            out.writeInt(strings.length);
+            for (String string : strings) {
+                if (string == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            for (long length : graph.lengths) {
+                out.writeLong(length);
+            }
+            writeInts(out, graph.depths);
+            writeInts(out, typeIndexes);
+            writeInts(out, graph.fileStart);
+            writeInts(out, fileNameIndexes);
+            for (double size : graph.fileSizes) {
+                out.writeDouble(size);
+            }
+            for (FileType type : graph.fileTypes) {
+                out.writeByte(type.ordinal());
+            }
+            writeInts(out, graph.childStart);
+            writeInts(out, graph.children);
+            writeInts(out, graph.parentStart);
+            writeInts(out, graph.parents);
+        }
+    }
+
+    /**
+     * Reads a graph from a .wfb file
+     *
+     * @param path the .wfb path
+     * @return the graph
+     * @throws IOException if the file cannot be read or is not a .wfb file
+     */
+    public static WorkflowGraph read(String path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large");
+            }
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(path + " is truncated");
+                }
+            }
+        }
+        buffer.flip();
+        try {
+            return read(buffer, path);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(path + " is truncated");
+        }
+    }
+
+    /**
+     * Reads a graph from the content of a .wfb file. Every count is checked
+     * against the bytes left before an array is allocated, and every index
+     * and offset against the table it refers to, so that a corrupt file
+     * fails with an IOException rather than with an OutOfMemoryError or an
+     * ArrayIndexOutOfBoundsException, now or once the graph is used.
+     *
+     * @param buffer the content
+     * @param path the .wfb path
+     * @return the graph
+     * @throws IOException if the content is not a .wfb file
+     */
+    private static WorkflowGraph read(ByteBuffer buffer, String path) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(path + " is not a version " + VERSION + " .wfb file");
+        }
+        int taskNum = buffer.getInt();
+        int fileNum = buffer.getInt();
+        int edgeNum = buffer.getInt();
+        int stringNum = buffer.getInt();
+        //each string takes at least its length
+        checkCount(buffer, stringNum, 4, path);
+        String[] strings = new String[stringNum];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length >= 0) {
+                checkCount(buffer, length, 1, path);
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            } else if (length != -1) {
+                throw new IOException(path + " is corrupt");
+            }
+        }
+        checkCount(buffer, taskNum, 8, path);
+        long[] lengths = new long[taskNum];
+        buffer.asLongBuffer().get(lengths);
+        buffer.position(buffer.position() + 8 * taskNum);
+        int[] depths = readInts(buffer, taskNum, path);
+        String[] types = readStrings(buffer, taskNum, strings, path);
+        int[] fileStart = readOffsets(buffer, taskNum, fileNum, path);
+        String[] fileNames = readStrings(buffer, fileNum, strings, path);
+        checkCount(buffer, fileNum, 8, path);
+        double[] fileSizes = new double[fileNum];
+        buffer.asDoubleBuffer().get(fileSizes);
+        buffer.position(buffer.position() + 8 * fileNum);
+        checkCount(buffer, fileNum, 1, path);
+        FileType[] values = FileType.values();
+        FileType[] fileTypes = new FileType[fileNum];
+        for (int i = 0; i < fileNum; i++) {
+            fileTypes[i] = values[checkIndex(buffer.get(), values.length, path)];
+        }
+        int[] childStart = readOffsets(buffer, taskNum, edgeNum, path);
+        int[] children = readIndexes(buffer, edgeNum, taskNum, path);
+        int[] parentStart = readOffsets(buffer, taskNum, edgeNum, path);
+        int[] parents = readIndexes(buffer, edgeNum, taskNum, path);
+        return new WorkflowGraph(lengths, types, depths, fileStart, fileNames, fileSizes, fileTypes,
+                childStart, children, parentStart, parents);
+    }
+
+    /**
+     * Checks that a count of values fits in the bytes left
+     *
+     * @param buffer the content
+     * @param num the count
+     * @param size the size of each value in bytes
+     * @param path the .wfb path
+     * @throws IOException if the count is negative or too large
+     */
+    private static void checkCount(ByteBuffer buffer, long num, int size, String path) throws IOException {
+        if (num < 0 || num * size > buffer.remaining()) {
+            throw new IOException(path + " is corrupt");
+        }
+    }
+
+    /**
+     * Checks that an index is within a table
+     *
+     * @param index the index
+     * @param num the size of the table
+     * @param path the .wfb path
+     * @return the index
+     * @throws IOException if the index is out of the table
+     */
+    private static int checkIndex(int index, int num, String path) throws IOException {
+        if (index < 0 || index >= num) {
+            throw new IOException(path + " is corrupt");
+        }
+        return index;
+    }
+
+    /**
+     * Adds strings to a string table
+     *
+     * @param strings the strings
+     * @param mString2Index the string table
+     * @return the index of each string in the table
+     */
+    private static int[] indexStrings(String[] strings, Map<String, Integer> mString2Index) {
+        int[] indexes = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            Integer index = mString2Index.get(strings[i]);
+            if (index == null) {
+                index = mString2Index.size();
+                mString2Index.put(strings[i], index);
+            }
+            indexes[i] = index;
+        }
+        return indexes;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int num, String path) throws IOException {
+        checkCount(buffer, num, 4, path);
+        int[] values = new int[num];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * num);
+        return values;
+    }
+
+    /**
+     * Reads the offsets of the tasks into an array: one more than the
+     * tasks, from 0 up to the size of the array, never decreasing
+     */
+    private static int[] readOffsets(ByteBuffer buffer, int taskNum, int num, String path) throws IOException {
+        int[] offsets = readInts(buffer, taskNum + 1, path);
+        if (offsets[0] != 0 || offsets[taskNum] != num) {
+            throw new IOException(path + " is corrupt");
+        }
+        for (int i = 0; i < taskNum; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IOException(path + " is corrupt");
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Reads indexes into a table of a given size
+     */
+    private static int[] readIndexes(ByteBuffer buffer, int num, int tableSize, String path) throws IOException {
+        int[] indexes = readInts(buffer, num, path);
+        for (int index : indexes) {
+            checkIndex(index, tableSize, path);
+        }
+        return indexes;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int num, String[] strings, String path)
+            throws IOException {
+        int[] indexes = readIndexes(buffer, num, strings.length, path);
+        String[] values = new String[num];
+        for (int i = 0; i < num; i++) {
+            values[i] = strings[indexes[i]];
+        }
+        return values;
+    }
+}
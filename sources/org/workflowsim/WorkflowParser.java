@@ -15,13 +15,17 @@
  */
 package org.workflowsim;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.cloudbus.cloudsim.Log;
 import org.jdom2.Document;
 import org.jdom2.Element;
@@ -29,7 +33,6 @@ import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.FileType;
-import org.workflowsim.utils.ReplicaCatalog;
 
 /**
  * WorkflowParser parse a DAX into tasks so that WorkflowSim can manage them
@@ -81,11 +84,6 @@ public final class WorkflowParser {
     protected void setTaskList(List<Task> taskList) {
         this.taskList = taskList;
     }
-    /**
-     * Map from task name to task.
-     */
-    protected Map<String, Task> mName2Task;
-
     /**
      * Initialize a WorkflowParser
      *
@@ -94,7 +92,6 @@ public final class WorkflowParser {
      */
     public WorkflowParser(int userId) {
         this.userId = userId;
-        this.mName2Task = new HashMap<>();
         this.daxPath = Parameters.getDaxPath();
         this.daxPaths = Parameters.getDAXPaths();
         this.jobIdStartsFrom = 1;
@@ -116,27 +113,52 @@ public final class WorkflowParser {
     }
 
     /**
-     * Sets the depth of a task
+     * Parse a DAX file into tasks
+     */
+    private void parseXmlFile(String path) {
+        WorkflowGraphCache cache = WorkflowGraphCache.getCache();
+        WorkflowGraph graph = cache != null ? cache.getGraph(path) : parseGraph(path);
+        if (graph != null) {
+            //In case of multiple workflow submission. Make sure the jobIdStartsFrom is consistent.
+            this.jobIdStartsFrom = graph.createTasks(this.jobIdStartsFrom, userId, getTaskList());
+        }
+    }
+
+    /**
+     * Parse a DAX file with the parser set in Parameters, or read a compiled
+     * workflow if the path ends with .wfb
      *
-     * @param task the task
-     * @param depth the depth
+     * @param path the DAX path
+     * @return the graph, or null if the file cannot be parsed
      */
-    private void setDepth(Task task, int depth) {
-        if (depth > task.getDepth()) {
-            task.setDepth(depth);
+    static WorkflowGraph parseGraph(String path) {
+        if (WorkflowGraphFile.isWorkflowGraphFile(path)) {
+            try {
+                return WorkflowGraphFile.read(path);
+            } catch (IOException ioe) {
+                Log.printLine("IO Exception;Please make sure dax.path is a valid .wfb file: " + ioe.getMessage());
+                return null;
+            }
         }
-        for (Task cTask : task.getChildList()) {
-            setDepth(cTask, task.getDepth() + 1);
+        switch (Parameters.getDaxParser()) {
+            case STAX:
+                return parseGraphStax(path);
+            default:
+                return parseGraphJdom(path);
         }
     }
 
     /**
      * Parse a DAX file with jdom
+     *
+     * @param path the DAX path
+     * @return the graph, or null if the file cannot be parsed
      */
-    private void parseXmlFile(String path) {
+    private static WorkflowGraph parseGraphJdom(String path) {
 
         try {
 
+            WorkflowGraph.Builder graph = new WorkflowGraph.Builder();
             SAXBuilder builder = new SAXBuilder();
             //parse using builder to get DOM representation of the XML file
             Document dom = builder.build(new File(path));
@@ -145,167 +167,106 @@ public final class WorkflowParser {
             for (Element node : list) {
                 switch (node.getName().toLowerCase()) {
                     case "job":
-                        long length = 0;
                         String nodeName = node.getAttributeValue("id");
                         String nodeType = node.getAttributeValue("name");
-                        /**
-                         * capture runtime. If not exist, by default the runtime
-                         * is 0.1. Otherwise CloudSim would ignore this task.
-                         * BUG/#11
-                         */
-                        double runtime;
-                        if (node.getAttributeValue("runtime") != null) {
-                            String nodeTime = node.getAttributeValue("runtime");
-                            runtime = 1000 * Double.parseDouble(nodeTime);
-                            if (runtime < 100) {
-                                runtime = 100;
-                            }
-                            length = (long) runtime;
-                        } else {
-                            Log.printLine("Cannot find runtime for " + nodeName + ",set it to be 0");
-                        }   //multiple the scale, by default it is 1.0
-                        length *= Parameters.getRuntimeScale();
+                        long length = getLength(nodeName, node.getAttributeValue("runtime"));
+                        graph.addTask(nodeName, nodeType, length);
                         List<Element> fileList = node.getChildren();
-                        List<FileItem> mFileList = new ArrayList<>();
                         for (Element file : fileList) {
                             if (file.getName().toLowerCase().equals("uses")) {
-                                String fileName = file.getAttributeValue("name");//DAX version 3.3
-                                if (fileName == null) {
-                                    fileName = file.getAttributeValue("file");//DAX version 3.0
-                                }
-                                if (fileName == null) {
-                                    Log.print("Error in parsing xml");
-                                }
-
-                                String inout = file.getAttributeValue("link");
-                                double size = 0.0;
-
-                                String fileSize = file.getAttributeValue("size");
-                                if (fileSize != null) {
-                                    size = Double.parseDouble(fileSize) /*/ 1024*/;
-                                } else {
-                                    Log.printLine("File Size not found for " + fileName);
-                                }
-
-                                /**
-                                 * a bug of cloudsim, size 0 causes a problem. 1
-                                 * is ok.
-                                 */
-                                if (size == 0) {
-                                    size++;
-                                }
-                                /**
-                                 * Sets the file type 1 is input 2 is output
-                                 */
-                                FileType type = FileType.NONE;
-                                switch (inout) {
-                                    case "input":
-                                        type = FileType.INPUT;
-                                        break;
-                                    case "output":
-                                        type = FileType.OUTPUT;
-                                        break;
-                                    default:
-                                        Log.printLine("Parsing Error");
-                                        break;
-                                }
-                                FileItem tFile;
-                                /*
-                                 * Already exists an input file (forget output file)
-                                 */
-                                if (size < 0) {
-                                    /*
-                                     * Assuming it is a parsing error
-                                     */
-                                    size = 0 - size;
-                                    Log.printLine("Size is negative, I assume it is a parser error");
-                                }
-                                /*
-                                 * Note that CloudSim use size as MB, in this case we use it as Byte
-                                 */
-                                if (type == FileType.OUTPUT) {
-                                    /**
-                                     * It is good that CloudSim does tell
-                                     * whether a size is zero
-                                     */
-                                    tFile = new FileItem(fileName, size);
-                                } else if (ReplicaCatalog.containsFile(fileName)) {
-                                    tFile = ReplicaCatalog.getFile(fileName);
-                                } else {
-
-                                    tFile = new FileItem(fileName, size);
-                                    ReplicaCatalog.setFile(fileName, tFile);
-                                }
-
-                                tFile.setType(type);
-                                mFileList.add(tFile);
-
+                                addFile(graph, file.getAttributeValue("name"), file.getAttributeValue("file"),
+                                        file.getAttributeValue("link"), file.getAttributeValue("size"));
                             }
                         }
-                        Task task;
-                        //In case of multiple workflow submission. Make sure the jobIdStartsFrom is consistent.
-                        synchronized (this) {
-                            task = new Task(this.jobIdStartsFrom, length);
-                            this.jobIdStartsFrom++;
-                        }
-                        task.setType(nodeType);
-                        task.setUserId(userId);
-                        mName2Task.put(nodeName, task);
-                        for (FileItem file : mFileList) {
-                            task.addRequiredFile(file.getName());
-                        }
-                        task.setFileList(mFileList);
-                        this.getTaskList().add(task);
-
-                        /**
-                         * Add dependencies info.
-                         */
                         break;
                     case "child":
                         List<Element> pList = node.getChildren();
                         String childName = node.getAttributeValue("ref");
-                        if (mName2Task.containsKey(childName)) {
-
-                            Task childTask = (Task) mName2Task.get(childName);
-
+                        if (graph.containsTask(childName)) {
                             for (Element parent : pList) {
-                                String parentName = parent.getAttributeValue("ref");
-                                if (mName2Task.containsKey(parentName)) {
-                                    Task parentTask = (Task) mName2Task.get(parentName);
-                                    parentTask.addChild(childTask);
-                                    childTask.addParent(parentTask);
-                                }
+                                addDependency(graph, parent.getAttributeValue("ref"), childName);
                             }
                         }
                         break;
                 }
             }
-            /**
-             * If a task has no parent, then it is root task.
-             */
-            ArrayList roots = new ArrayList<>();
-            for (Task task : mName2Task.values()) {
-                task.setDepth(0);
-                if (task.getParentList().isEmpty()) {
-                    roots.add(task);
-                }
-            }
+            return graph.build();
+
+        } catch (JDOMException jde) {
+            Log.printLine("JDOM Exception;Please make sure your dax file is valid");
 
+        } catch (IOException ioe) {
+            Log.printLine("IO Exception;Please make sure dax.path is correctly set in your config file");
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Parsing Exception");
+        }
+        return null;
+    }
+
+    /**
+     * Parse a DAX file with StAX. Unlike jdom, it does not build the document
+     * in memory but adds tasks, files and dependencies as their elements are
+     * read, so it needs much less memory for large workflows. The result is
+     * the same as with jdom.
+     *
+     * @param path the DAX path
+     * @return the graph, or null if the file cannot be parsed
+     */
+    private static WorkflowGraph parseGraphStax(String path) {
+        XMLStreamReader reader = null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            WorkflowGraph.Builder graph = new WorkflowGraph.Builder();
+            reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
             /**
-             * Add depth from top to bottom.
+             * The root element is at level 1, jobs and dependencies at level
+             * 2, files and parents at level 3.
              */
-            for (Iterator it = roots.iterator(); it.hasNext();) {
-                Task task = (Task) it.next();
-                setDepth(task, 1);
+            int level = 0;
+            boolean inJob = false;
+            String childName = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        level++;
+                        String name = reader.getLocalName().toLowerCase();
+                        if (level == 2) {
+                            inJob = false;
+                            childName = null;
+                            switch (name) {
+                                case "job":
+                                    String nodeName = reader.getAttributeValue(null, "id");
+                                    String nodeType = reader.getAttributeValue(null, "name");
+                                    long length = getLength(nodeName, reader.getAttributeValue(null, "runtime"));
+                                    graph.addTask(nodeName, nodeType, length);
+                                    inJob = true;
+                                    break;
+                                case "child":
+                                    String ref = reader.getAttributeValue(null, "ref");
+                                    if (graph.containsTask(ref)) {
+                                        childName = ref;
+                                    }
+                                    break;
+                            }
+                        } else if (level == 3) {
+                            if (inJob && name.equals("uses")) {
+                                addFile(graph, reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "file"),
+                                        reader.getAttributeValue(null, "link"), reader.getAttributeValue(null, "size"));
+                            } else if (childName != null) {
+                                addDependency(graph, reader.getAttributeValue(null, "ref"), childName);
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        level--;
+                        break;
+                }
             }
-            /**
-             * Clean them so as to save memory. Parsing workflow may take much
-             * memory
-             */
-            this.mName2Task.clear();
+            return graph.build();
 
-        } catch (JDOMException jde) {
-            Log.printLine("JDOM Exception;Please make sure your dax file is valid");
+        } catch (XMLStreamException xse) {
+            Log.printLine("StAX Exception;Please make sure your dax file is valid");
 
         } catch (IOException ioe) {
             Log.printLine("IO Exception;Please make sure dax.path is correctly set in your config file");
@@ -313,6 +274,112 @@ public final class WorkflowParser {
         } catch (Exception e) {
             e.printStackTrace();
             Log.printLine("Parsing Exception");
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException xse) {
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the length of a task from its runtime
+     *
+     * @param nodeName the name of the task
+     * @param nodeTime the runtime attribute of the task, may be null
+     * @return the length, before the runtime scale is applied
+     */
+    private static long getLength(String nodeName, String nodeTime) {
+        long length = 0;
+        /**
+         * capture runtime. If not exist, by default the runtime is 0.1.
+         * Otherwise CloudSim would ignore this task. BUG/#11
+         */
+        if (nodeTime != null) {
+            double runtime = 1000 * Double.parseDouble(nodeTime);
+            if (runtime < 100) {
+                runtime = 100;
+            }
+            length = (long) runtime;
+        } else {
+            Log.printLine("Cannot find runtime for " + nodeName + ",set it to be 0");
+        }
+        return length;
+    }
+
+    /**
+     * Adds a file to the last task of a graph
+     *
+     * @param graph the graph
+     * @param name the name attribute of the file (DAX version 3.3)
+     * @param file the file attribute of the file (DAX version 3.0)
+     * @param inout the link attribute of the file
+     * @param fileSize the size attribute of the file
+     */
+    private static void addFile(WorkflowGraph.Builder graph, String name, String file,
+            String inout, String fileSize) {
+        String fileName = name;//DAX version 3.3
+        if (fileName == null) {
+            fileName = file;//DAX version 3.0
+        }
+        if (fileName == null) {
+            Log.print("Error in parsing xml");
+        }
+
+        double size = 0.0;
+        if (fileSize != null) {
+            size = Double.parseDouble(fileSize) /*/ 1024*/;
+        } else {
+            Log.printLine("File Size not found for " + fileName);
+        }
+
+        /**
+         * a bug of cloudsim, size 0 causes a problem. 1 is ok.
+         */
+        if (size == 0) {
+            size++;
+        }
+        /**
+         * Sets the file type 1 is input 2 is output
+         */
+        FileType type = FileType.NONE;
+        switch (inout) {
+            case "input":
+                type = FileType.INPUT;
+                break;
+            case "output":
+                type = FileType.OUTPUT;
+                break;
+            default:
+                Log.printLine("Parsing Error");
+                break;
+        }
+        /*
+         * Assuming it is a parsing error
+         */
+        if (size < 0) {
+            size = 0 - size;
+            Log.printLine("Size is negative, I assume it is a parser error");
+        }
+        /*
+         * Note that CloudSim use size as MB, in this case we use it as Byte
+         */
+        graph.addFile(fileName, size, type);
+    }
+
+    /**
+     * Adds a dependency to a graph if the parent task exists
+     *
+     * @param graph the graph
+     * @param parentName the name of the parent task
+     * @param childName the name of the child task, which exists
+     */
+    private static void addDependency(WorkflowGraph.Builder graph, String parentName, String childName) {
+        if (graph.containsTask(parentName)) {
+            graph.addDependency(parentName, childName);
         }
     }
 }
@@ -25,6 +25,7 @@ import org.workflowsim.planning.BasePlanningAlgorithm;
 import org.workflowsim.planning.DHEFTPlanningAlgorithm;
 import org.workflowsim.planning.HEFTPlanningAlgorithm;
 import org.workflowsim.planning.RandomPlanningAlgorithm;
+import org.workflowsim.utils.ImpactFactorCalculator;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.PlanningAlgorithm;
 
@@ -211,27 +212,22 @@ public final class WorkflowPlanner extends SimEntity {
             }
         }
         double avg = 1.0 / exits.size();
-        for (Task task : exits) {
-            addImpact(task, avg);
-        }
-    }
+        new ImpactFactorCalculator<Task>() {
+            @Override
+            protected List<Task> getParentList(Task task) {
+                return task.getParentList();
+            }
 
-    /**
-     * Add impact factor for one particular task
-     *
-     * @param task, the task
-     * @param impact , the impact factor
-     */
-    private void addImpact(Task task, double impact) {
+            @Override
+            protected double getImpactFactor(Task task) {
+                return task.getImpact();
+            }
 
-        task.setImpact(task.getImpact() + impact);
-        int size = task.getParentList().size();
-        if (size > 0) {
-            double avg = impact / size;
-            for (Task parent : task.getParentList()) {
-                addImpact(parent, avg);
+            @Override
+            protected void setImpactFactor(Task task, double impact) {
+                task.setImpact(impact);
             }
-        }
+        }.addImpact(exits, avg);
     }
 
     /**
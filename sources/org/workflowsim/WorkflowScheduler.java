@@ -15,8 +15,11 @@
  */
 package org.workflowsim;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
 import org.cloudbus.cloudsim.Log;
@@ -52,6 +55,23 @@ public class WorkflowScheduler extends DatacenterBroker {
      */
     private int workflowEngineId;
 
+    /**
+     * The scheduling algorithm, kept between rounds if it is reused.
+     */
+    private BaseSchedulingAlgorithm scheduler;
+
+    /**
+     * Whether a scheduling round has been requested and not run yet.
+     */
+    private boolean updatePending;
+
+    /**
+     * The number of scheduling rounds run, and of the rounds saved by merging
+     * their updates into other rounds.
+     */
+    private int rounds;
+    private int savedRounds;
+
     /**
      * Created a new WorkflowScheduler object.
      *
@@ -115,6 +135,10 @@ public class WorkflowScheduler extends DatacenterBroker {
                 processCloudletReturn(ev);
                 break;
             case CloudSimTags.END_OF_SIMULATION:
+                if (getSavedRounds() > 0) {
+                    Log.printLine(getName() + ": " + getRounds() + " scheduling rounds, "
+                            + getSavedRounds() + " saved by merging updates");
+                }
                 shutdownEntity();
                 break;
             case CloudSimTags.CLOUDLET_SUBMIT:
@@ -237,7 +261,15 @@ public class WorkflowScheduler extends DatacenterBroker {
      */
     protected void processCloudletUpdate(SimEvent ev) {
 
-        BaseSchedulingAlgorithm scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+        updatePending = false;
+        rounds++;
+        BaseSchedulingAlgorithm scheduler = this.scheduler;
+        if (scheduler == null || !Parameters.isSchedulerReused()) {
+            scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+            this.scheduler = Parameters.isSchedulerReused() ? scheduler : null;
+        } else {
+            scheduler.getScheduledList().clear();
+        }
         scheduler.setCloudletList(getCloudletList());
         scheduler.setVmList(getVmsCreatedList());
 
@@ -257,7 +289,10 @@ public class WorkflowScheduler extends DatacenterBroker {
             }
             schedule(getVmsToDatacentersMap().get(vmId), delay, CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
         }
-        getCloudletList().removeAll(scheduledList);
+        //Jobs do not override equals, compare them by identity in constant time
+        Set<Cloudlet> scheduledSet = Collections.newSetFromMap(new IdentityHashMap<Cloudlet, Boolean>());
+        scheduledSet.addAll(scheduledList);
+        getCloudletList().removeAll(scheduledSet);
         getCloudletSubmittedList().addAll(scheduledList);
         cloudletsSubmitted += scheduledList.size();
     }
@@ -293,9 +328,45 @@ public class WorkflowScheduler extends DatacenterBroker {
         schedule(this.workflowEngineId, delay, CloudSimTags.CLOUDLET_RETURN, cloudlet);
 
         cloudletsSubmitted--;
-        //not really update right now, should wait 1 s until many jobs have returned
-        schedule(this.getId(), 0.0, WorkflowSimTags.CLOUDLET_UPDATE);
+        //not really update right now, jobs returned within the update interval share one round
+        requestUpdate();
+
+    }
 
+    /**
+     * Requests a scheduling round. If updates are merged (see
+     * Parameters.setUpdateInterval) and a round is already pending, the
+     * request is merged into it, otherwise a round is scheduled after the
+     * update interval.
+     */
+    protected void requestUpdate() {
+        double interval = Parameters.getUpdateInterval();
+        if (interval < 0) {
+            schedule(this.getId(), 0.0, WorkflowSimTags.CLOUDLET_UPDATE);
+        } else if (!updatePending) {
+            updatePending = true;
+            schedule(this.getId(), interval, WorkflowSimTags.CLOUDLET_UPDATE);
+        } else {
+            savedRounds++;
+        }
+    }
+
+    /**
+     * Gets the number of scheduling rounds run
+     *
+     * @return the number of rounds run
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Gets the number of scheduling rounds saved by merging updates
+     *
+     * @return the number of rounds requested but merged into other rounds
+     */
+    public int getSavedRounds() {
+        return savedRounds;
     }
 
     /**
@@ -347,7 +418,7 @@ public class WorkflowScheduler extends DatacenterBroker {
         List<Job> list = (List) ev.getData();
         getCloudletList().addAll(list);
 
-        sendNow(this.getId(), WorkflowSimTags.CLOUDLET_UPDATE);
+        requestUpdate();
         if (!processCloudletSubmitHasShown) {
             processCloudletSubmitHasShown = true;
         }
@@ -16,9 +16,13 @@
 package org.workflowsim.clustering;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.workflowsim.FileItem;
 import org.workflowsim.Job;
 import org.workflowsim.Task;
@@ -51,6 +55,10 @@ public class BasicClustering implements ClusteringInterface {
      * All the files.
      */
     private final List<FileItem> allFileList;
+    /**
+     * The input files in allFileList, to find duplicates in constant time.
+     */
+    private final Set<FileItem> allInputFiles;
     /**
      * The root task.
      */
@@ -78,6 +86,7 @@ public class BasicClustering implements ClusteringInterface {
         this.taskList = new ArrayList<>();
         this.mTask2Job = new HashMap<>();
         this.allFileList = new ArrayList<>();
+        this.allInputFiles = Collections.newSetFromMap(new IdentityHashMap<FileItem, Boolean>());
         this.idIndex = 0;
         this.root = null;
     }
@@ -169,6 +178,12 @@ public class BasicClustering implements ClusteringInterface {
             /// a bug of cloudsim makes it final of input file size and output file size
             Job job = new Job(idIndex, length/*, inputFileSize, outputFileSize*/);
             job.setClassType(ClassType.COMPUTE.value);
+            /**
+             * The files and file names already in the job, to find duplicates
+             * in constant time. Files are the same if they are the same object.
+             */
+            Set<FileItem> jobFiles = Collections.newSetFromMap(new IdentityHashMap<FileItem, Boolean>());
+            Set<String> jobFileNames = new HashSet<>();
             for (Task task : taskList) {
                 length += task.getCloudletLength();
 
@@ -180,12 +195,11 @@ public class BasicClustering implements ClusteringInterface {
 
                 getTask2Job().put(task, job);
                 for (FileItem file : fileList) {
-                    boolean hasFile = job.getFileList().contains(file);
-                    if (!hasFile) {
+                    if (jobFiles.add(file)) {
                         job.getFileList().add(file);
                         if (file.getType() == FileType.INPUT) {
                             //for stag-in jobs to be used
-                            if (!this.allFileList.contains(file)) {
+                            if (this.allInputFiles.add(file)) {
                                 this.allFileList.add(file);
                             }
                         } else if (file.getType() == FileType.OUTPUT) {
@@ -194,7 +208,7 @@ public class BasicClustering implements ClusteringInterface {
                     }
                 }
                 for (String fileName : task.getRequiredFiles()) {
-                    if (!job.getRequiredFiles().contains(fileName)) {
+                    if (jobFileNames.add(fileName)) {
                         job.getRequiredFiles().add(fileName);
                     }
                 }
@@ -21,9 +21,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.workflowsim.Job;
 import org.workflowsim.Task;
+import org.workflowsim.utils.ClusteringParameters;
 
 /**
  * HorizontalClustering merges task at the same horizontal level
@@ -105,10 +106,7 @@ public class HorizontalClustering extends BasicClustering {
         for (Map.Entry<Integer, List> pairs : mDepth2Task.entrySet()) {
             List list = pairs.getValue();
 
-            long seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
+            Collections.shuffle(list, RandomStreams.getStream(ClusteringParameters.SHUFFLE_STREAM));
 
             int num = list.size();
             int avg_a = num / this.clusterNum;
@@ -157,10 +155,7 @@ public class HorizontalClustering extends BasicClustering {
         for (Map.Entry<Integer, List> pairs : mDepth2Task.entrySet()) {
             List list = pairs.getValue();
 
-            long seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
+            Collections.shuffle(list, RandomStreams.getStream(ClusteringParameters.SHUFFLE_STREAM));
 
             int num = list.size();
             int avg = this.clusterSize;
@@ -16,10 +16,14 @@
 package org.workflowsim.clustering.balancing;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 import org.cloudbus.cloudsim.Log;
 import org.workflowsim.Task;
@@ -35,6 +39,7 @@ import org.workflowsim.clustering.balancing.metrics.DistanceVariance;
 import org.workflowsim.clustering.balancing.metrics.HorizontalRuntimeVariance;
 import org.workflowsim.clustering.balancing.metrics.ImpactFactorVariance;
 import org.workflowsim.clustering.balancing.metrics.PipelineRuntimeVariance;
+import org.workflowsim.utils.ImpactFactorCalculator;
 import org.workflowsim.utils.Parameters;
 
 /**
@@ -84,23 +89,28 @@ public class BalancedClustering extends BasicClustering {
     }
 
     /**
-     * Add impact factor to a TaskSet
+     * Add impact factor to TaskSets and to their ancestors
      *
-     * @param set TaskSet
+     * @param sets TaskSets
      * @param impact Impact Factor
      */
-    private void addImpact(TaskSet set, double impact) {
-        /*
-         * follow the path from set
-         */
-        set.setImpactFafctor(set.getImpactFactor() + impact);
-        int size = set.getParentList().size();
-        if (size > 0) {
-            double avg = impact / size;
-            for (TaskSet parent : set.getParentList()) {
-                addImpact(parent, avg);
+    private void addImpact(List<TaskSet> sets, double impact) {
+        new ImpactFactorCalculator<TaskSet>() {
+            @Override
+            protected List<TaskSet> getParentList(TaskSet set) {
+                return set.getParentList();
             }
-        }
+
+            @Override
+            protected double getImpactFactor(TaskSet set) {
+                return set.getImpactFactor();
+            }
+
+            @Override
+            protected void setImpactFactor(TaskSet set, double impact) {
+                set.setImpactFafctor(impact);
+            }
+        }.addImpact(sets, impact);
     }
 
     /**
@@ -121,10 +131,7 @@ public class BalancedClustering extends BasicClustering {
         }
         List<TaskSet> exits = map.get(maxDepth);
         double avg = 1.0 / exits.size();
-        for (TaskSet set : exits) {
-            //set.setImpactFafctor(avg);
-            addImpact(set, avg);
-        }
+        addImpact(exits, avg);
 
         for (Entry<Integer, List<TaskSet>> entry : map.entrySet()) {
             int depth = entry.getKey();
@@ -208,27 +215,33 @@ public class BalancedClustering extends BasicClustering {
     }
 
     /**
-     * Check whether a task is an ancestor of another set
-     *
-     * @param ancestor ancestor
-     * @param set child
-     * @return
+     * The ancestors of the children of a task, within its children
      */
-    private boolean check(Task ancestor, Task set) {
-        if (ancestor == null || set == null) {
-            return false;
-        }
-        if (ancestor == set) {
-            return true;
-        }
-        for (Task parent : set.getParentList()) {
-            if (check(ancestor, parent)) {
-                return true;
-            } else {
-                //parent.hasChecked = true;
+    private static final class ChildAncestors {
+
+        private final Map<Task, Integer> mChild2Index;
+        private final BitSet[] ancestors;
+
+        ChildAncestors(ReachabilityIndex index, List<Task> childList) {
+            mChild2Index = new IdentityHashMap<>();
+            for (int i = 0; i < childList.size(); i++) {
+                if (!mChild2Index.containsKey(childList.get(i))) {
+                    mChild2Index.put(childList.get(i), i);
+                }
             }
+            ancestors = index.getAncestors(childList);
+        }
+
+        /**
+         * Check whether a child is an ancestor of another child
+         *
+         * @param ancestor ancestor
+         * @param set child
+         * @return
+         */
+        boolean check(Task ancestor, Task set) {
+            return ancestors[mChild2Index.get(set)].get(mChild2Index.get(ancestor));
         }
-        return false;
     }
     /**
      * used for recover.
@@ -239,16 +252,25 @@ public class BalancedClustering extends BasicClustering {
      * Add pairs that needs to remove to mRecover.
      */
     private void remove() {
-
+        /**
+         * Removing a dependency that is implied by another path does not
+         * change which tasks are ancestors of which, so the ancestors within
+         * the child lists whose depths differ are computed once, up front.
+         */
+        ReachabilityIndex index = new ReachabilityIndex(this.getTaskList());
         for (Task set : this.getTaskList()) {
             if (set.getChildList().size() >= 2) {
+                ChildAncestors ancestors = null;
                 for (int i = 0; i < set.getChildList().size(); i++) {
                     Task children = (Task) set.getChildList().get(i);
                     for (int j = i + 1; j < set.getChildList().size(); j++) {
                         Task another = (Task) set.getChildList().get(j);
                         // avoid unnecessary checks
+                        if (children.getDepth() != another.getDepth() && ancestors == null) {
+                            ancestors = new ChildAncestors(index, set.getChildList());
+                        }
                         if (children.getDepth() > another.getDepth()) {
-                            if (check(another, children)) {
+                            if (ancestors.check(another, children)) {
                                 //remove i
                                 set.getChildList().remove(children);
                                 children.getParentList().remove(set);
@@ -261,7 +283,7 @@ public class BalancedClustering extends BasicClustering {
                             }
                         }
                         if (another.getDepth() > children.getDepth()) {
-                            if (check(children, another)) {
+                            if (ancestors.check(children, another)) {
                                 set.getChildList().remove(another);
                                 another.getParentList().remove(set);
                                 i--;
@@ -400,16 +422,18 @@ public class BalancedClustering extends BasicClustering {
                 set.hasChecked = true;
                 set.getChildList().clear();
                 set.getParentList().clear();
+                Set<TaskSet> parentSets = Collections.newSetFromMap(new IdentityHashMap<TaskSet, Boolean>());
+                Set<TaskSet> childSets = Collections.newSetFromMap(new IdentityHashMap<TaskSet, Boolean>());
                 for (Task task : set.getTaskList()) {
                     for (Task parent : task.getParentList()) {
                         TaskSet parentSet = mTask2TaskSet.get(parent);
-                        if (!set.getParentList().contains(parentSet) && set != parentSet) {
+                        if (set != parentSet && parentSets.add(parentSet)) {
                             set.getParentList().add(parentSet);
                         }
                     }
                     for (Task child : task.getChildList()) {
                         TaskSet childSet = mTask2TaskSet.get(child);
-                        if (!set.getChildList().contains(childSet) && set != childSet) {
+                        if (set != childSet && childSets.add(childSet)) {
                             set.getChildList().add(childSet);
                         }
                     }
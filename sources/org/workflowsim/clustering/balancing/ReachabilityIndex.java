@@ -0,0 +1,213 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.clustering.balancing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.workflowsim.Task;
+
+/**
+ * ReachabilityIndex answers which tasks of a child list are ancestors of the
+ * other ones, for the child lists BalancedClustering checks: those of at least
+ * two tasks that are not all at the same depth. Only the T tasks of such lists
+ * are indexed. The tasks are ranked once in a topological order of their
+ * parent lists (ancestors rank lower), then the indexed ancestors of each task
+ * are propagated as bitsets over the T indexed tasks in one pass in rank
+ * order, which takes O((V + E) * T / 64) time for V tasks and E dependencies.
+ * Tasks with no indexed ancestor get no bitset, and the bitset of a task that
+ * is not indexed is dropped once its last child is reached, so the index keeps
+ * about T * T / 2 bits, plus the bitsets of the tasks whose children are not
+ * all reached yet. A child list is then answered in O(g * g) time for g tasks.
+ *
+ * Removing a dependency that is implied by another path keeps both the ranks
+ * and the ancestors valid, and only removes tasks from the child lists, so the
+ * index stays valid while redundant dependencies are removed.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+final class ReachabilityIndex {
+
+    /**
+     * The index of each indexed task, in rank order
+     */
+    private final Map<Task, Integer> mTask2Index;
+
+    /**
+     * The indexes of the indexed ancestors of each indexed task and its own
+     * index, by index
+     */
+    private final BitSet[] ancestors;
+
+    /**
+     * Initialize a ReachabilityIndex
+     *
+     * @param taskList the tasks, their ancestors are ranked as well
+     */
+    ReachabilityIndex(List<Task> taskList) {
+        Map<Task, Integer> mTask2Rank = new IdentityHashMap<>();
+        List<Task> ranked = new ArrayList<>();
+        /**
+         * Iterative post-order walk of the parent lists, so that long chains
+         * of tasks do not overflow the stack.
+         */
+        List<Task> stack = new ArrayList<>();
+        List<Integer> next = new ArrayList<>();
+        Map<Task, Boolean> visited = new IdentityHashMap<>();
+        for (Task root : taskList) {
+            if (visited.put(root, Boolean.TRUE) != null) {
+                continue;
+            }
+            stack.add(root);
+            next.add(0);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                Task task = stack.get(top);
+                int i = next.get(top);
+                List<Task> parents = task.getParentList();
+                if (i < parents.size()) {
+                    next.set(top, i + 1);
+                    Task parent = parents.get(i);
+                    if (visited.put(parent, Boolean.TRUE) == null) {
+                        stack.add(parent);
+                        next.add(0);
+                    }
+                } else {
+                    stack.remove(top);
+                    next.remove(top);
+                    mTask2Rank.put(task, ranked.size());
+                    ranked.add(task);
+                }
+            }
+        }
+        /**
+         * The children of the lists whose depths differ are indexed, in rank
+         * order.
+         */
+        boolean[] indexed = new boolean[ranked.size()];
+        for (Task task : ranked) {
+            List<Task> children = task.getChildList();
+            if (hasDifferentDepths(children)) {
+                for (Task child : children) {
+                    indexed[mTask2Rank.get(child)] = true;
+                }
+            }
+        }
+        mTask2Index = new IdentityHashMap<>();
+        int[] indexes = new int[ranked.size()];
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            indexes[rank] = -1;
+            if (indexed[rank]) {
+                indexes[rank] = mTask2Index.size();
+                mTask2Index.put(ranked.get(rank), indexes[rank]);
+            }
+        }
+        ancestors = new BitSet[mTask2Index.size()];
+        if (ancestors.length == 0) {
+            return;
+        }
+        /**
+         * The rank of the last child of each task, after which its bitset is
+         * not needed any more.
+         */
+        int[] lastChild = new int[ranked.size()];
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            for (Task parent : ranked.get(rank).getParentList()) {
+                lastChild[mTask2Rank.get(parent)] = rank;
+            }
+        }
+        /**
+         * The parents of a task rank below it, so their bitsets are complete
+         * when it is reached.
+         */
+        BitSet[] bitsByRank = new BitSet[ranked.size()];
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            BitSet bits = null;
+            List<Task> parents = ranked.get(rank).getParentList();
+            for (Task parent : parents) {
+                BitSet parentBits = bitsByRank[mTask2Rank.get(parent)];
+                if (parentBits != null) {
+                    if (bits == null) {
+                        bits = new BitSet();
+                    }
+                    bits.or(parentBits);
+                }
+            }
+            if (indexes[rank] >= 0) {
+                if (bits == null) {
+                    bits = new BitSet(indexes[rank] + 1);
+                }
+                bits.set(indexes[rank]);
+                ancestors[indexes[rank]] = bits;
+            }
+            bitsByRank[rank] = bits;
+            for (Task parent : parents) {
+                int parentRank = mTask2Rank.get(parent);
+                if (lastChild[parentRank] == rank) {
+                    bitsByRank[parentRank] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the tasks of a list are not all at the same depth
+     *
+     * @param tasks the tasks
+     * @return whether two of them have different depths
+     */
+    private static boolean hasDifferentDepths(List<Task> tasks) {
+        for (int i = 1; i < tasks.size(); i++) {
+            if (tasks.get(i).getDepth() != tasks.get(0).getDepth()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the ancestors of each task of a child list within the list
+     *
+     * @param group the tasks, all in a child list whose depths differ when
+     * the index was built
+     * @return for the task at index j of the group, the indexes in the group of
+     * its ancestors and of itself
+     */
+    BitSet[] getAncestors(List<Task> group) {
+        int[] indexes = new int[group.size()];
+        for (int j = 0; j < group.size(); j++) {
+            Integer index = mTask2Index.get(group.get(j));
+            if (index == null) {
+                throw new IllegalArgumentException("Task " + group.get(j).getCloudletId() + " is not indexed");
+            }
+            indexes[j] = index;
+        }
+        BitSet[] groupAncestors = new BitSet[group.size()];
+        for (int j = 0; j < group.size(); j++) {
+            BitSet bits = new BitSet(group.size());
+            BitSet taskAncestors = ancestors[indexes[j]];
+            for (int k = 0; k < group.size(); k++) {
+                if (taskAncestors.get(indexes[k])) {
+                    bits.set(k);
+                }
+            }
+            groupAncestors[j] = bits;
+        }
+        return groupAncestors;
+    }
+}
@@ -21,9 +21,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.workflowsim.Task;
 import org.workflowsim.clustering.TaskSet;
+import org.workflowsim.utils.ClusteringParameters;
 
 /**
  * HorizontalRuntimeBalancing is a method that merges task so as to balance job runtime
@@ -51,10 +52,7 @@ public class HorizontalRandomClustering extends BalancingMethod {
         Map<Integer, List<TaskSet>> map = getLevelMap();
         for (List<TaskSet> taskList : map.values()) {
             /**The reason why we don shuffle is very complicated. */
-            long seed = System.nanoTime();
-            Collections.shuffle(taskList, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(taskList, new Random(seed));
+            Collections.shuffle(taskList, RandomStreams.getStream(ClusteringParameters.SHUFFLE_STREAM));
 
             if (taskList.size() > getClusterNum()) {
                 List<TaskSet> jobList = new ArrayList<>();
@@ -20,6 +20,8 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.distribution.RealDistribution;
 import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.workflowsim.Job;
 import org.workflowsim.Task;
 import org.apache.commons.math3.distribution.WeibullDistribution;
@@ -40,7 +42,6 @@ public class FailureGenerator {
      * is too high for this workflow
      */
     private static final int maxFailureSizeExtension = 50;
-    private static int failureSizeExtension = 0;
     private static final boolean hasChangeTime = false;
     /**
      *
@@ -82,7 +83,7 @@ public class FailureGenerator {
     }
 
     protected static boolean checkFailureStatus(Task task, int vmId) throws Exception {
-
+        State state = state();
 
         DistributionGenerator generator;
         switch (FailureParameters.getFailureGeneratorMode()) {
@@ -118,32 +119,27 @@ public class FailureGenerator {
         double end = task.getTaskFinishTime();
         
         
-        double[] samples = generator.getCumulativeSamples();
-        
-        while (samples[samples.length - 1] < start) {
+        while (generator.getLastCumulativeSample() < start) {
             generator.extendSamples();
-            samples = generator.getCumulativeSamples();
-            failureSizeExtension++;
-            if (failureSizeExtension >= maxFailureSizeExtension) {
+            state.failureSizeExtension++;
+            if (state.failureSizeExtension >= maxFailureSizeExtension) {
                 throw new Exception("Error rate is too high such that the simulator terminates");
 
             }
         }
 
-        for (int sampleId = 0; sampleId < samples.length; sampleId++) {
-            if (end < samples[sampleId]) {
-                //no failure
-                return false;
-            }
-            if (start <= samples[sampleId]) {
-                //has a failure
-                /** The idea is we need to update the cursor in generator**/
-                generator.getNextSample();
-                return true;
-            }
+        /**
+         * The first failure at or after start, if it is not after end.
+         */
+        int sampleId = generator.findCumulativeSample(start);
+        if (sampleId < 0 || end < generator.getCumulativeSample(sampleId)) {
+            //no failure
+            return false;
         }
-
-        return false;
+        //has a failure
+        /** The idea is we need to update the cursor in generator**/
+        generator.getNextSample();
+        return true;
     }
 
     /**
@@ -183,4 +179,27 @@ public class FailureGenerator {
         }
         return jobFailed;
     }
+
+    /**
+     * Gets the state of the failure generator in the simulation context of the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        SimulationContext context = CloudSim.getContext();
+        State state = (State) context.getAttribute(State.class);
+        if (state == null) {
+            state = new State();
+            context.setAttribute(State.class, state);
+        }
+        return state;
+    }
+
+    /**
+     * The state of the failure generator, one per simulation context.
+     */
+    private static final class State {
+
+        int failureSizeExtension = 0;
+    }
 }
@@ -20,6 +20,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
 /**
  * FailureMonitor collects failure information
@@ -31,34 +33,47 @@ import org.cloudbus.cloudsim.Log;
 public class FailureMonitor {
 
     /**
-     * VM ID to a Failure Record. *
-     */
-    protected static Map<Integer, List<FailureRecord>> vm2record;
-    /**
-     * Type to a Failure Record. *
-     */
-    protected static Map<Integer, List<FailureRecord>> type2record;
-    /**
-     * JobID to a Failure Record. *
+     * Initialize a FailureMonitor object.
      */
-    protected static Map<Integer, FailureRecord> jobid2record;
+    public static void init() {
+        State state = state();
+        state.vm2record = new HashMap<>();
+        state.type2record = new HashMap<>();
+        state.allRecords = new Aggregate();
+        state.recordList = new ArrayList<>();
+    }
+
     /**
-     * All the record list.
+     * Sets how much the records posted so far weigh each time a record is
+     * posted. With 1.0, the default, all the records weigh the same; with a
+     * smaller value the failure rate follows the recent records.
+     *
+     * @param decay the decay, in (0.0, 1.0]
      */
-    protected static List<FailureRecord> recordList;
+    public static void setDecay(double decay) {
+        if (decay <= 0.0 || decay > 1.0) {
+            throw new IllegalArgumentException("The decay must be in (0.0, 1.0]");
+        }
+        state().decay = decay;
+    }
+
     /**
-     * Id to a Job.
+     * Sets whether the records are kept, for debugging. Only their sums are
+     * needed to analyze them.
+     *
+     * @param keepRecords whether the records are kept
      */
-    public static Map index2job;
+    public static void setKeepRecords(boolean keepRecords) {
+        state().keepRecords = keepRecords;
+    }
 
     /**
-     * Initialize a FailureMonitor object.
+     * Gets the records posted since init(), if they are kept
+     *
+     * @return the records, empty unless they are kept
      */
-    public static void init() {
-        vm2record = new HashMap<>();
-        type2record = new HashMap<>();
-        jobid2record = new HashMap<>();
-        recordList = new ArrayList<>();
+    public static List<FailureRecord> getRecordList() {
+        return state().recordList;
     }
 
     /**
@@ -118,6 +133,7 @@ public class FailureMonitor {
      * @param record a failure record
      */
     public static void postFailureRecord(FailureRecord record) {
+        State state = state();
 
         if (record.workflowId < 0 || record.jobId < 0 || record.vmId < 0) {
             Log.printLine("Error in receiving failure record");
@@ -127,80 +143,148 @@ public class FailureMonitor {
         switch (FailureParameters.getMonitorMode()) {
             case MONITOR_VM:
 
-                if (!vm2record.containsKey(record.vmId)) {
-                    vm2record.put(record.vmId, new ArrayList<>());
+                if (!state.vm2record.containsKey(record.vmId)) {
+                    state.vm2record.put(record.vmId, new Aggregate());
                 }
-                vm2record.get(record.vmId).add(record);
+                state.vm2record.get(record.vmId).add(record, state.decay);
 
                 break;
             case MONITOR_JOB:
 
-                if (!type2record.containsKey(record.depth)) {
-                    type2record.put(record.depth, new ArrayList<>());
+                if (!state.type2record.containsKey(record.depth)) {
+                    state.type2record.put(record.depth, new Aggregate());
                 }
-                type2record.get(record.depth).add(record);
+                state.type2record.get(record.depth).add(record, state.decay);
 
                 break;
             case MONITOR_NONE:
                 break;
         }
 
-        recordList.add(record);
+        state.allRecords.add(record, state.decay);
+        if (state.keepRecords) {
+            state.recordList.add(record);
+        }
     }
 
     /**
-     * Update the detected task failure rate based on record lists
+     * Update the detected task failure rate based on the records posted
      *
      * @param workflowId, doesn't work in this version
      * @param type, the type of job or vm
      * @return task failure rate
      */
     public static double analyze(int workflowId, int type) {
+        State state = state();
 
         /**
          * workflow level : all jobs together *
          */
-        int sumFailures = 0;
-        int sumJobs = 0;
+        Aggregate aggregate = null;
         switch (FailureParameters.getMonitorMode()) {
             case MONITOR_ALL:
-
-                for (FailureRecord record : recordList) {
-                    sumFailures += record.failedTasksNum;
-                    sumJobs += record.allTaskNum;
-                }
-
+                aggregate = state.allRecords;
                 break;
-
             case MONITOR_JOB:
-
-                if (type2record.containsKey(type)) {
-                    for (FailureRecord record : type2record.get(type)) {
-
-                        sumFailures += record.failedTasksNum;
-                        sumJobs += record.allTaskNum;
-                    }
-                }
-
+                aggregate = state.type2record.get(type);
                 break;
             case MONITOR_VM:
-
-                if (vm2record.containsKey(type)) {
-                    for (FailureRecord record : vm2record.get(type)) {
-
-                        sumFailures += record.failedTasksNum;
-                        sumJobs += record.allTaskNum;
-                    }
-                }
-
+                aggregate = state.vm2record.get(type);
                 break;
         }
-
+        double sumFailures = 0.0;
+        double sumJobs = 0.0;
+        if (aggregate != null) {
+            sumFailures = aggregate.failedTasksNum;
+            sumJobs = aggregate.allTaskNum;
+        }
 
         if (sumFailures == 0) {
             return 0;
         }
-        double alpha = (double) ((double) sumFailures / (double) sumJobs);
+        double alpha = sumFailures / sumJobs;
         return alpha;
     }
+
+    /**
+     * Gets the state of the failure monitor in the simulation context of the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        SimulationContext context = CloudSim.getContext();
+        State state = (State) context.getAttribute(State.class);
+        if (state == null) {
+            state = new State();
+            context.setAttribute(State.class, state);
+        }
+        return state;
+    }
+
+    /**
+     * The sums of the failure records of a VM, of a type or of all.
+     */
+    private static final class Aggregate {
+
+        /**
+         * The number of failed tasks.
+         */
+        double failedTasksNum;
+
+        /**
+         * The number of tasks.
+         */
+        double allTaskNum;
+
+        /**
+         * Adds a record, after weighing the previous ones by the decay.
+         *
+         * @param record the failure record
+         * @param decay the decay
+         */
+        void add(FailureRecord record, double decay) {
+            if (decay < 1.0) {
+                failedTasksNum *= decay;
+                allTaskNum *= decay;
+            }
+            failedTasksNum += record.failedTasksNum;
+            allTaskNum += record.allTaskNum;
+        }
+    }
+
+    /**
+     * The state of the failure monitor, one per simulation context.
+     */
+    private static final class State {
+
+        /**
+         * VM ID to the sums of its Failure Records. *
+         */
+        Map<Integer, Aggregate> vm2record = new HashMap<>();
+
+        /**
+         * Type to the sums of its Failure Records. *
+         */
+        Map<Integer, Aggregate> type2record = new HashMap<>();
+
+        /**
+         * The sums of all the Failure Records.
+         */
+        Aggregate allRecords = new Aggregate();
+
+        /**
+         * All the record list, only kept if keepRecords is set.
+         */
+        List<FailureRecord> recordList = new ArrayList<>();
+
+        /**
+         * The weight of the previous records when a record is posted.
+         */
+        double decay = 1.0;
+
+        /**
+         * Whether the records are kept.
+         */
+        boolean keepRecords = false;
+    }
 }
@@ -18,6 +18,8 @@
 package org.workflowsim.failure;
 
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.workflowsim.utils.DistributionGenerator;
 import org.workflowsim.utils.DistributionGenerator.DistributionFamily;
 
@@ -27,15 +29,6 @@ import org.workflowsim.utils.DistributionGenerator.DistributionFamily;
  */
 public class FailureParameters {
 
-    /**
-     * Task Failure Rate 
-     * first index is vmId ;second index is task depth
-     * If FAILURE_JOB is specified first index is 0 only
-     * If FAILURE_VM is specified second index is 0 only
-     *
-     * @pre 0.0<= value <= 1.0
-     */
-    private static DistributionGenerator[][] generators;
     /**
      * Fault Tolerant Clustering algorithm
      */
@@ -61,23 +54,6 @@ public class FailureParameters {
         FAILURE_NONE, FAILURE_ALL, FAILURE_VM, FAILURE_JOB, FAILURE_VM_JOB
     }
 
-    /**
-     * Fault Tolerant Clustering method
-     */
-    private static FTCluteringAlgorithm FTClusteringAlgorithm = FTCluteringAlgorithm.FTCLUSTERING_NOOP;
-    /**
-     * Fault Tolerant Clustering monitor mode
-     */
-    private static FTCMonitor monitorMode = FTCMonitor.MONITOR_NONE;
-    /**
-     * Fault Tolerant Clustering failure generation mode
-     */
-    private static FTCFailure failureMode = FTCFailure.FAILURE_NONE;
-    
-    /**
-     * The distribution of the failure 
-     */
-    private static DistributionFamily distribution = DistributionFamily.WEIBULL;
     /**
      * Invalid return value
      */
@@ -94,10 +70,27 @@ public class FailureParameters {
      */
     public static void init(FTCluteringAlgorithm fMethod, FTCMonitor monitor, 
             FTCFailure failure, DistributionGenerator[][] failureGenerators) {
-        FTClusteringAlgorithm = fMethod;
-        monitorMode = monitor;
-        failureMode = failure;
-        generators = failureGenerators;
+        State state = state();
+        state.FTClusteringAlgorithm = fMethod;
+        state.monitorMode = monitor;
+        state.failureMode = failure;
+        state.generators = failureGenerators;
+        /**
+         * The failures of each vm and level have their own random stream.
+         */
+        if (failureGenerators != null) {
+            for (int i = 0; i < failureGenerators.length; i++) {
+                if (failureGenerators[i] == null) {
+                    continue;
+                }
+                for (int j = 0; j < failureGenerators[i].length; j++) {
+                    DistributionGenerator generator = failureGenerators[i][j];
+                    if (generator != null && !generator.hasRandomStream()) {
+                        generator.setRandomStream("workflowsim.failure.vm" + i + ".depth" + j);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -112,7 +105,7 @@ public class FailureParameters {
     public static void init(FTCluteringAlgorithm fMethod, FTCMonitor monitor, 
             FTCFailure failure, DistributionGenerator[][] failureGenerators, 
             DistributionFamily dist) {
-        distribution = dist;
+        state().distribution = dist;
         init(fMethod, monitor, failure, failureGenerators);
     }
     /**
@@ -123,10 +116,11 @@ public class FailureParameters {
      * @post $none
      */
     public static DistributionGenerator[][] getFailureGenerators() {
-        if(generators==null){
+        State state = state();
+        if(state.generators==null){
             Log.printLine("ERROR: alpha is not initialized");
         }
-        return generators;
+        return state.generators;
     }
     
     /**
@@ -134,11 +128,12 @@ public class FailureParameters {
      * @return max
      */
     public static int getFailureGeneratorsMaxFirstIndex(){
-        if(generators==null || generators.length == 0){
+        State state = state();
+        if(state.generators==null || state.generators.length == 0){
             Log.printLine("ERROR: alpha is not initialized");
             return INVALID;
         }
-        return generators.length;
+        return state.generators.length;
     }
     
     /**
@@ -146,13 +141,14 @@ public class FailureParameters {
      * @return max
      */
     public static int getFailureGeneratorsMaxSecondIndex(){
+        State state = state();
         //Test whether it is valid
         getFailureGeneratorsMaxFirstIndex();
-        if(generators[0]==null || generators[0].length == 0){
+        if(state.generators[0]==null || state.generators[0].length == 0){
             Log.printLine("ERROR: alpha is not initialized");
             return INVALID;
         }
-        return generators[0].length;
+        return state.generators[0].length;
     }
     
 
@@ -163,7 +159,7 @@ public class FailureParameters {
      * @return task failure rate
      */
     public static DistributionGenerator getGenerator(int vmIndex, int taskDepth) {
-        return generators[vmIndex][taskDepth];
+        return state().generators[vmIndex][taskDepth];
     }
     
     /**
@@ -174,7 +170,7 @@ public class FailureParameters {
      * @post $none
      */
     public static FTCFailure getFailureGeneratorMode() {
-        return failureMode;
+        return state().failureMode;
     }
 
     /**
@@ -185,7 +181,7 @@ public class FailureParameters {
      * @post $none
      */
     public static FTCMonitor getMonitorMode() {
-        return monitorMode;
+        return state().monitorMode;
     }
 
     /**
@@ -196,7 +192,7 @@ public class FailureParameters {
      * @post $none
      */
     public static FTCluteringAlgorithm getFTCluteringAlgorithm() {
-        return FTClusteringAlgorithm;
+        return state().FTClusteringAlgorithm;
     }
     
     /**
@@ -204,6 +200,57 @@ public class FailureParameters {
      * @return distribution
      */
     public static DistributionFamily getFailureDistribution(){
-        return distribution;
+        return state().distribution;
+    }
+
+    /**
+     * Gets the state of the failure parameters in the simulation context of the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        SimulationContext context = CloudSim.getContext();
+        State state = (State) context.getAttribute(State.class);
+        if (state == null) {
+            state = new State();
+            context.setAttribute(State.class, state);
+        }
+        return state;
+    }
+
+    /**
+     * The state of the failure parameters, one per simulation context.
+     */
+    private static final class State {
+
+        /**
+         * Task Failure Rate
+         * first index is vmId ;second index is task depth
+         * If FAILURE_JOB is specified first index is 0 only
+         * If FAILURE_VM is specified second index is 0 only
+         *
+         * @pre 0.0<= value <= 1.0
+         */
+        DistributionGenerator[][] generators;
+
+        /**
+         * Fault Tolerant Clustering method
+         */
+        FTCluteringAlgorithm FTClusteringAlgorithm = FTCluteringAlgorithm.FTCLUSTERING_NOOP;
+
+        /**
+         * Fault Tolerant Clustering monitor mode
+         */
+        FTCMonitor monitorMode = FTCMonitor.MONITOR_NONE;
+
+        /**
+         * Fault Tolerant Clustering failure generation mode
+         */
+        FTCFailure failureMode = FTCFailure.FAILURE_NONE;
+
+        /**
+         * The distribution of the failure
+         */
+        DistributionFamily distribution = DistributionFamily.WEIBULL;
     }
 }
@@ -16,7 +16,10 @@
 package org.workflowsim.planning;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.cloudbus.cloudsim.Vm;
 import org.workflowsim.FileItem;
 import org.workflowsim.Task;
@@ -50,87 +53,116 @@ public class DHEFTPlanningAlgorithm extends BasePlanningAlgorithm {
                 bandwidths[i][j] = bandwidths [j][i] = Math.min(vmList.get(i).getBw(), vmList.get(j).getBw());
             }
         }
-        for (Object vmObject : getVmList()) {
-            Vm vm =  (Vm)vmObject;
-            vm.getBw();
-        }
         
-        int vmNum = getVmList().size();
-        int taskNum = getTaskList().size();
+        PlanningGraph graph = new PlanningGraph(getTaskList());
+        Task[] tasks = graph.tasks;
+        int vmNum = vmList.size();
+        int taskNum = tasks.length;
         double [] availableTime = new double[vmNum];
-        //cloudlet id starts from 1
-        double [][] earliestStartTime = new double[taskNum + 1][vmNum];
-        double [][] earliestFinishTime = new double[taskNum + 1][vmNum];
-        int [] allocation = new int[taskNum + 1];
+        /**
+         * The earliest finish time of the current task in each vm, by vm id,
+         * and of each task in the vm it is allocated to
+         */
+        double [] earliestFinishTime = new double[vmNum];
+        double [] allocatedFinishTime = new double[taskNum];
+        int [] allocation = new int[taskNum];
         
-        List<Task> taskList = new ArrayList(getTaskList());
-        List<Task> readyList = new ArrayList<>();
-        while(!taskList.isEmpty()){
-            readyList.clear();
-            for(Task task : taskList){
-                boolean ready = true;
-                for(Task parent: task.getParentList()){
-                    if(taskList.contains(parent)){
-                        ready = false;
-                        break;
-                    }
-                }
-                if(ready){
-                    readyList.add(task);
+        /**
+         * The number of output files of each task with each name
+         */
+        List<Map<String, Integer>> outputFiles = new ArrayList<>(taskNum);
+        for(Task task : tasks){
+            Map<String, Integer> mName2Count = new HashMap<>();
+            for(FileItem file : task.getFileList()){
+                if(file.getType() == Parameters.FileType.OUTPUT){
+                    Integer count = mName2Count.get(file.getName());
+                    mName2Count.put(file.getName(), count == null ? 1 : count + 1);
                 }
             }
-            taskList.removeAll(readyList);
-            //schedule readylist
-            for(Task task: readyList){
-                long [] fileSizes = new long[task.getParentList().size()];
-                int parentIndex = 0;
-                for(Task parent: task.getParentList()){
-                    long fileSize = 0;
-                    for(FileItem file : task.getFileList()){
-                        if(file.getType()==Parameters.FileType.INPUT){
-                            for(FileItem file2 : parent.getFileList()){
-                                if(file2.getType() == Parameters.FileType.OUTPUT && file2.getName().equals(file.getName()))
-                                {
-                                    fileSize += file.getSize();
-                                }
-                            }
-                        }
-                    }
-                    fileSizes[parentIndex] = fileSize;
-                    parentIndex ++;
-                }     
-                
-                double minTime = Double.MAX_VALUE;
-                int minTimeIndex = 0;
-                
-                for(int vmIndex = 0; vmIndex < getVmList().size(); vmIndex++){
-                    Vm vm = (Vm)getVmList().get(vmIndex);
-                    double startTime = availableTime[vm.getId()];
-                    parentIndex = 0;
-                    for(Task parent: task.getParentList()){
-                        int allocatedVmId = allocation[parent.getCloudletId()];
-                        double actualFinishTime = earliestFinishTime[parent.getCloudletId()][allocatedVmId];
-                        double communicationTime = fileSizes[parentIndex] / bandwidths[allocatedVmId][vm.getId()];
-                        
-                        if(actualFinishTime + communicationTime > startTime){
-                            startTime = actualFinishTime + communicationTime;
+            outputFiles.add(mName2Count);
+        }
+        
+        /**
+         * Tasks are scheduled round by round: a round has the tasks whose
+         * parents have all been scheduled in the previous rounds, in the order
+         * of the task list.
+         */
+        int [] topologicalOrder = graph.getTopologicalOrder();
+        int [] round = new int[taskNum];
+        int roundNum = 0;
+        for(int task : topologicalOrder){
+            for(int k = graph.parentStart[task]; k < graph.parentStart[task + 1]; k++){
+                round[task] = Math.max(round[task], round[graph.parents[k]] + 1);
+            }
+            roundNum = Math.max(roundNum, round[task] + 1);
+        }
+        int [] roundStart = new int[roundNum + 1];
+        for(int task : topologicalOrder){
+            roundStart[round[task] + 1]++;
+        }
+        for(int r = 0; r < roundNum; r++){
+            roundStart[r + 1] += roundStart[r];
+        }
+        int [] order = new int[topologicalOrder.length];
+        int [] next = roundStart.clone();
+        boolean [] sorted = new boolean[taskNum];
+        for(int task : topologicalOrder){
+            sorted[task] = true;
+        }
+        for(int task = 0; task < taskNum; task++){
+            if(sorted[task]){
+                order[next[round[task]]++] = task;
+            }
+        }
+        
+        for(int taskIndex : order){
+            Task task = tasks[taskIndex];
+            int parentStart = graph.parentStart[taskIndex];
+            long [] fileSizes = new long[graph.parentStart[taskIndex + 1] - parentStart];
+            for(int parentIndex = 0; parentIndex < fileSizes.length; parentIndex++){
+                Map<String, Integer> parentOutputs = outputFiles.get(graph.parents[parentStart + parentIndex]);
+                long fileSize = 0;
+                for(FileItem file : task.getFileList()){
+                    if(file.getType()==Parameters.FileType.INPUT){
+                        Integer count = parentOutputs.get(file.getName());
+                        for(int n = 0; count != null && n < count; n++){
+                            fileSize += file.getSize();
                         }
-                        parentIndex ++;
                     }
-                    earliestStartTime[task.getCloudletId()][vm.getId()] = startTime;
-                    double runtime = task.getCloudletLength() / vm.getMips();
-                    earliestFinishTime[task.getCloudletId()][vm.getId()] = runtime + startTime;
+                }
+                fileSizes[parentIndex] = fileSize;
+            }
+            
+            double minTime = Double.MAX_VALUE;
+            int minTimeIndex = 0;
+            Arrays.fill(earliestFinishTime, 0.0);
+            
+            for(int vmIndex = 0; vmIndex < vmNum; vmIndex++){
+                Vm vm = vmList.get(vmIndex);
+                double startTime = availableTime[vm.getId()];
+                for(int parentIndex = 0; parentIndex < fileSizes.length; parentIndex++){
+                    int parent = graph.parents[parentStart + parentIndex];
+                    int allocatedVmId = allocation[parent];
+                    double actualFinishTime = allocatedFinishTime[parent];
+                    double communicationTime = fileSizes[parentIndex] / bandwidths[allocatedVmId][vm.getId()];
                     
-                    if(runtime + startTime < minTime){
-                        minTime = runtime + startTime;
-                        minTimeIndex = vmIndex;
+                    if(actualFinishTime + communicationTime > startTime){
+                        startTime = actualFinishTime + communicationTime;
                     }
                 }
+                double runtime = task.getCloudletLength() / vm.getMips();
+                earliestFinishTime[vm.getId()] = runtime + startTime;
                 
-                allocation[task.getCloudletId()] = minTimeIndex;//we do not really need it use task.getVmId
-                task.setVmId(minTimeIndex);
-                availableTime[minTimeIndex] = minTime;
+                if(runtime + startTime < minTime){
+                    minTime = runtime + startTime;
+                    minTimeIndex = vmIndex;
+                }
             }
+            
+            allocation[taskIndex] = minTimeIndex;//we do not really need it use task.getVmId
+            allocatedFinishTime[taskIndex] = earliestFinishTime[minTimeIndex];
+            task.setVmId(minTimeIndex);
+            availableTime[minTimeIndex] = minTime;
         }
         
     }
@@ -16,7 +16,8 @@
 package org.workflowsim.planning;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,51 +31,83 @@ import org.workflowsim.utils.Parameters;
 /**
  * The HEFT planning algorithm.
  *
+ * Ties are broken by list order: the computation costs of a task are averaged
+ * in the order of the vm list, and tasks with the same rank are allocated in
+ * the order of the task list. Up to WorkflowSim Toolkit 1.0 both followed the
+ * iteration order of HashMaps keyed by vms and tasks, which depends on their
+ * identity hash codes, so the schedules of tasks with equal ranks could
+ * change from one run to another. They are now the same on every run, but may
+ * differ from the schedules of 1.0 where ranks tie.
+ *
  * @author Pedro Paulo Vezzá Campos
  * @date Oct 12, 2013
  */
 public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
 
-    private Map<Task, Map<CondorVM, Double>> computationCosts;
-    private Map<Task, Map<Task, Double>> transferCosts;
-    private Map<Task, Double> rank;
-    private Map<CondorVM, List<Event>> schedules;
-    private Map<Task, Double> earliestFinishTimes;
+    private PlanningGraph graph;
+    private CondorVM[] vms;
+    /**
+     * The time to compute task i in vm j is taskLengths[i] / vmMips[j], or
+     * Double.MAX_VALUE if the vm has fewer pes than the task.
+     */
+    private long[] taskLengths;
+    private int[] taskPes;
+    private double[] vmMips;
+    private int[] vmPes;
+    /**
+     * The time to transfer files along each dependency, indexed like the
+     * children and the parents of the graph.
+     */
+    private double[] childTransferCosts;
+    private double[] parentTransferCosts;
+    private double[] rank;
+    private Schedule[] schedules;
+    private double[] earliestFinishTimes;
+    private int[] allocatedVmIds;
     private double averageBandwidth;
 
-    private class Event {
-
-        public double start;
-        public double finish;
-
-        public Event(double start, double finish) {
-            this.start = start;
-            this.finish = finish;
-        }
-    }
-
-    private class TaskRank implements Comparable<TaskRank> {
-
-        public Task task;
-        public Double rank;
-
-        public TaskRank(Task task, Double rank) {
-            this.task = task;
-            this.rank = rank;
-        }
-
-        @Override
-        public int compareTo(TaskRank o) {
-            return o.rank.compareTo(rank);
+    /**
+     * The time slots reserved in a vm, in the order in which they are kept in
+     * the schedule. It is the order of their times except when a task is
+     * inserted into a gap that starts before its ready time: the task is then
+     * stored at the position of the last gap examined, like HEFT always did.
+     * As long as the finish times are in order, findFinishTime() looks for
+     * the gaps after the ready time with a binary search.
+     */
+    private static class Schedule {
+
+        private double[] starts = new double[8];
+        private double[] finishes = new double[8];
+        private int size;
+        /**
+         * The number of slots whose finish time is after the finish time of
+         * the next slot.
+         */
+        private int descents;
+
+        private void add(int pos, double start, double finish) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                finishes = Arrays.copyOf(finishes, size * 2);
+            }
+            if (pos > 0 && pos < size && finishes[pos - 1] > finishes[pos]) {
+                descents--;
+            }
+            if (pos > 0 && finishes[pos - 1] > finish) {
+                descents++;
+            }
+            if (pos < size && finish > finishes[pos]) {
+                descents++;
+            }
+            System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+            System.arraycopy(finishes, pos, finishes, pos + 1, size - pos);
+            starts[pos] = start;
+            finishes[pos] = finish;
+            size++;
         }
     }
 
     public HEFTPlanningAlgorithm() {
-        computationCosts = new HashMap<>();
-        transferCosts = new HashMap<>();
-        rank = new HashMap<>();
-        earliestFinishTimes = new HashMap<>();
-        schedules = new HashMap<>();
     }
 
     /**
@@ -85,11 +118,17 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
         Log.printLine("HEFT planner running with " + getTaskList().size()
                 + " tasks.");
 
+        graph = new PlanningGraph(getTaskList());
+        List<?> vmList = getVmList();
+        vms = new CondorVM[vmList.size()];
+        for (int j = 0; j < vms.length; j++) {
+            vms[j] = (CondorVM) vmList.get(j);
+        }
         averageBandwidth = calculateAverageBandwidth();
 
-        for (Object vmObject : getVmList()) {
-            CondorVM vm = (CondorVM) vmObject;
-            schedules.put(vm, new ArrayList<>());
+        schedules = new Schedule[vms.length];
+        for (int j = 0; j < vms.length; j++) {
+            schedules[j] = new Schedule();
         }
 
         // Prioritization phase
@@ -108,54 +147,85 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      */
     private double calculateAverageBandwidth() {
         double avg = 0.0;
-        for (Object vmObject : getVmList()) {
-            CondorVM vm = (CondorVM) vmObject;
+        for (CondorVM vm : vms) {
             avg += vm.getBw();
         }
-        return avg / getVmList().size();
+        return avg / vms.length;
     }
 
     /**
-     * Populates the computationCosts field with the time in seconds to compute
-     * a task in a vm.
+     * Populates the task and vm arrays from which the time in seconds to
+     * compute a task in a vm is obtained.
      */
     private void calculateComputationCosts() {
-        for (Task task : getTaskList()) {
-            Map<CondorVM, Double> costsVm = new HashMap<>();
-            for (Object vmObject : getVmList()) {
-                CondorVM vm = (CondorVM) vmObject;
-                if (vm.getNumberOfPes() < task.getNumberOfPes()) {
-                    costsVm.put(vm, Double.MAX_VALUE);
-                } else {
-                    costsVm.put(vm,
-                            task.getCloudletTotalLength() / vm.getMips());
-                }
-            }
-            computationCosts.put(task, costsVm);
+        Task[] tasks = graph.tasks;
+        taskLengths = new long[tasks.length];
+        taskPes = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            taskLengths[i] = tasks[i].getCloudletTotalLength();
+            taskPes[i] = tasks[i].getNumberOfPes();
+        }
+        vmMips = new double[vms.length];
+        vmPes = new int[vms.length];
+        for (int j = 0; j < vms.length; j++) {
+            vmMips[j] = vms[j].getMips();
+            vmPes[j] = vms[j].getNumberOfPes();
         }
     }
 
     /**
-     * Populates the transferCosts map with the time in seconds to transfer all
+     * Gets the time in seconds to compute a task in a vm
+     *
+     * @param task the index of the task
+     * @param vm the index of the vm
+     * @return the time
+     */
+    private double getComputationCost(int task, int vm) {
+        if (vmPes[vm] < taskPes[task]) {
+            return Double.MAX_VALUE;
+        }
+        return taskLengths[task] / vmMips[vm];
+    }
+
+    /**
+     * Populates the transfer costs with the time in seconds to transfer all
      * files from each parent to each child
      */
     private void calculateTransferCosts() {
-        // Initializing the matrix
-        for (Task task1 : getTaskList()) {
-            Map<Task, Double> taskTransferCosts = new HashMap<>();
-            for (Task task2 : getTaskList()) {
-                taskTransferCosts.put(task2, 0.0);
+        Task[] tasks = graph.tasks;
+        List<Map<String, Double>> inputSizes = new ArrayList<>(tasks.length);
+        for (Task task : tasks) {
+            inputSizes.add(getInputSizes(task));
+        }
+        childTransferCosts = new double[graph.children.length];
+        parentTransferCosts = new double[graph.parents.length];
+        for (int i = 0; i < tasks.length; i++) {
+            for (int k = graph.childStart[i]; k < graph.childStart[i + 1]; k++) {
+                int child = graph.children[k];
+                childTransferCosts[k] = calculateTransferCost(tasks[i], inputSizes.get(child));
+            }
+            for (int k = graph.parentStart[i]; k < graph.parentStart[i + 1]; k++) {
+                int parent = graph.parents[k];
+                parentTransferCosts[k] = calculateTransferCost(tasks[parent], inputSizes.get(i));
             }
-            transferCosts.put(task1, taskTransferCosts);
         }
+    }
 
-        // Calculating the actual values
-        for (Task parent : getTaskList()) {
-            for (Task child : parent.getChildList()) {
-                transferCosts.get(parent).put(child,
-                        calculateTransferCost(parent, child));
+    /**
+     * Gets the size of the first input file of a task with each name
+     *
+     * @param task the task
+     * @return the map from file name to size
+     */
+    private Map<String, Double> getInputSizes(Task task) {
+        Map<String, Double> mInputSizes = new HashMap<>();
+        for (FileItem file : task.getFileList()) {
+            if (file.getType() == Parameters.FileType.INPUT
+                    && !mInputSizes.containsKey(file.getName())) {
+                mInputSizes.put(file.getName(), file.getSize());
             }
         }
+        return mInputSizes;
     }
 
     /**
@@ -163,26 +233,19 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      * between parent and child
      *
      * @param parent
-     * @param child
+     * @param childInputSizes the sizes of the input files of the child
      * @return Transfer cost in seconds
      */
-    private double calculateTransferCost(Task parent, Task child) {
-        List<FileItem> parentFiles = parent.getFileList();
-        List<FileItem> childFiles = child.getFileList();
-
+    private double calculateTransferCost(Task parent, Map<String, Double> childInputSizes) {
         double acc = 0.0;
 
-        for (FileItem parentFile : parentFiles) {
+        for (FileItem parentFile : parent.getFileList()) {
             if (parentFile.getType() != Parameters.FileType.OUTPUT) {
                 continue;
             }
-
-            for (FileItem childFile : childFiles) {
-                if (childFile.getType() == Parameters.FileType.INPUT
-                        && childFile.getName().equals(parentFile.getName())) {
-                    acc += childFile.getSize();
-                    break;
-                }
+            Double size = childInputSizes.get(parentFile.getName());
+            if (size != null) {
+                acc += size;
             }
         }
 
@@ -193,61 +256,53 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
     }
 
     /**
-     * Invokes calculateRank for each task to be scheduled
+     * Calculates the rank of each task as defined in the HEFT paper, from the
+     * exit tasks up. The computation costs of a task are summed in the order
+     * of the vm list.
      */
     private void calculateRanks() {
-        for (Task task : getTaskList()) {
-            calculateRank(task);
-        }
-    }
-
-    /**
-     * Populates rank.get(task) with the rank of task as defined in the HEFT
-     * paper.
-     *
-     * @param task The task have the rank calculates
-     * @return The rank
-     */
-    private double calculateRank(Task task) {
-        if (rank.containsKey(task)) {
-            return rank.get(task);
-        }
-
-        double averageComputationCost = 0.0;
-
-        for (Double cost : computationCosts.get(task).values()) {
-            averageComputationCost += cost;
-        }
-
-        averageComputationCost /= computationCosts.get(task).size();
+        rank = new double[graph.tasks.length];
+        int[] order = graph.getTopologicalOrder();
+        for (int n = order.length - 1; n >= 0; n--) {
+            int task = order[n];
+            double averageComputationCost = 0.0;
+            for (int j = 0; j < vms.length; j++) {
+                averageComputationCost += getComputationCost(task, j);
+            }
+            averageComputationCost /= vms.length;
 
-        double max = 0.0;
-        for (Task child : task.getChildList()) {
-            double childCost = transferCosts.get(task).get(child)
-                    + calculateRank(child);
-            max = Math.max(max, childCost);
+            double max = 0.0;
+            for (int k = graph.childStart[task]; k < graph.childStart[task + 1]; k++) {
+                double childCost = childTransferCosts[k] + rank[graph.children[k]];
+                max = Math.max(max, childCost);
+            }
+            rank[task] = averageComputationCost + max;
         }
-
-        rank.put(task, averageComputationCost + max);
-
-        return rank.get(task);
     }
 
     /**
      * Allocates all tasks to be scheduled in non-ascending order of schedule.
+     * Tasks with the same rank are allocated in the order of the task list.
      */
     private void allocateTasks() {
-        List<TaskRank> taskRank = new ArrayList<>();
-        for (Task task : rank.keySet()) {
-            taskRank.add(new TaskRank(task, rank.get(task)));
+        Integer[] taskRank = new Integer[graph.tasks.length];
+        for (int i = 0; i < taskRank.length; i++) {
+            taskRank[i] = i;
         }
 
         // Sorting in non-ascending order of rank
-        Collections.sort(taskRank);
-        for (TaskRank rank : taskRank) {
-            allocateTask(rank.task);
+        Arrays.sort(taskRank, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer t1, Integer t2) {
+                return Double.compare(rank[t2], rank[t1]);
+            }
+        });
+        earliestFinishTimes = new double[graph.tasks.length];
+        allocatedVmIds = new int[graph.tasks.length];
+        Arrays.fill(allocatedVmIds, -1);
+        for (Integer task : taskRank) {
+            allocateTask(task);
         }
-
     }
 
     /**
@@ -257,37 +312,67 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      * @param task The task to be scheduled
      * @pre All parent tasks are already scheduled
      */
-    private void allocateTask(Task task) {
-        CondorVM chosenVM = null;
+    private void allocateTask(int task) {
+        /**
+         * The ready time in a vm is the latest time at which the output of a
+         * parent is available in it, which includes the transfer time unless
+         * the parent runs in that vm. Find the latest one among the parents
+         * in each vm used by the parents and the two latest ones including
+         * the transfer time, in distinct vms.
+         */
+        Map<Integer, double[]> mVm2ReadyTimes = new HashMap<>();
+        double firstReadyTime = 0.0;
+        int firstVmId = -1;
+        double secondReadyTime = 0.0;
+        for (int k = graph.parentStart[task]; k < graph.parentStart[task + 1]; k++) {
+            int parent = graph.parents[k];
+            int vmId = allocatedVmIds[parent];
+            double[] readyTimes = mVm2ReadyTimes.get(vmId);
+            if (readyTimes == null) {
+                readyTimes = new double[]{0.0, 0.0};
+                mVm2ReadyTimes.put(vmId, readyTimes);
+            }
+            readyTimes[0] = Math.max(readyTimes[0], earliestFinishTimes[parent]);
+            readyTimes[1] = Math.max(readyTimes[1], earliestFinishTimes[parent] + parentTransferCosts[k]);
+        }
+        for (Map.Entry<Integer, double[]> entry : mVm2ReadyTimes.entrySet()) {
+            double readyTime = entry.getValue()[1];
+            if (readyTime > firstReadyTime) {
+                secondReadyTime = firstReadyTime;
+                firstReadyTime = readyTime;
+                firstVmId = entry.getKey();
+            } else if (readyTime > secondReadyTime) {
+                secondReadyTime = readyTime;
+            }
+        }
+
+        int chosenVM = -1;
         double earliestFinishTime = Double.MAX_VALUE;
         double bestReadyTime = 0.0;
         double finishTime;
 
-        for (Object vmObject : getVmList()) {
-            CondorVM vm = (CondorVM) vmObject;
-            double minReadyTime = 0.0;
-
-            for (Task parent : task.getParentList()) {
-                double readyTime = earliestFinishTimes.get(parent);
-                if (parent.getVmId() != vm.getId()) {
-                    readyTime += transferCosts.get(parent).get(task);
-                }
-                minReadyTime = Math.max(minReadyTime, readyTime);
+        for (int j = 0; j < vms.length; j++) {
+            int vmId = vms[j].getId();
+            double minReadyTime = firstReadyTime;
+            double[] readyTimes = mVm2ReadyTimes.get(vmId);
+            if (readyTimes != null) {
+                minReadyTime = Math.max(readyTimes[0], vmId == firstVmId ? secondReadyTime : firstReadyTime);
             }
 
-            finishTime = findFinishTime(task, vm, minReadyTime, false);
+            finishTime = findFinishTime(task, j, minReadyTime, false);
 
             if (finishTime < earliestFinishTime) {
                 bestReadyTime = minReadyTime;
                 earliestFinishTime = finishTime;
-                chosenVM = vm;
+                chosenVM = j;
             }
         }
 
         findFinishTime(task, chosenVM, bestReadyTime, true);
-        earliestFinishTimes.put(task, earliestFinishTime);
+        earliestFinishTimes[task] = earliestFinishTime;
+        allocatedVmIds[task] = vms[chosenVM].getId();
 
-        task.setVmId(chosenVM.getId());
+        graph.tasks[task].setVmId(vms[chosenVM].getId());
     }
 
     /**
@@ -302,76 +387,107 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      * @param occupySlot If true, reserves the time slot in the schedule.
      * @return The minimal finish time of the task in the vmn
      */
-    private double findFinishTime(Task task, CondorVM vm, double readyTime,
+    private double findFinishTime(int task, int vm, double readyTime,
             boolean occupySlot) {
-        List<Event> sched = schedules.get(vm);
-        double computationCost = computationCosts.get(task).get(vm);
+        Schedule sched = schedules[vm];
+        double[] starts = sched.starts;
+        double[] finishes = sched.finishes;
+        int size = sched.size;
+        double computationCost = getComputationCost(task, vm);
         double start, finish;
         int pos;
 
-        if (sched.isEmpty()) {
+        if (size == 0) {
             if (occupySlot) {
-                sched.add(new Event(readyTime, readyTime + computationCost));
+                sched.add(0, readyTime, readyTime + computationCost);
             }
             return readyTime + computationCost;
         }
 
-        if (sched.size() == 1) {
-            if (readyTime >= sched.get(0).finish) {
+        if (size == 1) {
+            if (readyTime >= finishes[0]) {
                 pos = 1;
                 start = readyTime;
-            } else if (readyTime + computationCost <= sched.get(0).start) {
+            } else if (readyTime + computationCost <= starts[0]) {
                 pos = 0;
                 start = readyTime;
             } else {
                 pos = 1;
-                start = sched.get(0).finish;
+                start = finishes[0];
             }
 
             if (occupySlot) {
-                sched.add(pos, new Event(start, start + computationCost));
+                sched.add(pos, start, start + computationCost);
             }
             return start + computationCost;
         }
 
         // Trivial case: Start after the latest task scheduled
-        start = Math.max(readyTime, sched.get(sched.size() - 1).finish);
+        start = Math.max(readyTime, finishes[size - 1]);
         finish = start + computationCost;
-        int i = sched.size() - 1;
-        int j = sched.size() - 2;
-        pos = i + 1;
-        while (j >= 0) {
-            Event current = sched.get(i);
-            Event previous = sched.get(j);
-
-            if (readyTime > previous.finish) {
-                if (readyTime + computationCost <= current.start) {
-                    start = readyTime;
-                    finish = readyTime + computationCost;
+        pos = size;
+        if (sched.descents == 0) {
+            /**
+             * The last slot (except the very last one) that finishes before
+             * readyTime, or -1
+             */
+            int low = 0;
+            int high = size - 2;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (readyTime > finishes[mid]) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
                 }
-
-                break;
             }
-            if (previous.finish + computationCost <= current.start) {
-                start = previous.finish;
-                finish = previous.finish + computationCost;
-                pos = i;
+            int last = high;
+            // The first gap after it that is large enough
+            for (int j = last + 1; j <= size - 2; j++) {
+                if (finishes[j] + computationCost <= starts[j + 1]) {
+                    start = finishes[j];
+                    finish = finishes[j] + computationCost;
+                    pos = j + 1;
+                    break;
+                }
+            }
+            if (last >= 0 && readyTime + computationCost <= starts[last + 1]) {
+                start = readyTime;
+                finish = readyTime + computationCost;
+            }
+        } else {
+            int i = size - 1;
+            int j = size - 2;
+            while (j >= 0) {
+                if (readyTime > finishes[j]) {
+                    if (readyTime + computationCost <= starts[i]) {
+                        start = readyTime;
+                        finish = readyTime + computationCost;
+                    }
+
+                    break;
+                }
+                if (finishes[j] + computationCost <= starts[i]) {
+                    start = finishes[j];
+                    finish = finishes[j] + computationCost;
+                    pos = i;
+                }
+                i--;
+                j--;
             }
-            i--;
-            j--;
         }
 
-        if (readyTime + computationCost <= sched.get(0).start) {
+        if (readyTime + computationCost <= starts[0]) {
             pos = 0;
             start = readyTime;
 
             if (occupySlot) {
-                sched.add(pos, new Event(start, start + computationCost));
+                sched.add(pos, start, start + computationCost);
             }
             return start + computationCost;
         }
         if (occupySlot) {
-            sched.add(pos, new Event(start, finish));
+            sched.add(pos, start, finish);
         }
         return finish;
     }
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.planning;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.workflowsim.Task;
+
+/**
+ * PlanningGraph indexes the tasks of a planner by their position in its task
+ * list and stores their dependencies as arrays (compressed sparse rows), so
+ * that planning algorithms work on arrays instead of maps keyed by tasks.
+ * Dependencies with tasks that are not in the task list are left out.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+final class PlanningGraph {
+
+    /**
+     * The tasks, in the order of the task list
+     */
+    final Task[] tasks;
+    /**
+     * The parents of task i are parents[parentStart[i]] to
+     * parents[parentStart[i + 1] - 1], in the order of its parent list.
+     */
+    final int[] parentStart;
+    final int[] parents;
+    /**
+     * The children of task i, in the order of its child list.
+     */
+    final int[] childStart;
+    final int[] children;
+
+    PlanningGraph(List<Task> taskList) {
+        tasks = taskList.toArray(new Task[taskList.size()]);
+        Map<Task, Integer> mTask2Index = new IdentityHashMap<>();
+        for (int i = 0; i < tasks.length; i++) {
+            mTask2Index.put(tasks[i], i);
+        }
+        parentStart = new int[tasks.length + 1];
+        childStart = new int[tasks.length + 1];
+        int parentNum = 0;
+        int childNum = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            parentNum += count(tasks[i].getParentList(), mTask2Index);
+            childNum += count(tasks[i].getChildList(), mTask2Index);
+        }
+        parents = new int[parentNum];
+        children = new int[childNum];
+        for (int i = 0; i < tasks.length; i++) {
+            parentStart[i + 1] = fill(tasks[i].getParentList(), mTask2Index, parents, parentStart[i]);
+            childStart[i + 1] = fill(tasks[i].getChildList(), mTask2Index, children, childStart[i]);
+        }
+    }
+
+    private static int count(List<Task> list, Map<Task, Integer> mTask2Index) {
+        int num = 0;
+        for (Task task : list) {
+            if (mTask2Index.containsKey(task)) {
+                num++;
+            }
+        }
+        return num;
+    }
+
+    private static int fill(List<Task> list, Map<Task, Integer> mTask2Index, int[] array, int offset) {
+        for (Task task : list) {
+            Integer index = mTask2Index.get(task);
+            if (index != null) {
+                array[offset++] = index;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Gets the tasks in a topological order: each task comes after all its
+     * parents. Tasks that are in a cycle are left out.
+     *
+     * @return the indexes of the tasks
+     */
+    int[] getTopologicalOrder() {
+        int[] parentNum = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            parentNum[i] = parentStart[i + 1] - parentStart[i];
+        }
+        int[] order = new int[tasks.length];
+        int tail = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            if (parentNum[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int task = order[head];
+            for (int k = childStart[task]; k < childStart[task + 1]; k++) {
+                if (--parentNum[children[k]] == 0) {
+                    order[tail++] = children[k];
+                }
+            }
+        }
+        if (tail < order.length) {
+            int[] partial = new int[tail];
+            System.arraycopy(order, 0, partial, 0, tail);
+            return partial;
+        }
+        return order;
+    }
+}
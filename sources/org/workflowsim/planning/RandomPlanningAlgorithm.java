@@ -17,6 +17,7 @@ package org.workflowsim.planning;
 
 import java.util.Iterator;
 import java.util.Random;
+import org.cloudbus.cloudsim.util.RandomStreams;
 import org.workflowsim.CondorVM;
 import org.workflowsim.Task;
 import org.workflowsim.utils.Parameters;
@@ -30,13 +31,18 @@ import org.workflowsim.utils.Parameters;
  */
 public class RandomPlanningAlgorithm extends BasePlanningAlgorithm {
 
+    /**
+     * The random stream the vms are chosen with, see RandomStreams
+     */
+    public static final String RANDOM_STREAM = "workflowsim.planning.random";
+
     /**
      * The main function
      */
     @Override
     public void run() {
 
-        Random random = new Random(System.currentTimeMillis());
+        Random random = RandomStreams.getStream(RANDOM_STREAM);
         for (Iterator it = getTaskList().iterator(); it.hasNext();) {
             Task task = (Task) it.next();
             double duration = task.getCloudletLength() / 1000;
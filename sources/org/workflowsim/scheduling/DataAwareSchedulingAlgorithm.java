@@ -85,16 +85,7 @@ public class DataAwareSchedulingAlgorithm extends BaseSchedulingAlgorithm {
         for (FileItem file : requiredFiles) {
             //The input file is not an output File 
             if (file.isRealInputFile(requiredFiles)) {
-                List<String> siteList = ReplicaCatalog.getStorageList(file.getName());
-
-                boolean hasFile = false;
-                for (String site : siteList) {
-                    if(site.equals(Integer.toString(vmId))){
-                        hasFile = true;
-                        break;
-                    }
-                }
-                if(!hasFile){
+                if (!ReplicaCatalog.isFileOnVm(file.getName(), vmId)) {
                     time += file.getSize() ;
                 }
             }
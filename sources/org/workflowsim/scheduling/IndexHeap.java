@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.scheduling;
+
+import java.util.List;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.workflowsim.CondorVM;
+import org.workflowsim.WorkflowSimTags;
+
+/**
+ * IndexHeap is a binary heap of list indexes, used by the schedulers to pick
+ * jobs and vms in O(log n) instead of scanning their lists. It is built in
+ * linear time. Ties are broken by the list index, so that the first element
+ * in the list wins, as with a linear scan.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+abstract class IndexHeap {
+
+    private final int[] heap;
+    private int size;
+
+    /**
+     * Initialize an IndexHeap
+     *
+     * @param indexes the list indexes, the array is used as the heap
+     */
+    IndexHeap(int[] indexes) {
+        this.heap = indexes;
+        this.size = indexes.length;
+    }
+
+    /**
+     * Builds the heap, should be called once the subclass is initialized
+     */
+    final IndexHeap heapify() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        return this;
+    }
+
+    /**
+     * Compares the elements at two list indexes, ignoring ties
+     *
+     * @return a negative number if the element at a comes first
+     */
+    abstract int compareElements(int a, int b);
+
+    /**
+     * Checks whether the heap is empty
+     */
+    final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the first index
+     *
+     * @return the index, or -1 if the heap is empty
+     */
+    final int poll() {
+        if (size == 0) {
+            return -1;
+        }
+        int first = heap[0];
+        heap[0] = heap[--size];
+        siftDown(0);
+        return first;
+    }
+
+    private boolean before(int a, int b) {
+        int result = compareElements(a, b);
+        return result < 0 || (result == 0 && a < b);
+    }
+
+    private void siftDown(int i) {
+        int index = heap[i];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], index)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = index;
+    }
+
+    private static int[] range(int num) {
+        int[] indexes = new int[num];
+        for (int i = 0; i < num; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    /**
+     * Creates a heap of the jobs of a list by length
+     *
+     * @param cloudletList the jobs, which are Cloudlets; it is not typed as
+     * such because the schedulers get it from a raw list
+     * @param longestFirst whether the longest job comes first, otherwise the
+     * shortest
+     * @return the heap
+     */
+    static IndexHeap byLength(List<?> cloudletList, final boolean longestFirst) {
+        final long[] lengths = new long[cloudletList.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = ((Cloudlet) cloudletList.get(i)).getCloudletLength();
+        }
+        return new IndexHeap(range(lengths.length)) {
+            @Override
+            int compareElements(int a, int b) {
+                return longestFirst ? Long.compare(lengths[b], lengths[a]) : Long.compare(lengths[a], lengths[b]);
+            }
+        }.heapify();
+    }
+
+    /**
+     * Creates a heap of the idle vms of a list, the fastest (by requested
+     * mips) first
+     *
+     * @param vmList the vms, which are CondorVMs
+     * @return the heap
+     */
+    static IndexHeap idleVmsByMips(List<?> vmList) {
+        int num = 0;
+        for (int i = 0; i < vmList.size(); i++) {
+            if (((CondorVM) vmList.get(i)).getState() == WorkflowSimTags.VM_STATUS_IDLE) {
+                num++;
+            }
+        }
+        int[] indexes = new int[num];
+        final double[] mips = new double[vmList.size()];
+        num = 0;
+        for (int i = 0; i < vmList.size(); i++) {
+            CondorVM vm = (CondorVM) vmList.get(i);
+            if (vm.getState() == WorkflowSimTags.VM_STATUS_IDLE) {
+                indexes[num++] = i;
+                mips[i] = vm.getCurrentRequestedTotalMips();
+            }
+        }
+        return new IndexHeap(indexes) {
+            @Override
+            int compareElements(int a, int b) {
+                return mips[a] > mips[b] ? -1 : (mips[b] > mips[a] ? 1 : 0);
+            }
+        }.heapify();
+    }
+}
@@ -36,32 +36,16 @@ public class MCTSchedulingAlgorithm extends BaseSchedulingAlgorithm {
     @Override
     public void run() {
 
-
+        /**
+         * Jobs are taken in the order of the job list, each goes to the
+         * fastest idle vm, taken from a heap of the idle vms.
+         */
+        IndexHeap idleVms = IndexHeap.idleVmsByMips(getVmList());
         int size = getCloudletList().size();
 
-        for (int i = 0; i < size; i++) {
+        for (int i = 0; i < size && !idleVms.isEmpty(); i++) {
             Cloudlet cloudlet = (Cloudlet) getCloudletList().get(i);
-            int vmSize = getVmList().size();
-            CondorVM firstIdleVm = null;
-
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if (vm.getState() == WorkflowSimTags.VM_STATUS_IDLE) {
-                    firstIdleVm = vm;
-                    break;
-                }
-            }
-            if (firstIdleVm == null) {
-                break;
-            }
-
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if ((vm.getState() == WorkflowSimTags.VM_STATUS_IDLE)
-                        && (vm.getCurrentRequestedTotalMips() > firstIdleVm.getCurrentRequestedTotalMips())) {
-                    firstIdleVm = vm;
-                }
-            }
+            CondorVM firstIdleVm = (CondorVM) getVmList().get(idleVms.poll());
             firstIdleVm.setState(WorkflowSimTags.VM_STATUS_BUSY);
             cloudlet.setVmId(firstIdleVm.getId());
             getScheduledList().add(cloudlet);
@@ -24,6 +24,12 @@ package org.workflowsim.utils;
  */
 public class ClusteringParameters {
 
+    /**
+     * The random stream the clustering methods shuffle tasks with, see
+     * RandomStreams
+     */
+    public static final String SHUFFLE_STREAM = "workflowsim.clustering.shuffle";
+
     /**
      * The number of clustered jobs per level. You just need to set one of
      * clusters.num or clusteres.size
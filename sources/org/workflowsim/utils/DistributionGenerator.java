@@ -23,6 +23,8 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.distribution.RealDistribution;
 import org.apache.commons.math3.distribution.WeibullDistribution;
+import org.cloudbus.cloudsim.util.RandomStream;
+import org.cloudbus.cloudsim.util.RandomStreams;
 
 /**
  * This is a OverheadDistributionGenrator for one typic overhead per level.
@@ -39,9 +41,33 @@ public class DistributionGenerator {
     protected double scale_prior;
     protected double shape_prior;
     protected double likelihood_prior;
-    protected double[] samples;
-    protected double[] cumulativeSamples;
+    /**
+     * The samples and their cumulative sums, extended in place
+     */
+    private final SampleStore sampleStore;
     protected int cursor;
+    /**
+     * The sum of the samples consumed by getNextSample
+     */
+    protected double sampleSum;
+    /**
+     * The sum of the samples consumed by getNextSample, each raised to the
+     * power of likelihood_prior, for the MLE of Weibull distributions
+     */
+    protected double samplePowerSum;
+    /**
+     * The name of the random stream the samples are drawn from, null to split
+     * a stream of its own from the DISTRIBUTION_STREAM stream
+     */
+    private String streamName;
+    /**
+     * The random stream, chosen when the first samples are drawn
+     */
+    private RandomStream random;
+    /**
+     * The stream the generators without a stream name split their own from
+     */
+    public static final String DISTRIBUTION_STREAM = "workflowsim.distribution";
     protected final int SAMPLE_SIZE = 1500 ; //DistributionGenerator will automatically increase the size
     
 
@@ -62,9 +88,8 @@ public class DistributionGenerator {
         this.shape = shape;
         this.scale_prior = scale;
         this.shape_prior = shape;
-        RealDistribution distribution = getDistribution(scale, shape);
-        samples = distribution.sample(SAMPLE_SIZE);
-        updateCumulativeSamples();
+        //the samples are drawn when first needed, once the stream is known
+        sampleStore = new SampleStore();
         cursor = 0;
     }
 
@@ -76,43 +101,133 @@ public class DistributionGenerator {
     }
 
     /**
-     * Gets the sample data
+     * Gets a copy of the sample data
      *
      * @return samples
      */
     public double[] getSamples() {
-        return samples;
+        ensureSamples();
+        return sampleStore.toArray();
     }
 
     /**
-     * Gets the cumulative Samples
+     * Gets a copy of the cumulative Samples
      *
      * @return cumulativeSamples
      */
     public double[] getCumulativeSamples() {
-        return cumulativeSamples;
+        ensureSamples();
+        return sampleStore.toCumulativeArray();
     }
 
     /**
-     * Extends the sample size
+     * Gets the sum of all the samples
+     *
+     * @return the last cumulative sample
      */
-    public void extendSamples() {
-        double[] new_samples = getDistribution(scale, shape).sample(SAMPLE_SIZE);
-        samples = concat(samples, new_samples);
-        updateCumulativeSamples();
+    public double getLastCumulativeSample() {
+        ensureSamples();
+        return sampleStore.getCumulativeSample(sampleStore.size() - 1);
     }
 
     /**
-     * Update cumulativeSamples from samples
+     * Gets a cumulative sample
+     *
+     * @param index the index of the sample
+     * @return the sum of the samples up to index
      */
+    public double getCumulativeSample(int index) {
+        ensureSamples();
+        return sampleStore.getCumulativeSample(index);
+    }
+
+    /**
+     * Finds the first cumulative sample that is at least a value
+     *
+     * @param value the value
+     * @return the index of the sample, -1 if there is none
+     */
+    public int findCumulativeSample(double value) {
+        ensureSamples();
+        return sampleStore.findCumulativeSample(value);
+    }
+
+    /**
+     * Gets the samples drawn so far, along with their cumulative sums. The
+     * samples used to be a double[] field, and their cumulative sums another
+     * one updated by updateCumulativeSamples(), up to WorkflowSim Toolkit 1.0.
+     *
+     * @return the samples
+     */
+    protected SampleStore getSampleStore() {
+        return sampleStore;
+    }
+
+    /**
+     * Updates the cumulative samples
+     *
+     * @deprecated the store keeps the cumulative sums up to date as samples
+     * are appended, so this only draws the first samples if none has been
+     * drawn yet
+     */
+    @Deprecated
     public void updateCumulativeSamples() {
-        cumulativeSamples = new double[samples.length];
-        cumulativeSamples[0] = samples[0];
-        for (int i = 1; i < samples.length; i++) {
-            cumulativeSamples[i] = cumulativeSamples[i - 1] + samples[i];
+        ensureSamples();
+    }
+
+    /**
+     * Draws the first samples if none has been drawn yet
+     */
+    protected void ensureSamples() {
+        if (sampleStore.size() == 0) {
+            extendSamples();
         }
     }
 
+    /**
+     * Sets the random stream the samples are drawn from, see RandomStreams.
+     * It has no effect once samples have been drawn.
+     *
+     * @param name the name of the stream
+     */
+    public void setRandomStream(String name) {
+        if (random == null) {
+            this.streamName = name;
+        }
+    }
+
+    /**
+     * Checks whether the random stream has been set or chosen
+     *
+     * @return whether it has
+     */
+    public boolean hasRandomStream() {
+        return streamName != null || random != null;
+    }
+
+    /**
+     * Gets the random stream the samples are drawn from
+     *
+     * @return the random stream
+     */
+    protected RandomStream getRandomStream() {
+        if (random == null) {
+            if (streamName != null) {
+                random = RandomStreams.getStream(streamName);
+            } else {
+                random = RandomStreams.split(DISTRIBUTION_STREAM);
+            }
+        }
+        return random;
+    }
+
+    /**
+     * Extends the sample size
+     */
+    public void extendSamples() {
+        sampleStore.append(getDistribution(scale, shape).sample(SAMPLE_SIZE));
+    }
+
     /**
      * Gets the Prior Knowledge based Estimation of samples
      *
@@ -128,11 +243,7 @@ public class DistributionGenerator {
      * @return average
      */
     public double getMean() {
-        double sum = 0.0;
-        for (int i = 0; i < cursor; i++) {
-            sum += samples[i];
-        }
-        return sum / cursor;
+        return sampleSum / cursor;
     }
 
     /**
@@ -151,25 +262,13 @@ public class DistributionGenerator {
      */
     public double getMLEMean() {
         double a = shape_prior, b = scale_prior;
-        double sum = 0.0;
-
-        for (int i = 0; i < cursor; i++) {
-            switch (dist) {
-                case GAMMA:
-                    sum += samples[i];
-                    break;
-                case WEIBULL:
-                    sum += Math.pow(samples[i], likelihood_prior);
-                    break;
-            }
-        }
         double result = 0.0;
         switch (dist) {
             case GAMMA:
-                result = (b + sum) / (a + cursor * likelihood_prior - 1);
+                result = (b + sampleSum) / (a + cursor * likelihood_prior - 1);
                 break;
             case WEIBULL:
-                result = (b + sum) / (a + cursor + 1);
+                result = (b + samplePowerSum) / (a + cursor + 1);
                 break;
             default:
                 break;
@@ -178,7 +277,10 @@ public class DistributionGenerator {
     }
 
     /**
-     * Vary the distribution parameters but not the prior knowledge
+     * Vary the distribution parameters but not the prior knowledge. The
+     * samples are drawn again from the new distribution, at least as many as
+     * have been consumed, and the cursor is kept, so getMean and getMLEMean
+     * return the statistics of the new samples before the cursor.
      *
      * @param scale the first param
      * @param shape the second param
@@ -186,10 +288,18 @@ public class DistributionGenerator {
     public void varyDistribution(double scale, double shape) {
         this.scale = scale;
         this.shape = shape;
-        RealDistribution distribution = getDistribution(scale, shape);
-        samples = distribution.sample(SAMPLE_SIZE);
-        updateCumulativeSamples();
+        sampleStore.clear();
+        do {
+            sampleStore.append(getDistribution(scale, shape).sample(SAMPLE_SIZE));
+        } while (sampleStore.size() < cursor);
         //cursor = 0;
+        sampleSum = cursor > 0 ? sampleStore.getCumulativeSample(cursor - 1) : 0.0;
+        samplePowerSum = 0.0;
+        if (dist == DistributionFamily.WEIBULL) {
+            for (int i = 0; i < cursor; i++) {
+                samplePowerSum += Math.pow(sampleStore.getSample(i), likelihood_prior);
+            }
+        }
     }
 
     /**
@@ -211,13 +321,16 @@ public class DistributionGenerator {
      * @return delay
      */
     public double getNextSample() {
-        while (cursor >= samples.length) {
-            double[] new_samples = getDistribution(scale, shape).sample(SAMPLE_SIZE);
-            samples = concat(samples, new_samples);
-            updateCumulativeSamples();
+        ensureSamples();
+        while (cursor >= sampleStore.size()) {
+            sampleStore.append(getDistribution(scale, shape).sample(SAMPLE_SIZE));
         }
-        double delay = samples[cursor];
+        double delay = sampleStore.getSample(cursor);
         cursor++;
+        sampleSum += delay;
+        if (dist == DistributionFamily.WEIBULL) {
+            samplePowerSum += Math.pow(delay, likelihood_prior);
+        }
         return delay;
     }
 
@@ -230,19 +343,24 @@ public class DistributionGenerator {
      */
     public RealDistribution getDistribution(double scale, double shape) {
         RealDistribution distribution = null;
+        RandomStream rng = getRandomStream();
         switch (this.dist) {
             case LOGNORMAL:
-                distribution = new LogNormalDistribution(scale, shape);
+                distribution = new LogNormalDistribution(rng, scale, shape,
+                        LogNormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case WEIBULL:
-                distribution = new WeibullDistribution(shape, scale);
+                distribution = new WeibullDistribution(rng, shape, scale,
+                        WeibullDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case GAMMA:
-                distribution = new GammaDistribution(shape, scale);
+                distribution = new GammaDistribution(rng, shape, scale,
+                        GammaDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case NORMAL:
                 //shape is the std, scale is the mean
-                distribution = new NormalDistribution(scale, shape);
+                distribution = new NormalDistribution(rng, scale, shape,
+                        NormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             default:
                 break;
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ImpactFactorCalculator computes impact factors in a workflow, where a node
+ * (a task or a set of tasks) passes its impact factor to its parents, evenly
+ * split among them. Propagating the impact of each exit node path by path
+ * takes exponential time on workflows with many paths. Instead, the nodes are
+ * visited once, from the exit nodes up, in reverse topological order, and each
+ * node passes the sum of the impact it has received to its parents. Hence it
+ * takes O(V+E) time and no recursion.
+ *
+ * @param <T> the type of the nodes
+ * @since WorkflowSim Toolkit 1.1
+ */
+public abstract class ImpactFactorCalculator<T> {
+
+    /**
+     * Gets the parents of a node
+     *
+     * @param node the node
+     * @return the parents
+     */
+    protected abstract List<T> getParentList(T node);
+
+    /**
+     * Gets the impact factor of a node
+     *
+     * @param node the node
+     * @return the impact factor
+     */
+    protected abstract double getImpactFactor(T node);
+
+    /**
+     * Sets the impact factor of a node
+     *
+     * @param node the node
+     * @param impact the impact factor
+     */
+    protected abstract void setImpactFactor(T node, double impact);
+
+    /**
+     * Adds an impact factor to some nodes and propagates it to their
+     * ancestors: a node adds the impact it receives to its own impact factor
+     * and splits it evenly among its parents.
+     *
+     * @param nodes the nodes, usually the exit nodes
+     * @param impact the impact factor added to each of them
+     */
+    public void addImpact(Collection<T> nodes, double impact) {
+        Map<T, Flow> flows = new IdentityHashMap<>();
+        List<T> visited = new ArrayList<>();
+        Deque<T> stack = new ArrayDeque<>();
+        for (T node : nodes) {
+            getFlow(flows, visited, stack, node).impact += impact;
+        }
+        /**
+         * Find the ancestors of the nodes and count the children of each of
+         * them, that is the number of times it appears in a parent list.
+         */
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+            for (T parent : getParentList(node)) {
+                getFlow(flows, visited, stack, parent).childNum++;
+            }
+        }
+        /**
+         * A node is visited once all its children have been visited.
+         */
+        Deque<T> ready = new ArrayDeque<>();
+        for (T node : visited) {
+            if (flows.get(node).childNum == 0) {
+                ready.add(node);
+            }
+        }
+        while (!ready.isEmpty()) {
+            T node = ready.poll();
+            Flow flow = flows.get(node);
+            setImpactFactor(node, getImpactFactor(node) + flow.impact);
+            List<T> parents = getParentList(node);
+            int size = parents.size();
+            if (size > 0) {
+                double avg = flow.impact / size;
+                for (T parent : parents) {
+                    Flow parentFlow = flows.get(parent);
+                    parentFlow.impact += avg;
+                    if (--parentFlow.childNum == 0) {
+                        ready.add(parent);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the flow of a node, creating it when the node is first visited
+     */
+    private Flow getFlow(Map<T, Flow> flows, List<T> visited, Deque<T> stack, T node) {
+        Flow flow = flows.get(node);
+        if (flow == null) {
+            flow = new Flow();
+            flows.put(node, flow);
+            visited.add(node);
+            stack.push(node);
+        }
+        return flow;
+    }
+
+    /**
+     * The impact a node has received and the number of its children that have
+     * not been visited yet
+     */
+    private static final class Flow {
+
+        private double impact;
+        private int childNum;
+    }
+}
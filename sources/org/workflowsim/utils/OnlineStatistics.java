@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.utils;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * OnlineStatistics computes the mean and the variance of values as they are
+ * added, with Welford's algorithm, so that the values need not be kept and the
+ * variance does not suffer from cancellation.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class OnlineStatistics {
+
+    private long count;
+    private double mean;
+    /**
+     * The sum of the squared differences to the mean
+     */
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Adds a value
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Gets the number of values
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean
+     *
+     * @return the mean, 0 if there is no value
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the sample variance
+     *
+     * @return the variance, 0 if there are less than two values
+     */
+    public double getVariance() {
+        return count < 2 ? 0.0 : m2 / (count - 1);
+    }
+
+    /**
+     * Gets the sample standard deviation
+     *
+     * @return the standard deviation
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Gets the smallest value
+     *
+     * @return the smallest value
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the largest value
+     *
+     * @return the largest value
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the half-width of the confidence interval of the mean, based on the
+     * Student t distribution
+     *
+     * @param confidence the confidence level, such as 0.95
+     * @return the half-width, infinite if there are less than two values
+     */
+    public double getHalfWidth(double confidence) {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        //no sampling, so no random generator is needed
+        TDistribution t = new TDistribution(null, count - 1,
+                TDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
+        double quantile = t.inverseCumulativeProbability(1.0 - (1.0 - confidence) / 2.0);
+        return quantile * getStandardDeviation() / Math.sqrt(count);
+    }
+}
@@ -79,9 +79,30 @@ public class OverheadParameters {
         this.POST_DELAY = post_delay;
         this.CLUST_DELAY = cluster_delay;
         this.bandwidth = bandwidth;
+        setRandomStreams(wed_delay, "workflowsim.overhead.wed.");
+        setRandomStreams(queue_delay, "workflowsim.overhead.queue.");
+        setRandomStreams(post_delay, "workflowsim.overhead.post.");
+        setRandomStreams(cluster_delay, "workflowsim.overhead.cluster.");
 
     }
 
+    /**
+     * Gives the delay of each level its own random stream, unless it has one
+     *
+     * @param delays the delays per level, may be null
+     * @param prefix the prefix of the names of the streams
+     */
+    private static void setRandomStreams(Map<Integer, DistributionGenerator> delays, String prefix) {
+        if (delays != null) {
+            for (Map.Entry<Integer, DistributionGenerator> entry : delays.entrySet()) {
+                DistributionGenerator generator = entry.getValue();
+                if (generator != null && !generator.hasRandomStream()) {
+                    generator.setRandomStream(prefix + entry.getKey());
+                }
+            }
+        }
+    }
+
     /**
      * Gets the bandwidth
      *
@@ -0,0 +1,448 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.util.RandomStreams;
+import org.workflowsim.CondorVM;
+import org.workflowsim.Job;
+import org.workflowsim.WorkflowDatacenter;
+import org.workflowsim.WorkflowEngine;
+import org.workflowsim.WorkflowGraphCache;
+import org.workflowsim.WorkflowPlanner;
+import org.workflowsim.failure.FailureGenerator;
+import org.workflowsim.failure.FailureMonitor;
+import org.workflowsim.failure.FailureParameters;
+import org.workflowsim.utils.Parameters.PlanningAlgorithm;
+import org.workflowsim.utils.Parameters.SchedulingAlgorithm;
+
+/**
+ * ParameterSweep simulates every combination of a grid of parameters (DAX
+ * files, number of vms, scheduling and planning algorithms, clustering
+ * parameters, failure rates and seeds) and writes one CSV row per simulation.
+ * The simulations run in parallel on a fork-join pool, each one in its own
+ * simulation context seeded with the seed of its configuration, and share the
+ * parsed DAX files. Subclasses create the
+ * datacenter and the vms of each simulation.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public abstract class ParameterSweep {
+
+    /**
+     * The CSV header
+     */
+    private static final String HEADER = "dax,vms,scheduler,planner,clustering,clusters_num,clusters_size,"
+            + "failure_rate,seed,makespan,cost,jobs,failed_jobs,wall_time_ms";
+
+    /**
+     * The grid of parameters
+     */
+    private List<String> daxPaths = new ArrayList<>();
+    private int[] vmNums = {20};
+    private SchedulingAlgorithm[] schedulingAlgorithms = {SchedulingAlgorithm.MINMIN};
+    private PlanningAlgorithm[] planningAlgorithms = {PlanningAlgorithm.INVALID};
+    private ClusteringParameters[] clusteringParameters = {
+        new ClusteringParameters(0, 0, ClusteringParameters.ClusteringMethod.NONE, null)};
+    private double[] failureRates = {0.0};
+    private long[] seeds = {0L};
+    /**
+     * The file system of all simulations
+     */
+    private ReplicaCatalog.FileSystem fileSystem = ReplicaCatalog.FileSystem.SHARED;
+    /**
+     * The parsed DAX files, shared by all simulations
+     */
+    private final WorkflowGraphCache cache = new WorkflowGraphCache();
+
+    /**
+     * Creates the datacenter of a simulation. It is called in the simulation
+     * context of the simulation.
+     *
+     * @param name the name of the datacenter
+     * @return the datacenter
+     * @throws Exception
+     */
+    protected abstract WorkflowDatacenter createDatacenter(String name) throws Exception;
+
+    /**
+     * Creates the vms of a simulation. It is called in the simulation context
+     * of the simulation.
+     *
+     * @param userId the id of the scheduler that controls the vms
+     * @param vmNum the number of vms
+     * @return the vms
+     */
+    protected abstract List<CondorVM> createVmList(int userId, int vmNum);
+
+    /**
+     * Sets the DAX paths
+     *
+     * @param paths the DAX paths
+     */
+    public void setDaxPaths(String... paths) {
+        this.daxPaths = Arrays.asList(paths);
+    }
+
+    /**
+     * Sets the numbers of vms
+     *
+     * @param nums the numbers of vms
+     */
+    public void setVmNums(int... nums) {
+        this.vmNums = nums.clone();
+    }
+
+    /**
+     * Sets the scheduling algorithms
+     *
+     * @param algorithms the scheduling algorithms
+     */
+    public void setSchedulingAlgorithms(SchedulingAlgorithm... algorithms) {
+        this.schedulingAlgorithms = algorithms.clone();
+    }
+
+    /**
+     * Sets the planning algorithms
+     *
+     * @param algorithms the planning algorithms
+     */
+    public void setPlanningAlgorithms(PlanningAlgorithm... algorithms) {
+        this.planningAlgorithms = algorithms.clone();
+    }
+
+    /**
+     * Sets the clustering parameters
+     *
+     * @param params the clustering parameters
+     */
+    public void setClusteringParameters(ClusteringParameters... params) {
+        this.clusteringParameters = params.clone();
+    }
+
+    /**
+     * Sets the failure rates. With a failure rate r greater than 0, the time
+     * between failures follows a Weibull distribution of scale 1/r and shape
+     * 1.0 for all tasks. With a failure rate of 0 there is no failure.
+     *
+     * @param rates the failure rates
+     */
+    public void setFailureRates(double... rates) {
+        this.failureRates = rates.clone();
+    }
+
+    /**
+     * Sets the seeds of the RandomStreams of the simulations, 0 by default.
+     * Every other point of the grid is simulated once with each seed.
+     *
+     * @param seeds the seeds
+     */
+    public void setSeeds(long... seeds) {
+        this.seeds = seeds.clone();
+    }
+
+    /**
+     * Sets the file system
+     *
+     * @param fs the file system
+     */
+    public void setFileSystem(ReplicaCatalog.FileSystem fs) {
+        this.fileSystem = fs;
+    }
+
+    /**
+     * Gets all the configurations of the grid, varying the seed first and the
+     * DAX path last
+     *
+     * @return the configurations
+     */
+    public List<Configuration> getConfigurations() {
+        List<Configuration> list = new ArrayList<>();
+        for (String daxPath : daxPaths) {
+            for (int vmNum : vmNums) {
+                for (SchedulingAlgorithm scheduler : schedulingAlgorithms) {
+                    for (PlanningAlgorithm planner : planningAlgorithms) {
+                        for (ClusteringParameters cp : clusteringParameters) {
+                            for (double rate : failureRates) {
+                                for (long seed : seeds) {
+                                    list.add(new Configuration(daxPath, vmNum, scheduler, planner, cp, rate,
+                                            seed));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Simulates all the configurations and writes their results to a CSV
+     * file, in the order of getConfigurations(). Log is disabled meanwhile.
+     *
+     * @param out the CSV file
+     * @param parallelism the number of simulations running at the same time
+     * @return the results
+     * @throws IOException if the CSV file cannot be written
+     * @throws InterruptedException
+     * @throws ExecutionException if a simulation fails
+     */
+    public List<Result> run(Writer out, int parallelism)
+            throws IOException, InterruptedException, ExecutionException {
+        boolean disabled = Log.isDisabled();
+        Log.disable();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+            for (final Configuration configuration : getConfigurations()) {
+                tasks.add(pool.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() throws Exception {
+                        return simulate(configuration);
+                    }
+                }));
+            }
+            out.write(HEADER + "\n");
+            List<Result> results = new ArrayList<>();
+            for (ForkJoinTask<Result> task : tasks) {
+                Result result = task.get();
+                out.write(result.toCsv() + "\n");
+                out.flush();
+                results.add(result);
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+            Log.setDisabled(disabled);
+        }
+    }
+
+    /**
+     * Simulates a configuration in a new simulation context of the calling
+     * thread
+     *
+     * @param configuration the configuration
+     * @return the result
+     * @throws Exception
+     */
+    public Result simulate(Configuration configuration) throws Exception {
+        long start = System.nanoTime();
+        CloudSim.setContext(new SimulationContext());
+        try {
+            RandomStreams.setSeed(configuration.getSeed());
+            WorkflowGraphCache.setCache(cache);
+            if (configuration.getFailureRate() > 0) {
+                DistributionGenerator[][] failureGenerators = new DistributionGenerator[1][1];
+                failureGenerators[0][0] = new DistributionGenerator(DistributionGenerator.DistributionFamily.WEIBULL,
+                        1.0 / configuration.getFailureRate(), 1.0);
+                FailureParameters.init(FailureParameters.FTCluteringAlgorithm.FTCLUSTERING_NOOP,
+                        FailureParameters.FTCMonitor.MONITOR_ALL, FailureParameters.FTCFailure.FAILURE_ALL,
+                        failureGenerators);
+            }
+            /**
+             * No overheads
+             */
+            OverheadParameters op = new OverheadParameters(0, null, null, null, null, 0);
+            Parameters.init(configuration.getVmNum(), configuration.getDaxPath(), null,
+                    null, op, configuration.getClusteringParameters(),
+                    configuration.getSchedulingAlgorithm(), configuration.getPlanningAlgorithm(),
+                    null, 0);
+            ReplicaCatalog.init(fileSystem);
+            FailureMonitor.init();
+            FailureGenerator.init();
+
+            CloudSim.init(1, Calendar.getInstance(), false);
+            WorkflowDatacenter datacenter0 = createDatacenter("Datacenter_0");
+            WorkflowPlanner wfPlanner = new WorkflowPlanner("planner_0", 1);
+            WorkflowEngine wfEngine = wfPlanner.getWorkflowEngine();
+            List<CondorVM> vmlist0 = createVmList(wfEngine.getSchedulerId(0), Parameters.getVmNum());
+            wfEngine.submitVmList(vmlist0, 0);
+            wfEngine.bindSchedulerDatacenter(datacenter0.getId(), 0);
+
+            double makespan = CloudSim.startSimulation();
+            List<Job> outputList0 = wfEngine.getJobsReceivedList();
+            CloudSim.stopSimulation();
+
+            double cost = 0.0;
+            int failedJobNum = 0;
+            for (Job job : outputList0) {
+                cost += job.getProcessingCost();
+                if (job.getCloudletStatus() == Cloudlet.FAILED) {
+                    failedJobNum++;
+                }
+            }
+            long wallTime = (System.nanoTime() - start) / 1000000;
+            return new Result(configuration, makespan, cost, outputList0.size(), failedJobNum, wallTime);
+        } finally {
+            CloudSim.setContext(null);
+        }
+    }
+
+    /**
+     * A point of the grid of parameters
+     */
+    public static final class Configuration {
+
+        private final String daxPath;
+        private final int vmNum;
+        private final SchedulingAlgorithm schedulingAlgorithm;
+        private final PlanningAlgorithm planningAlgorithm;
+        private final ClusteringParameters clusteringParameters;
+        private final double failureRate;
+        private final long seed;
+
+        public Configuration(String daxPath, int vmNum, SchedulingAlgorithm scheduler,
+                PlanningAlgorithm planner, ClusteringParameters cp, double failureRate, long seed) {
+            this.daxPath = daxPath;
+            this.vmNum = vmNum;
+            this.schedulingAlgorithm = scheduler;
+            this.planningAlgorithm = planner;
+            this.clusteringParameters = cp;
+            this.failureRate = failureRate;
+            this.seed = seed;
+        }
+
+        public String getDaxPath() {
+            return daxPath;
+        }
+
+        public int getVmNum() {
+            return vmNum;
+        }
+
+        public SchedulingAlgorithm getSchedulingAlgorithm() {
+            return schedulingAlgorithm;
+        }
+
+        public PlanningAlgorithm getPlanningAlgorithm() {
+            return planningAlgorithm;
+        }
+
+        public ClusteringParameters getClusteringParameters() {
+            return clusteringParameters;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        /**
+         * Gets the seed of the RandomStreams of the simulation
+         *
+         * @return the seed
+         */
+        public long getSeed() {
+            return seed;
+        }
+    }
+
+    /**
+     * The result of the simulation of a configuration
+     */
+    public static final class Result {
+
+        private final Configuration configuration;
+        private final double makespan;
+        private final double cost;
+        private final int jobNum;
+        private final int failedJobNum;
+        private final long wallTime;
+
+        public Result(Configuration configuration, double makespan, double cost,
+                int jobNum, int failedJobNum, long wallTime) {
+            this.configuration = configuration;
+            this.makespan = makespan;
+            this.cost = cost;
+            this.jobNum = jobNum;
+            this.failedJobNum = failedJobNum;
+            this.wallTime = wallTime;
+        }
+
+        public Configuration getConfiguration() {
+            return configuration;
+        }
+
+        public double getMakespan() {
+            return makespan;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public int getJobNum() {
+            return jobNum;
+        }
+
+        public int getFailedJobNum() {
+            return failedJobNum;
+        }
+
+        /**
+         * Gets the wall clock time of the simulation
+         *
+         * @return the time in milliseconds
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * Gets the result as a CSV row
+         *
+         * @return the row
+         */
+        public String toCsv() {
+            ClusteringParameters cp = configuration.getClusteringParameters();
+            return quote(configuration.getDaxPath()) + "," + configuration.getVmNum() + ","
+                    + quote(configuration.getSchedulingAlgorithm()) + ","
+                    + quote(configuration.getPlanningAlgorithm()) + ","
+                    + quote(cp.getClusteringMethod()) + "," + cp.getClustersNum() + "," + cp.getClustersSize() + ","
+                    + configuration.getFailureRate() + "," + configuration.getSeed() + "," + makespan + "," + cost + ","
+                    + jobNum + "," + failedJobNum + "," + wallTime;
+        }
+
+        /**
+         * Quotes a CSV field as RFC 4180 does, if it contains a comma, a
+         * double quote or a line break
+         *
+         * @param value the field
+         * @return the field, quoted if needed
+         */
+        private static String quote(Object value) {
+            String field = String.valueOf(value);
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+                    && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                return field;
+            }
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
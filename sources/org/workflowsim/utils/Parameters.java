@@ -17,6 +17,8 @@ package org.workflowsim.utils;
 
 import java.util.List;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
 /**
  * This class includes most parameters a user can specify in a configuration
@@ -47,6 +49,15 @@ public class Parameters {
         INVALID, RANDOM, HEFT, DHEFT
     }
     
+    /**
+     * DAX Parser
+     * JDOM: builds the whole document in memory before reading it
+     * STAX: reads the document as a stream, which needs much less memory
+     */
+    public enum DaxParser{
+        JDOM, STAX
+    }
+    
     /**
      * File Type
      */
@@ -89,45 +100,6 @@ public class Parameters {
     
     public static final int BASE = 0;
     
-    /**
-     * Scheduling mode
-     */
-    private static SchedulingAlgorithm schedulingAlgorithm;
-    
-    /**
-     * Planning mode
-     */
-    private static PlanningAlgorithm planningAlgorithm;
-    
-    /**
-     * Reducer mode
-     */
-    private static String reduceMethod;
-    /**
-     * Number of vms available
-     */
-    private static int vmNum;
-    /**
-     * The physical path to DAX file
-     */
-    private static String daxPath;
-    
-    /**
-     * The physical path to DAX files
-     */
-    private static List<String> daxPaths;
-    /**
-     * The physical path to runtime file In the runtime file, please use format
-     * as below ID1 1.0 ID2 2.0 ... This is optional, if you have specified task
-     * runtime in DAX then you don't need to specify this file
-     */
-    private static String runtimePath;
-    /**
-     * The physical path to datasize file In the datasize file, please use
-     * format as below DATA1 1000 DATA2 2000 ... This is optional, if you have
-     * specified datasize in DAX then you don't need to specify this file
-     */
-    private static String datasizePath;
     /**
      * Version number
      */
@@ -136,45 +108,12 @@ public class Parameters {
      * Note information
      */
     private static final String note = " supports planning algorithm at Nov 9, 2013";
-    /**
-     * Overhead parameters
-     */
-    private static OverheadParameters oParams;
-    /**
-     * Clustering parameters
-     */
-    private static ClusteringParameters cParams;
-    /**
-     * Deadline of a workflow
-     */
-    private static long deadline;
-    
-    /**
-     * the bandwidth from one vm to one vm
-     */
-    private static double[][] bandwidths;
-    
-    
-    /**
-     * The maximum depth. It is inited manually and used in FailureGenerator
-     */
-    private static int maxDepth;
     
     /**
      * Invalid String
      */
     private static final String INVALID = "Invalid";
     
-    /**
-     * The scale of runtime. Multiple runtime by this
-     */
-    private static double runtime_scale = 1.0;
-    
-    /**
-     * The default cost model is based on datacenter, similar to CloudSim
-     */
-    private static CostModel costModel = CostModel.DATACENTER;
-    
     /**
      * A static function so that you can specify them in any place
      *
@@ -194,19 +133,19 @@ public class Parameters {
             OverheadParameters op, ClusteringParameters cp,
             SchedulingAlgorithm scheduler, PlanningAlgorithm planner, String rMethod,
             long dl) {
+        State state = state();
+        state.cParams = cp;
+        state.vmNum = vm;
+        state.daxPath = dax;
+        state.runtimePath = runtime;
+        state.datasizePath = datasize;
 
-        cParams = cp;
-        vmNum = vm;
-        daxPath = dax;
-        runtimePath = runtime;
-        datasizePath = datasize;
-
-        oParams = op;
-        schedulingAlgorithm = scheduler;
-        planningAlgorithm = planner;
-        reduceMethod = rMethod;
-        deadline = dl;
-        maxDepth = 0;
+        state.oParams = op;
+        state.schedulingAlgorithm = scheduler;
+        state.planningAlgorithm = planner;
+        state.reduceMethod = rMethod;
+        state.deadline = dl;
+        state.maxDepth = 0;
     }
     
     /**
@@ -228,19 +167,19 @@ public class Parameters {
             OverheadParameters op, ClusteringParameters cp,
             SchedulingAlgorithm scheduler, PlanningAlgorithm planner, String rMethod,
             long dl) {
+        State state = state();
+        state.cParams = cp;
+        state.vmNum = vm;
+        state.daxPaths = dax;
+        state.runtimePath = runtime;
+        state.datasizePath = datasize;
 
-        cParams = cp;
-        vmNum = vm;
-        daxPaths = dax;
-        runtimePath = runtime;
-        datasizePath = datasize;
-
-        oParams = op;
-        schedulingAlgorithm = scheduler;
-        planningAlgorithm = planner;
-        reduceMethod = rMethod;
-        deadline = dl;
-        maxDepth = 0;
+        state.oParams = op;
+        state.schedulingAlgorithm = scheduler;
+        state.planningAlgorithm = planner;
+        state.reduceMethod = rMethod;
+        state.deadline = dl;
+        state.maxDepth = 0;
     }
 
     /**
@@ -251,7 +190,7 @@ public class Parameters {
      * @post $none
      */
     public static OverheadParameters getOverheadParams() {
-        return oParams;
+        return state().oParams;
     }
 
     
@@ -264,8 +203,9 @@ public class Parameters {
      * @post $none
      */
     public static String getReduceMethod() {
-        if(reduceMethod!=null){
-            return reduceMethod;
+        State state = state();
+        if(state.reduceMethod!=null){
+            return state.reduceMethod;
         }else{
             return INVALID;
         }
@@ -281,7 +221,7 @@ public class Parameters {
      * @post $none
      */
     public static String getDaxPath() {
-        return daxPath;
+        return state().daxPath;
     }
 
     /**
@@ -292,7 +232,7 @@ public class Parameters {
      * @post $none
      */
     public static String getRuntimePath() {
-        return runtimePath;
+        return state().runtimePath;
     }
 
     /**
@@ -303,7 +243,7 @@ public class Parameters {
      * @post $none
      */
     public static String getDatasizePath() {
-        return datasizePath;
+        return state().datasizePath;
     }
 
     
@@ -315,7 +255,7 @@ public class Parameters {
      * @post $none
      */
     public static int getVmNum() {
-        return vmNum;
+        return state().vmNum;
     }
 
     
@@ -325,7 +265,7 @@ public class Parameters {
      * @return costModel
      */
     public static CostModel getCostModel(){
-        return costModel;
+        return state().costModel;
     }
     
     /**
@@ -334,7 +274,7 @@ public class Parameters {
      * @param num
      */
     public static void setVmNum(int num) {
-        vmNum = num;
+        state().vmNum = num;
     }
 
     /**
@@ -343,7 +283,7 @@ public class Parameters {
      * @return the clustering parameters
      */
     public static ClusteringParameters getClusteringParameters() {
-        return cParams;
+        return state().cParams;
     }
 
     /**
@@ -352,7 +292,7 @@ public class Parameters {
      * @return the scheduling method
      */
     public static SchedulingAlgorithm getSchedulingAlgorithm() {
-        return schedulingAlgorithm;
+        return state().schedulingAlgorithm;
     }
     
     /**
@@ -361,7 +301,7 @@ public class Parameters {
      * 
      */
     public static PlanningAlgorithm getPlanningAlgorithm() {
-        return planningAlgorithm;
+        return state().planningAlgorithm;
     }
     /**
      * Gets the version
@@ -379,7 +319,7 @@ public class Parameters {
      * Gets the deadline
      */
     public static long getDeadline(){
-    	return deadline;
+        return state().deadline;
     }
     
     /**
@@ -387,7 +327,7 @@ public class Parameters {
      * @return the maxDepth
      */
     public static int getMaxDepth(){
-        return maxDepth;
+        return state().maxDepth;
     }
     
     /**
@@ -395,7 +335,7 @@ public class Parameters {
      * @param depth the maxDepth
      */
     public static void setMaxDepth(int depth){
-        maxDepth = depth;
+        state().maxDepth = depth;
     }
     
     /**
@@ -403,7 +343,7 @@ public class Parameters {
      * @param scale 
      */
     public static void setRuntimeScale(double scale){
-        runtime_scale = scale;
+        state().runtime_scale = scale;
     }
     
     /**
@@ -411,7 +351,7 @@ public class Parameters {
      * @param model
      */
     public static void setCostModel(CostModel model){
-        costModel = model;
+        state().costModel = model;
     }
     
     /**
@@ -419,7 +359,61 @@ public class Parameters {
      * @return 
      */
     public static double getRuntimeScale(){
-        return runtime_scale;
+        return state().runtime_scale;
+    }
+    
+    /**
+     * Sets the DAX parser
+     * @param parser 
+     */
+    public static void setDaxParser(DaxParser parser){
+        state().daxParser = parser;
+    }
+    
+    /**
+     * Gets the DAX parser
+     * @return the DAX parser
+     */
+    public static DaxParser getDaxParser(){
+        return state().daxParser;
+    }
+    
+    /**
+     * Sets the interval during which job updates are merged into one
+     * scheduling round. A negative interval (the default) runs one round per
+     * update, 0 merges the updates at the same time, a positive interval
+     * waits that long after the first update.
+     * @param interval the interval in seconds
+     */
+    public static void setUpdateInterval(double interval){
+        state().updateInterval = interval;
+    }
+    
+    /**
+     * Gets the interval during which job updates are merged into one
+     * scheduling round
+     * @return the interval in seconds, negative if updates are not merged
+     */
+    public static double getUpdateInterval(){
+        return state().updateInterval;
+    }
+    
+    /**
+     * Sets whether the scheduler uses the same scheduling algorithm instance
+     * in every round, instead of creating one per round
+     * @param reuse 
+     */
+    public static void setSchedulerReused(boolean reuse){
+        state().schedulerReused = reuse;
+    }
+    
+    /**
+     * Gets whether the scheduler uses the same scheduling algorithm instance
+     * in every round
+     * @return 
+     */
+    public static boolean isSchedulerReused(){
+        return state().schedulerReused;
     }
     
     /**
@@ -427,6 +421,122 @@ public class Parameters {
      * @return 
      */
     public static List<String> getDAXPaths() {
-        return daxPaths;
+        return state().daxPaths;
+    }
+
+    /**
+     * Gets the state of the parameters in the simulation context of the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        SimulationContext context = CloudSim.getContext();
+        State state = (State) context.getAttribute(State.class);
+        if (state == null) {
+            state = new State();
+            context.setAttribute(State.class, state);
+        }
+        return state;
+    }
+
+    /**
+     * The state of the parameters, one per simulation context.
+     */
+    private static final class State {
+
+        /**
+         * Scheduling mode
+         */
+        SchedulingAlgorithm schedulingAlgorithm;
+
+        /**
+         * Planning mode
+         */
+        PlanningAlgorithm planningAlgorithm;
+
+        /**
+         * Reducer mode
+         */
+        String reduceMethod;
+
+        /**
+         * Number of vms available
+         */
+        int vmNum;
+
+        /**
+         * The physical path to DAX file
+         */
+        String daxPath;
+
+        /**
+         * The physical path to DAX files
+         */
+        List<String> daxPaths;
+
+        /**
+         * The physical path to runtime file In the runtime file, please use format
+         * as below ID1 1.0 ID2 2.0 ... This is optional, if you have specified task
+         * runtime in DAX then you don't need to specify this file
+         */
+        String runtimePath;
+
+        /**
+         * The physical path to datasize file In the datasize file, please use
+         * format as below DATA1 1000 DATA2 2000 ... This is optional, if you have
+         * specified datasize in DAX then you don't need to specify this file
+         */
+        String datasizePath;
+
+        /**
+         * Overhead parameters
+         */
+        OverheadParameters oParams;
+
+        /**
+         * Clustering parameters
+         */
+        ClusteringParameters cParams;
+
+        /**
+         * Deadline of a workflow
+         */
+        long deadline;
+
+        /**
+         * the bandwidth from one vm to one vm
+         */
+        double[][] bandwidths;
+
+        /**
+         * The maximum depth. It is inited manually and used in FailureGenerator
+         */
+        int maxDepth;
+
+        /**
+         * The scale of runtime. Multiple runtime by this
+         */
+        double runtime_scale = 1.0;
+
+        /**
+         * The default cost model is based on datacenter, similar to CloudSim
+         */
+        CostModel costModel = CostModel.DATACENTER;
+
+        /**
+         * The parser of DAX files
+         */
+        DaxParser daxParser = DaxParser.JDOM;
+
+        /**
+         * The interval during which job updates are merged, negative if they
+         * are not merged
+         */
+        double updateInterval = -1.0;
+
+        /**
+         * Whether the scheduling algorithm instance is reused
+         */
+        boolean schedulerReused = true;
     }
 }
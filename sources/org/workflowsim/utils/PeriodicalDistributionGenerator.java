@@ -43,13 +43,7 @@ public class PeriodicalDistributionGenerator extends DistributionGenerator{
     public PeriodicalDistributionGenerator(DistributionFamily dist, double scale, double shape, PeriodicalSignal signal){
         super(dist, scale, shape);
         this.signal = signal;
-        //generate samples periodically
-        double currentTime = 0.0;
-        samples = generatePeriodicalSamples(currentTime);
-                
-        updateCumulativeSamples();
-        cursor = 0;
-       
+        //samples are generated periodically when first needed
     }
     
     /**
@@ -66,20 +60,17 @@ public class PeriodicalDistributionGenerator extends DistributionGenerator{
     public PeriodicalDistributionGenerator(DistributionFamily dist, double scale, double shape, double a, double b, double c, PeriodicalSignal signal){
         super(dist, scale, shape, a, b, c);
         this.signal = signal;
-        double currentTime = 0.0;
-        samples = generatePeriodicalSamples(currentTime);
-        updateCumulativeSamples();
-        cursor = 0;
     }
     /**
      * Extends the sample size
      */
     @Override
     public void extendSamples() {
-        double currentTime = cumulativeSamples[cumulativeSamples.length - 1];
-        double[] new_samples = generatePeriodicalSamples(currentTime);
-        samples = concat(samples, new_samples);
-        updateCumulativeSamples();
+        double currentTime = 0.0;
+        if (getSampleStore().size() > 0) {
+            currentTime = getSampleStore().getCumulativeSample(getSampleStore().size() - 1);
+        }
+        getSampleStore().append(generatePeriodicalSamples(currentTime));
     }
     
     /**
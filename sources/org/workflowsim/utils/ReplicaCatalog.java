@@ -18,13 +18,20 @@
 package org.workflowsim.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.workflowsim.FileItem;
 
 /**
- * ReplicaCatalog stores all the data information and where (site) there are
+ * ReplicaCatalog stores all the data information and where (site) there are.
+ * Files and storages are given int ids, and the storages of each file are a
+ * bitset of storage ids, so that checking whether a vm has a file compares no
+ * strings and allocates nothing. Each simulation context has its own catalog.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
@@ -38,18 +45,6 @@ public class ReplicaCatalog {
     public enum FileSystem {
         SHARED, LOCAL
     }
-    /**
-     * Map from file name to a file object
-     */
-    private static Map<String, FileItem> fileName2File;
-    /**
-     * The selection of file.system
-     */
-    private static FileSystem fileSystem;
-    /**
-     * Map from file to a list of data storage
-     */
-    private static Map<String, List<String>> dataReplicaCatalog;
 
     /**
      * Initialize a ReplicaCatalog
@@ -57,9 +52,14 @@ public class ReplicaCatalog {
      * @param fs the type of file system
      */
     public static void init(FileSystem fs) {
-        fileSystem = fs;
-        dataReplicaCatalog = new HashMap<>();
-        fileName2File = new HashMap<>();
+        State state = state();
+        state.fileSystem = fs;
+        state.fileName2File = new HashMap<>();
+        state.file2Index = new HashMap<>();
+        state.fileSites = new ArrayList<>();
+        state.site2Index = new HashMap<>();
+        state.siteNames = new ArrayList<>();
+        state.vmSites = new int[0];
     }
 
     /**
@@ -68,7 +68,7 @@ public class ReplicaCatalog {
      * @return file system
      */
     public static FileSystem getFileSystem() {
-        return fileSystem;
+        return state().fileSystem;
     }
 
     /**
@@ -78,7 +78,7 @@ public class ReplicaCatalog {
      * @return file object
      */
     public static FileItem getFile(String fileName) {
-        return fileName2File.get(fileName);
+        return state().fileName2File.get(fileName);
     }
 
     /**
@@ -88,7 +88,7 @@ public class ReplicaCatalog {
      * @param file , the file object
      */
     public static void setFile(String fileName, FileItem file) {
-        fileName2File.put(fileName, file);
+        state().fileName2File.put(fileName, file);
     }
 
     /**
@@ -98,17 +98,28 @@ public class ReplicaCatalog {
      * @return boolean, whether the file exist
      */
     public static boolean containsFile(String fileName) {
-        return fileName2File.containsKey(fileName);
+        return state().fileName2File.containsKey(fileName);
     }
 
     /**
-     * Gets the list of storages a file exists
+     * Gets the list of storages a file exists, in the order the storages
+     * were first used in the catalog
      *
      * @param file the file object
-     * @return list of storages
+     * @return list of storages, null if the file is in no storage
      */
     public static List<String> getStorageList(String file) {
-        return dataReplicaCatalog.get(file);
+        State state = state();
+        Integer index = state.file2Index.get(file);
+        if (index == null) {
+            return null;
+        }
+        BitSet sites = state.fileSites.get(index);
+        List<String> list = new ArrayList<>(sites.cardinality());
+        for (int site = sites.nextSetBit(0); site >= 0; site = sites.nextSetBit(site + 1)) {
+            list.add(state.siteNames.get(site));
+        }
+        return list;
     }
 
     /**
@@ -118,12 +129,180 @@ public class ReplicaCatalog {
      * @param storage , the storage associated with this file
      */
     public static void addFileToStorage(String file, String storage) {
-        if (!dataReplicaCatalog.containsKey(file)) {
-            dataReplicaCatalog.put(file, new ArrayList<>());
+        State state = state();
+        state.getSites(file).set(state.getSite(storage));
+    }
+
+    /**
+     * Adds a file to the storage of a vm (the storage named after the vm id)
+     *
+     * @param file the file name
+     * @param vmId the vm id
+     */
+    public static void addFileToVm(String file, int vmId) {
+        State state = state();
+        state.getSites(file).set(state.getVmSite(vmId));
+    }
+
+    /**
+     * Checks whether a file is in the storage of a vm
+     *
+     * @param file the file name
+     * @param vmId the vm id
+     * @return whether the vm has the file
+     */
+    public static boolean isFileOnVm(String file, int vmId) {
+        State state = state();
+        Integer index = state.file2Index.get(file);
+        return index != null && state.fileSites.get(index).get(state.getVmSite(vmId));
+    }
+
+    /**
+     * Gets the id of a file in the catalog. Looking the storages of a file up
+     * by its id with getNextSite() does not allocate anything.
+     *
+     * @param file the file name
+     * @return the file id, -1 if the file is in no storage
+     */
+    public static int getFileId(String file) {
+        Integer index = state().file2Index.get(file);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the next storage of a file. The storages of a file are visited
+     * with: for (int site = getNextSite(fileId, 0); site >= 0; site =
+     * getNextSite(fileId, site + 1))
+     *
+     * @param fileId the file id
+     * @param fromSite the first storage id to look at
+     * @return the storage id, -1 if there is none
+     */
+    public static int getNextSite(int fileId, int fromSite) {
+        return state().fileSites.get(fileId).nextSetBit(fromSite);
+    }
+
+    /**
+     * Gets the id of a storage in the catalog
+     *
+     * @param storage the storage name
+     * @return the storage id
+     */
+    public static int getSite(String storage) {
+        return state().getSite(storage);
+    }
+
+    /**
+     * Gets the id of the storage of a vm in the catalog
+     *
+     * @param vmId the vm id
+     * @return the storage id
+     */
+    public static int getVmSite(int vmId) {
+        return state().getVmSite(vmId);
+    }
+
+    /**
+     * Gets the name of a storage
+     *
+     * @param site the storage id
+     * @return the storage name
+     */
+    public static String getSiteName(int site) {
+        return state().siteNames.get(site);
+    }
+
+    /**
+     * Gets the state of the replica catalog in the simulation context of the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        SimulationContext context = CloudSim.getContext();
+        State state = (State) context.getAttribute(State.class);
+        if (state == null) {
+            state = new State();
+            context.setAttribute(State.class, state);
         }
-        List<String> list = getStorageList(file);
-        if (!list.contains(storage)) {
-            list.add(storage);
+        return state;
+    }
+
+    /**
+     * The state of the replica catalog, one per simulation context.
+     */
+    private static final class State {
+
+        /**
+         * Map from file name to a file object
+         */
+        Map<String, FileItem> fileName2File;
+
+        /**
+         * The selection of file.system
+         */
+        FileSystem fileSystem;
+
+        /**
+         * Map from file name to file id
+         */
+        Map<String, Integer> file2Index;
+
+        /**
+         * The storages of each file, by storage id
+         */
+        List<BitSet> fileSites;
+
+        /**
+         * Map from storage name to storage id
+         */
+        Map<String, Integer> site2Index;
+
+        /**
+         * The name of each storage
+         */
+        List<String> siteNames;
+
+        /**
+         * The storage id of each vm plus one, 0 until the vm storage is
+         * looked up
+         */
+        int[] vmSites;
+
+        BitSet getSites(String file) {
+            Integer index = file2Index.get(file);
+            if (index == null) {
+                index = fileSites.size();
+                file2Index.put(file, index);
+                fileSites.add(new BitSet());
+            }
+            return fileSites.get(index);
+        }
+
+        int getSite(String storage) {
+            Integer index = site2Index.get(storage);
+            if (index == null) {
+                index = siteNames.size();
+                site2Index.put(storage, index);
+                siteNames.add(storage);
+            }
+            return index;
+        }
+
+        /**
+         * The storage of a vm is named after its id, as when the vm id is
+         * passed to addFileToStorage() as a String
+         */
+        int getVmSite(int vmId) {
+            if (vmId < 0) {
+                return getSite(Integer.toString(vmId));
+            }
+            if (vmId >= vmSites.length) {
+                vmSites = Arrays.copyOf(vmSites, Math.max(vmId + 1, 2 * vmSites.length));
+            }
+            if (vmSites[vmId] == 0) {
+                vmSites[vmId] = getSite(Integer.toString(vmId)) + 1;
+            }
+            return vmSites[vmId] - 1;
         }
     }
 }
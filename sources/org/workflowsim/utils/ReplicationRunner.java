@@ -0,0 +1,231 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.util.RandomStreams;
+
+/**
+ * ReplicationRunner runs replications of a simulation in parallel, each one in
+ * its own simulation context, and adds their results to OnlineStatistics as
+ * they come. It stops once the confidence interval of the mean is narrow
+ * enough, or after a maximum number of replications.
+ *
+ * Replication i seeds the RandomStreams of its context with seed + i, so that
+ * replication i of two configurations uses the same random numbers (common
+ * random numbers). The results are added in the order of the replications,
+ * so that the statistics and the number of replications do not depend on
+ * which replication finishes first.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public class ReplicationRunner {
+
+    /**
+     * A simulation to replicate
+     */
+    public interface Replication {
+
+        /**
+         * Runs a replication. It is called in a new simulation context whose
+         * random streams are seeded for the replication.
+         *
+         * @param index the index of the replication, from 0
+         * @return the result of the replication, such as the makespan
+         * @throws Exception
+         */
+        double run(int index) throws Exception;
+    }
+    private final int parallelism;
+    private int minReplications = 10;
+    private int maxReplications = 100;
+    private double confidence = 0.95;
+    private double targetHalfWidth = 0.0;
+    private double targetRelativeHalfWidth = 0.0;
+    private long seed = 0L;
+
+    /**
+     * Initialize a ReplicationRunner
+     *
+     * @param parallelism the number of replications running at the same time
+     */
+    public ReplicationRunner(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of replications before the confidence interval is
+     * checked, 10 by default
+     *
+     * @param num the number of replications
+     */
+    public void setMinReplications(int num) {
+        this.minReplications = num;
+    }
+
+    /**
+     * Sets the maximum number of replications, 100 by default
+     *
+     * @param num the number of replications
+     */
+    public void setMaxReplications(int num) {
+        this.maxReplications = num;
+    }
+
+    /**
+     * Sets the confidence level of the confidence interval, 0.95 by default
+     *
+     * @param confidence the confidence level
+     */
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    /**
+     * Stops once the half-width of the confidence interval is at most a
+     * value, 0 (never) by default
+     *
+     * @param halfWidth the half-width
+     */
+    public void setTargetHalfWidth(double halfWidth) {
+        this.targetHalfWidth = halfWidth;
+    }
+
+    /**
+     * Stops once the half-width of the confidence interval is at most a
+     * fraction of the mean, 0 (never) by default
+     *
+     * @param fraction the fraction of the mean, such as 0.01
+     */
+    public void setTargetRelativeHalfWidth(double fraction) {
+        this.targetRelativeHalfWidth = fraction;
+    }
+
+    /**
+     * Sets the seed of the first replication, 0 by default
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs replications until the confidence interval is narrow enough. Log is
+     * disabled meanwhile.
+     *
+     * @param replication the simulation to replicate
+     * @param out where the result of each replication is written, as an
+     * "index,result" row, as soon as it is added; may be null
+     * @return the statistics of the results
+     * @throws IOException if the results cannot be written
+     * @throws InterruptedException
+     * @throws ExecutionException if a replication fails
+     */
+    public OnlineStatistics run(final Replication replication, Writer out)
+            throws IOException, InterruptedException, ExecutionException {
+        OnlineStatistics stats = new OnlineStatistics();
+        boolean disabled = Log.isDisabled();
+        Log.disable();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Deque<ForkJoinTask<Double>> running = new ArrayDeque<>();
+            int next = 0;
+            while (next < maxReplications && running.size() < parallelism) {
+                running.add(submit(pool, replication, next++));
+            }
+            int index = 0;
+            while (!running.isEmpty()) {
+                double result = running.poll().get();
+                stats.add(result);
+                if (out != null) {
+                    out.write(index + "," + result + "\n");
+                    out.flush();
+                }
+                index++;
+                if (isPreciseEnough(stats)) {
+                    break;
+                }
+                if (next < maxReplications) {
+                    running.add(submit(pool, replication, next++));
+                }
+            }
+            return stats;
+        } finally {
+            /**
+             * The replications that have not started are cancelled, the ones
+             * running are waited for, so that they do not outlive the run.
+             */
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } finally {
+                Log.setDisabled(disabled);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the confidence interval is narrow enough
+     *
+     * @param stats the statistics
+     * @return whether it is
+     */
+    private boolean isPreciseEnough(OnlineStatistics stats) {
+        if (stats.getCount() < Math.max(minReplications, 2)
+                || (targetHalfWidth <= 0.0 && targetRelativeHalfWidth <= 0.0)) {
+            return false;
+        }
+        double halfWidth = stats.getHalfWidth(confidence);
+        return (targetHalfWidth > 0.0 && halfWidth <= targetHalfWidth)
+                || (targetRelativeHalfWidth > 0.0
+                && halfWidth <= targetRelativeHalfWidth * Math.abs(stats.getMean()));
+    }
+
+    /**
+     * Submits a replication to the pool
+     *
+     * @param pool the pool
+     * @param replication the simulation to replicate
+     * @param index the index of the replication
+     * @return the task
+     */
+    private ForkJoinTask<Double> submit(ForkJoinPool pool, final Replication replication, final int index) {
+        return pool.submit(new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                CloudSim.setContext(new SimulationContext());
+                try {
+                    RandomStreams.setSeed(seed + index);
+                    return replication.run(index);
+                } finally {
+                    CloudSim.setContext(null);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *
+ *   Copyright 2013-2014 University Of Southern California
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+package org.workflowsim.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SampleStore is an append-only list of samples kept in fixed size chunks,
+ * along with their cumulative sums. Appending samples neither copies the
+ * samples already stored nor sums them again, and the first cumulative sum
+ * reaching a value is found by binary search.
+ *
+ * @since WorkflowSim Toolkit 1.1
+ */
+public final class SampleStore {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * The samples
+     */
+    private final List<double[]> samples;
+    /**
+     * The sum of the samples up to each sample
+     */
+    private final List<double[]> cumulativeSamples;
+    /**
+     * The largest cumulative sum up to each sample, which does not decrease
+     * even if some samples are negative, so that it can be searched
+     */
+    private final List<double[]> maxCumulativeSamples;
+    /**
+     * The number of samples
+     */
+    private int size;
+
+    /**
+     * Initialize an empty SampleStore
+     */
+    public SampleStore() {
+        this.samples = new ArrayList<>();
+        this.cumulativeSamples = new ArrayList<>();
+        this.maxCumulativeSamples = new ArrayList<>();
+        this.size = 0;
+    }
+
+    /**
+     * Appends samples
+     *
+     * @param newSamples the samples
+     */
+    public void append(double[] newSamples) {
+        for (double sample : newSamples) {
+            int offset = size & CHUNK_MASK;
+            if (offset == 0) {
+                samples.add(new double[CHUNK_SIZE]);
+                cumulativeSamples.add(new double[CHUNK_SIZE]);
+                maxCumulativeSamples.add(new double[CHUNK_SIZE]);
+            }
+            int chunk = size >> CHUNK_BITS;
+            double cumulative = sample;
+            double max = sample;
+            if (size > 0) {
+                cumulative += getCumulativeSample(size - 1);
+                max = Math.max(cumulative, getMax(size - 1));
+            }
+            samples.get(chunk)[offset] = sample;
+            cumulativeSamples.get(chunk)[offset] = cumulative;
+            maxCumulativeSamples.get(chunk)[offset] = max;
+            size++;
+        }
+    }
+
+    /**
+     * Removes all the samples
+     */
+    public void clear() {
+        samples.clear();
+        cumulativeSamples.clear();
+        maxCumulativeSamples.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets the number of samples
+     *
+     * @return the number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a sample
+     *
+     * @param index the index of the sample
+     * @return the sample
+     */
+    public double getSample(int index) {
+        return samples.get(index >> CHUNK_BITS)[index & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the sum of the samples up to a sample
+     *
+     * @param index the index of the sample
+     * @return the sum of the samples from 0 to index
+     */
+    public double getCumulativeSample(int index) {
+        return cumulativeSamples.get(index >> CHUNK_BITS)[index & CHUNK_MASK];
+    }
+
+    private double getMax(int index) {
+        return maxCumulativeSamples.get(index >> CHUNK_BITS)[index & CHUNK_MASK];
+    }
+
+    /**
+     * Finds the first sample whose cumulative sum is at least a value
+     *
+     * @param value the value
+     * @return the index of the sample, -1 if there is none
+     */
+    public int findCumulativeSample(double value) {
+        if (size == 0 || getMax(size - 1) < value) {
+            return -1;
+        }
+        int low = 0, high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getMax(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies the samples to an array
+     *
+     * @return the samples
+     */
+    public double[] toArray() {
+        return copy(samples);
+    }
+
+    /**
+     * Copies the cumulative sums to an array
+     *
+     * @return the cumulative sums
+     */
+    public double[] toCumulativeArray() {
+        return copy(cumulativeSamples);
+    }
+
+    private double[] copy(List<double[]> chunks) {
+        double[] array = new double[size];
+        for (int i = 0; i < chunks.size(); i++) {
+            int offset = i << CHUNK_BITS;
+            System.arraycopy(chunks.get(i), 0, array, offset, Math.min(CHUNK_SIZE, size - offset));
+        }
+        return array;
+    }
+}